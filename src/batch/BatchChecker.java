@@ -0,0 +1,415 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package batch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import ltl.Model;
+import ltl.Monitor;
+import series.AbstractTSLoader;
+import series.CsvTSLoader;
+import series.FieldTSLoader;
+import series.TimeSeriesLoader;
+import series.TimeSeriesPoint;
+import xml.Formula;
+import xml.TimeSeriesSource;
+import exceptions.TSLoaderException;
+import exceptions.XMLException;
+
+/**
+ * Checks many time series files against one formula without user interface.
+ *
+ * <p>Files are checked in parallel by a fixed number of worker threads. Each file is read line by line
+ * and its points are passed to a {@link Monitor} (reading stops as soon as the verdict is decided),
+ * i.e. no time series is kept in memory. Files are submitted to a bounded queue -- when it is full,
+ * the submitting thread checks the file itself -- and results are written to a {@link BatchReport}
+ * as they come, so that memory does not depend on the number of files.</p>
+ *
+ * @author Tomáš Vejpustek
+ *
+ */
+public class BatchChecker {
+	/** Number of files waiting in queue per worker thread */
+	private static final int QUEUE_PER_THREAD = 4;
+	private static final String DEFAULT_PATTERN = "*.csv";
+
+	private final Model model;
+	private final TimeSeriesSource format;
+	private final String separator;
+	private final int [] fields;
+	private final BatchReport report;
+	private final ThreadPoolExecutor executor;
+
+	private int satisfied = 0, violated = 0, failed = 0;
+	private IOException reportError = null;
+
+	/**
+	 * Creates checker which reads time series the same way as the time series of formula.
+	 * @param model Model of the checked formula. Must not be changed while checking.
+	 * @param format Description of field loader of time series (see {@link AbstractTSLoader#getFieldLoader(BufferedReader, TimeSeriesSource)}),
+	 * <code>null</code> for CSV files.
+	 * @param report Destination of results.
+	 * @param threads Number of worker threads.
+	 */
+	public BatchChecker(Model model, TimeSeriesSource format, BatchReport report, int threads) {
+		this(model, format, null, null, report, threads);
+	}
+
+	/**
+	 * Creates checker which reads time series with given fields.
+	 * @param model Model of the checked formula. Must not be changed while checking.
+	 * @param separator Field separator.
+	 * @param fields Indices of time, concentration and derivative fields.
+	 * @param report Destination of results.
+	 * @param threads Number of worker threads.
+	 */
+	public BatchChecker(Model model, String separator, int [] fields, BatchReport report, int threads) {
+		this(model, null, separator, fields, report, threads);
+	}
+
+	private BatchChecker(Model model, TimeSeriesSource format, String separator, int [] fields, BatchReport report, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads has to be positive.");
+		}
+		this.model = model;
+		this.format = format;
+		this.separator = separator;
+		this.fields = fields;
+		this.report = report;
+		executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(QUEUE_PER_THREAD*threads), new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * Starts the report. Has to be called before files are checked.
+	 * @throws IOException when the report could not be written.
+	 */
+	public void begin() throws IOException {
+		report.begin();
+	}
+
+	/**
+	 * Checks a time series file. Returns when the file is queued (or checked, when the queue is full).
+	 */
+	public void check(final File file) {
+		final Monitor monitor = new Monitor(model); //created here, so that model is read by one thread only
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				write(evaluate(file, monitor));
+			}
+		});
+	}
+
+	/**
+	 * Checks time series files in a directory (not recursively).
+	 * @param dir Directory containing time series files.
+	 * @param pattern Glob pattern of checked file names (e.g. <code>*.csv</code>).
+	 * @throws IOException when the directory could not be read.
+	 */
+	public void checkDirectory(File dir, String pattern) throws IOException {
+		DirectoryStream<Path> files = Files.newDirectoryStream(dir.toPath(), pattern);
+		try {
+			for (Path file : files) {
+				if (Files.isRegularFile(file)) {
+					check(file.toFile());
+				}
+			}
+		} finally {
+			files.close();
+		}
+	}
+
+	/**
+	 * Checks time series files listed in an input (one file name per line, empty lines are skipped).
+	 * @throws IOException when the list could not be read.
+	 */
+	public void checkList(BufferedReader list) throws IOException {
+		String line;
+		while (null != (line = list.readLine())) {
+			line = line.trim();
+			if (!line.isEmpty()) {
+				check(new File(line));
+			}
+		}
+	}
+
+	/**
+	 * Waits until all files are checked and ends the report.
+	 * @throws IOException when the report could not be written.
+	 * @throws InterruptedException when interrupted while waiting.
+	 */
+	public void end() throws IOException, InterruptedException {
+		executor.shutdown();
+		while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+			//waiting for remaining files
+		}
+		synchronized (report) {
+			if (reportError != null) {
+				throw reportError;
+			}
+			report.end();
+		}
+	}
+
+	/**
+	 * Reads time series file into a monitor.
+	 */
+	private BatchResult evaluate(File file, Monitor monitor) {
+		BufferedReader in = null;
+		try {
+			in = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+			TimeSeriesLoader loader = getLoader(in);
+			TimeSeriesPoint point;
+			while (!monitor.isDecided() && null != (point = loader.readPoint())) {
+				monitor.step(point.getTime(), point.getConcentration(), point.getDerivative());
+			}
+			return new BatchResult(file, monitor.finish(), monitor.getPosition());
+		} catch (FileNotFoundException fnfe) {
+			return new BatchResult(file, MessageFormat.format(getMessages().getString("err_fnf_in"), file));
+		} catch (TSLoaderException tsle) {
+			return new BatchResult(file, tsle.getLocalizedMessage().replace('\n', ' '));
+		} catch (RuntimeException re) {
+			//loaders signal some malformed input by unchecked exceptions, other files are checked nevertheless
+			return new BatchResult(file, MessageFormat.format(getMessages().getString("err_series"), file, re));
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException ioe) {
+					//file was only read
+				}
+			}
+		}
+	}
+
+	private TimeSeriesLoader getLoader(BufferedReader in) throws TSLoaderException {
+		if (fields != null) {
+			return new FieldTSLoader(in, separator, fields[0], fields[1], fields[2]);
+		} else if (format != null) {
+			return AbstractTSLoader.getFieldLoader(in, format);
+		} else {
+			return new CsvTSLoader(in);
+		}
+	}
+
+	private void write(BatchResult result) {
+		synchronized (report) {
+			if (result.isFailed()) {
+				failed++;
+			} else if (result.isSatisfied()) {
+				satisfied++;
+			} else {
+				violated++;
+			}
+			if (reportError == null) {
+				try {
+					report.write(result);
+				} catch (IOException ioe) {
+					reportError = ioe;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return Number of time series which satisfy the formula.
+	 */
+	public int getSatisfied() {
+		synchronized (report) {
+			return satisfied;
+		}
+	}
+
+	/**
+	 * @return Number of time series which do not satisfy the formula.
+	 */
+	public int getViolated() {
+		synchronized (report) {
+			return violated;
+		}
+	}
+
+	/**
+	 * @return Number of time series which could not be read.
+	 */
+	public int getFailed() {
+		synchronized (report) {
+			return failed;
+		}
+	}
+
+	private static ResourceBundle getMessages() {
+		return ResourceBundle.getBundle("batch.messages");
+	}
+
+	/**
+	 * Checks time series files against a formula, see <code>usage</code> in <code>batch/messages.properties</code>.
+	 */
+	public static void main(String [] args) {
+		ResourceBundle messages = getMessages();
+		String list = null;
+		String pattern = DEFAULT_PATTERN;
+		String output = null;
+		String formatName = CsvBatchReport.NAME;
+		int threads = Runtime.getRuntime().availableProcessors();
+		String separator = null;
+		int [] fields = null;
+
+		int index = 0;
+		try {
+			for (; index < args.length && args[index].startsWith("-") && args[index].length() > 1; index++) {
+				String option = args[index];
+				if (index + 1 >= args.length) {
+					throw new IllegalArgumentException(option);
+				}
+				String value = args[++index];
+				if (option.equals("-list")) {
+					list = value;
+				} else if (option.equals("-pattern")) {
+					pattern = value;
+				} else if (option.equals("-output")) {
+					output = value;
+				} else if (option.equals("-format")) {
+					formatName = value;
+				} else if (option.equals("-threads")) {
+					threads = Integer.parseInt(value);
+					if (threads < 1) {
+						throw new IllegalArgumentException(value);
+					}
+				} else if (option.equals("-separator")) {
+					if (value.isEmpty()) {
+						throw new IllegalArgumentException(value);
+					}
+					separator = value;
+				} else if (option.equals("-columns")) {
+					String [] columns = value.split(",");
+					if (columns.length != 3) {
+						throw new IllegalArgumentException(value);
+					}
+					fields = new int [3];
+					for (int i = 0; i < 3; i++) {
+						fields[i] = Integer.parseInt(columns[i].trim());
+						if (fields[i] < 0) {
+							throw new IllegalArgumentException(value);
+						}
+					}
+				} else {
+					index--; //unknown option is reported instead of its value
+					throw new IllegalArgumentException(option);
+				}
+			}
+		} catch (IllegalArgumentException iae) { //including NumberFormatException
+			System.err.println(MessageFormat.format(messages.getString("err_args"), args[index]));
+			System.err.println(messages.getString("usage"));
+			System.exit(2);
+		}
+		if (index >= args.length || (index + 1 >= args.length && list == null)) {
+			System.err.println(messages.getString("usage"));
+			System.exit(2);
+		}
+
+		File formulaFile = new File(args[index++]);
+		Formula formula = new Formula(formulaFile);
+		try {
+			formula.load();
+		} catch (FileNotFoundException fnfe) {
+			System.err.println(MessageFormat.format(messages.getString("err_fnf_in"), formulaFile));
+			System.exit(2);
+		} catch (XMLException xmle) {
+			System.err.println(MessageFormat.format(messages.getString("err_formula"), formulaFile, xmle.getLocalizedMessage()));
+			System.exit(2);
+		}
+
+		Writer out;
+		if (output == null) {
+			out = new BufferedWriter(new OutputStreamWriter(System.out));
+		} else {
+			try {
+				out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output)));
+			} catch (FileNotFoundException fnfe) {
+				System.err.println(MessageFormat.format(messages.getString("err_fnf_out"), output));
+				System.exit(2);
+				return;
+			}
+		}
+		BatchReport report = BatchReport.get(formatName, out);
+		if (report == null) {
+			System.err.println(MessageFormat.format(messages.getString("err_args"), formatName));
+			System.err.println(messages.getString("usage"));
+			System.exit(2);
+		}
+
+		BatchChecker checker;
+		if (separator != null || fields != null) {
+			checker = new BatchChecker(formula.getModel(), (separator == null ? "," : separator),
+					(fields == null ? new int [] {0, 1, 2} : fields), report, threads);
+		} else {
+			checker = new BatchChecker(formula.getModel(), formula.getTimeSeriesSource(), report, threads);
+		}
+
+		boolean inputFailed = false;
+		try {
+			checker.begin();
+			if (list != null) {
+				try {
+					BufferedReader in = list.equals("-") ? new BufferedReader(new InputStreamReader(System.in))
+							: new BufferedReader(new InputStreamReader(new FileInputStream(list)));
+					try {
+						checker.checkList(in);
+					} finally {
+						in.close();
+					}
+				} catch (IOException ioe) {
+					System.err.println(MessageFormat.format(messages.getString("err_io_in"), list));
+					inputFailed = true;
+				}
+			}
+			for (; index < args.length; index++) {
+				File input = new File(args[index]);
+				if (input.isDirectory()) {
+					try {
+						checker.checkDirectory(input, pattern);
+					} catch (IOException ioe) {
+						System.err.println(MessageFormat.format(messages.getString("err_io_in"), input));
+						inputFailed = true;
+					}
+				} else {
+					checker.check(input);
+				}
+			}
+			checker.end();
+			if (output != null) {
+				out.close();
+			}
+		} catch (IOException ioe) {
+			System.err.println(messages.getString("err_io_out"));
+			System.exit(2);
+		} catch (InterruptedException ie) {
+			System.exit(2);
+		}
+
+		int satisfied = checker.getSatisfied();
+		int violated = checker.getViolated();
+		int failed = checker.getFailed();
+		System.err.println(MessageFormat.format(messages.getString("summary"), satisfied + violated + failed, satisfied, violated, failed));
+		System.exit((violated + failed > 0 || inputFailed) ? 1 : 0);
+	}
+}
@@ -0,0 +1,74 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package batch;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes results of {@link BatchChecker} as they come, i.e. results need not be kept in memory.
+ *
+ * Results are written in the order in which checking of time series finished.
+ *
+ * @author Tomáš Vejpustek
+ *
+ */
+public abstract class BatchReport {
+	private final Writer output;
+
+	/**
+	 * @param output Destination of the report.
+	 */
+	protected BatchReport(Writer output) {
+		this.output = output;
+	}
+
+	/**
+	 * @param format Name of report format (see <code>NAME</code> constants of implementations).
+	 * @param output Destination of the report.
+	 * @return Report in given format or <code>null</code> when there is no such format.
+	 */
+	public static BatchReport get(String format, Writer output) {
+		if (format.equals(CsvBatchReport.NAME)) {
+			return new CsvBatchReport(output);
+		} else if (format.equals(JsonBatchReport.NAME)) {
+			return new JsonBatchReport(output);
+		}
+		return null;
+	}
+
+	/**
+	 * @return Destination of the report.
+	 */
+	protected Writer getOutput() {
+		return output;
+	}
+
+	/**
+	 * Writes beginning of the report (e.g. header).
+	 */
+	public abstract void begin() throws IOException;
+
+	/**
+	 * Writes result of one time series.
+	 */
+	public abstract void write(BatchResult result) throws IOException;
+
+	/**
+	 * Writes end of the report and flushes it. Does not close the output.
+	 */
+	public abstract void end() throws IOException;
+
+	/**
+	 * @return Verdict of a result -- <code>satisfied</code>, <code>violated</code> or <code>failed</code>.
+	 */
+	protected static String getVerdict(BatchResult result) {
+		if (result.isFailed()) {
+			return "failed";
+		} else if (result.isSatisfied()) {
+			return "satisfied";
+		} else {
+			return "violated";
+		}
+	}
+}
@@ -0,0 +1,87 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package batch;
+
+import java.io.File;
+
+import ltl.Evaluation;
+
+/**
+ * Result of checking one time series file -- either an {@link Evaluation} or an error message.
+ *
+ * @author Tomáš Vejpustek
+ *
+ */
+public class BatchResult {
+	private final File file;
+	private final Evaluation evaluation;
+	private final int points;
+	private final String error;
+
+	/**
+	 * Creates result of a successfully read time series.
+	 * @param file Time series file.
+	 * @param evaluation Evaluation of the formula.
+	 * @param points Number of points read before the verdict was decided.
+	 */
+	public BatchResult(File file, Evaluation evaluation, int points) {
+		this.file = file;
+		this.evaluation = evaluation;
+		this.points = points;
+		error = null;
+	}
+
+	/**
+	 * Creates result of a time series which could not be read.
+	 * @param file Time series file.
+	 * @param error Description of the error.
+	 */
+	public BatchResult(File file, String error) {
+		this.file = file;
+		evaluation = null;
+		points = 0;
+		this.error = error;
+	}
+
+	/**
+	 * @return Checked time series file.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return <code>true</code> when the time series could not be read, <code>false</code> otherwise.
+	 */
+	public boolean isFailed() {
+		return (evaluation == null);
+	}
+
+	/**
+	 * @return <code>true</code> when the time series satisfies the formula, <code>false</code> otherwise (including failure).
+	 */
+	public boolean isSatisfied() {
+		return !isFailed() && evaluation.isSatisfied();
+	}
+
+	/**
+	 * @return Evaluation of the formula or <code>null</code> when the time series could not be read.
+	 */
+	public Evaluation getEvaluation() {
+		return evaluation;
+	}
+
+	/**
+	 * @return Number of read points (reading stops when the verdict is decided).
+	 */
+	public int getPoints() {
+		return points;
+	}
+
+	/**
+	 * @return Description of error or <code>null</code> when there was none.
+	 */
+	public String getError() {
+		return error;
+	}
+}
@@ -0,0 +1,69 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package batch;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import ltl.Evaluation;
+
+/**
+ * Report with one line per time series: file, verdict, number of read points, witnesses of events
+ * (separated by spaces, <code>-1</code> for events which did not occur) and error message.
+ *
+ * @author Tomáš Vejpustek
+ *
+ */
+public class CsvBatchReport extends BatchReport {
+	/** Name of the format */
+	public static final String NAME = "csv";
+
+	/**
+	 * @param output Destination of the report.
+	 */
+	public CsvBatchReport(Writer output) {
+		super(output);
+	}
+
+	@Override
+	public void begin() throws IOException {
+		getOutput().write("file,result,points,witnesses,error\n");
+	}
+
+	@Override
+	public void write(BatchResult result) throws IOException {
+		StringBuilder line = new StringBuilder();
+		line.append(quote(result.getFile().getPath())).append(',');
+		line.append(getVerdict(result)).append(',');
+		Evaluation eval = result.getEvaluation();
+		if (eval != null) {
+			line.append(result.getPoints()).append(',');
+			for (int i = 0; i < eval.getEventCount(); i++) {
+				if (i > 0) {
+					line.append(' ');
+				}
+				line.append(eval.getWitness(i));
+			}
+			line.append(',');
+		} else {
+			line.append(",,").append(quote(result.getError()));
+		}
+		line.append('\n');
+		getOutput().write(line.toString());
+	}
+
+	@Override
+	public void end() throws IOException {
+		getOutput().flush();
+	}
+
+	/**
+	 * @return Field quoted when it contains separator, quotes or line breaks.
+	 */
+	private static String quote(String field) {
+		if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+			return field;
+		}
+		return '"' + field.replace("\"", "\"\"") + '"';
+	}
+}
@@ -0,0 +1,131 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package batch;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+
+import ltl.Dialect;
+import ltl.FormulaBuilder;
+import ltl.FormulaFactory;
+import ltl.FormulaSimplifier;
+import ltl.LTLFormula;
+import ltl.PlainDialect;
+import xml.Formula;
+import exceptions.XMLException;
+
+/**
+ * Exports formulae into LTL files in a {@link Dialect} without graphical interface.
+ *
+ * @author Tomáš Vejpustek
+ *
+ */
+public class FormulaExporter {
+
+	/**
+	 * @return Names of available dialects separated by commas.
+	 */
+	private static String getDialectNames() {
+		StringBuilder names = new StringBuilder();
+		for (Dialect dialect : Dialect.getDialects()) {
+			if (names.length() > 0) {
+				names.append(", ");
+			}
+			names.append(dialect.getName());
+		}
+		return names.toString();
+	}
+
+	/**
+	 * Exports a formula, see <code>export_usage</code> in <code>batch/messages.properties</code>.
+	 */
+	public static void main(String [] args) {
+		ResourceBundle messages = ResourceBundle.getBundle("batch.messages");
+		Dialect dialect = Dialect.get(PlainDialect.NAME);
+		String output = null;
+		boolean raw = false;
+
+		int index = 0;
+		try {
+			for (; index < args.length && args[index].startsWith("-") && args[index].length() > 1; index++) {
+				String option = args[index];
+				if (option.equals("-raw")) {
+					raw = true;
+					continue;
+				}
+				if (index + 1 >= args.length) {
+					throw new IllegalArgumentException(option);
+				}
+				String value = args[++index];
+				if (option.equals("-dialect")) {
+					dialect = Dialect.get(value);
+					if (dialect == null) {
+						throw new IllegalArgumentException(value);
+					}
+				} else if (option.equals("-output")) {
+					output = value;
+				} else {
+					index--; //unknown option is reported instead of its value
+					throw new IllegalArgumentException(option);
+				}
+			}
+		} catch (IllegalArgumentException iae) {
+			System.err.println(MessageFormat.format(messages.getString("err_args"), args[index]));
+			System.err.println(MessageFormat.format(messages.getString("export_usage"), getDialectNames()));
+			System.exit(2);
+		}
+		if (index + 1 != args.length) {
+			System.err.println(MessageFormat.format(messages.getString("export_usage"), getDialectNames()));
+			System.exit(2);
+		}
+
+		File formulaFile = new File(args[index]);
+		Formula formula = new Formula(formulaFile);
+		try {
+			formula.load();
+		} catch (FileNotFoundException fnfe) {
+			System.err.println(MessageFormat.format(messages.getString("err_fnf_in"), formulaFile));
+			System.exit(2);
+		} catch (XMLException xmle) {
+			System.err.println(MessageFormat.format(messages.getString("err_formula"), formulaFile, xmle.getLocalizedMessage()));
+			System.exit(2);
+		}
+
+		LTLFormula ltl;
+		if (raw) {
+			ltl = formula.getModel().toFormula(new FormulaFactory());
+		} else {
+			ltl = FormulaSimplifier.simplifyFormula(formula.getModel());
+		}
+
+		Writer out;
+		if (output == null) {
+			out = new BufferedWriter(new OutputStreamWriter(System.out));
+		} else {
+			try {
+				out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output)));
+			} catch (FileNotFoundException fnfe) {
+				System.err.println(MessageFormat.format(messages.getString("err_fnf_out"), output));
+				System.exit(2);
+				return;
+			}
+		}
+		try {
+			new FormulaBuilder(dialect, !raw).export(ltl, out);
+			out.close();
+		} catch (IOException ioe) {
+			System.err.println(MessageFormat.format(messages.getString("err_io_export"), (output == null ? "-" : output)));
+			System.exit(1);
+		} catch (IllegalArgumentException iae) {
+			System.err.println(MessageFormat.format(messages.getString("err_value_export"), iae.getMessage()));
+			System.exit(1);
+		}
+	}
+}
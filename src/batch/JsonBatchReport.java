@@ -0,0 +1,92 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package batch;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import ltl.Evaluation;
+
+/**
+ * Report as a JSON array with one object per time series, e.g.
+ * <code>{"file": "run1.csv", "result": "satisfied", "points": 120, "witnesses": [3, 57]}</code>
+ * (failed time series have <code>"error"</code> instead of points and witnesses).
+ *
+ * @author Tomáš Vejpustek
+ *
+ */
+public class JsonBatchReport extends BatchReport {
+	/** Name of the format */
+	public static final String NAME = "json";
+
+	private boolean first = true;
+
+	/**
+	 * @param output Destination of the report.
+	 */
+	public JsonBatchReport(Writer output) {
+		super(output);
+	}
+
+	@Override
+	public void begin() throws IOException {
+		getOutput().write('[');
+	}
+
+	@Override
+	public void write(BatchResult result) throws IOException {
+		StringBuilder item = new StringBuilder();
+		item.append(first ? "\n" : ",\n");
+		first = false;
+		item.append("{\"file\": ").append(quote(result.getFile().getPath()));
+		item.append(", \"result\": \"").append(getVerdict(result)).append('"');
+		Evaluation eval = result.getEvaluation();
+		if (eval != null) {
+			item.append(", \"points\": ").append(result.getPoints());
+			item.append(", \"witnesses\": [");
+			for (int i = 0; i < eval.getEventCount(); i++) {
+				if (i > 0) {
+					item.append(", ");
+				}
+				item.append(eval.getWitness(i));
+			}
+			item.append(']');
+		} else {
+			item.append(", \"error\": ").append(quote(result.getError()));
+		}
+		item.append('}');
+		getOutput().write(item.toString());
+	}
+
+	@Override
+	public void end() throws IOException {
+		getOutput().write("\n]\n");
+		getOutput().flush();
+	}
+
+	/**
+	 * @return JSON string literal.
+	 */
+	private static String quote(String value) {
+		StringBuilder out = new StringBuilder(value.length() + 2);
+		out.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"': out.append("\\\""); break;
+			case '\\': out.append("\\\\"); break;
+			case '\n': out.append("\\n"); break;
+			case '\r': out.append("\\r"); break;
+			case '\t': out.append("\\t"); break;
+			default:
+				if (c < 0x20) {
+					out.append(String.format("\\u%04x", (int) c));
+				} else {
+					out.append(c);
+				}
+			}
+		}
+		out.append('"');
+		return out.toString();
+	}
+}
@@ -0,0 +1,7 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.  
+/**
+ * Headless checking of a formula against many time series files, with results written into a report,
+ * and headless export of formulae into model checker dialects.
+ */
+package batch;
@@ -5,8 +5,6 @@ package coordinates;
 import java.awt.geom.Point2D;
 
 import series.TimeSeries;
-import series.TimeSeriesIterator;
-import series.TimeSeriesPoint;
 
 /**
  * Transforms coordinates of a {@link ui.WorkSpace} to time series coordinates and vice versa.
@@ -20,6 +18,7 @@ public class Transformation {
 	private static double PADDING = 50;
 	private Scale timeScale, concScale;
 	private double height, width;
+	private int version = 0; //changed with each change of scales or size
 	
 	
 	/**
@@ -59,6 +58,7 @@ public class Transformation {
 		concScale.resize(0, 0, height, newHeight);
 		width = newWidth;
 		height = newHeight;
+		version++;
 	}
 	
 	/**
@@ -67,27 +67,30 @@ public class Transformation {
 	 */
 	public void setLinearTransformation(TimeSeries series) {
 		Scale timeScale = new LinearScale(width, series.getLength());
-		
-		double max = 0;
-		TimeSeriesIterator iter = series.iterator();
-		
-		while (iter.hasNext()) {
-			TimeSeriesPoint point = iter.next();
-			if (point.getConcentration() > max) {
-				max = point.getConcentration();
-			}
-		}
-		Scale concScale = new LinearScale(height-PADDING, max);
+		Scale concScale = new LinearScale(height-PADDING, series.getMaxConcentration());
 		setTimeScale(timeScale);
 		setConcentrationScale(concScale);
 	}
 	
+	/**
+	 * Used while a time series is being loaded when new points are appended to it. Time scale is fitted to its
+	 * current length, concentration scale is changed only when the maximum concentration does not fit any more.
+	 * @param series Time series being loaded (already displayed via {@link #setLinearTransformation(TimeSeries)}).
+	 */
+	public void extendLinearTransformation(TimeSeries series) {
+		setTimeScale(new LinearScale(width, series.getLength()));
+		if (series.getMaxConcentration() > getConcentration(PADDING)) {
+			setConcentrationScale(new LinearScale(height-PADDING, series.getMaxConcentration()));
+		}
+	}
+	
 	/**
 	 * Used when time series is cleared to set transformation accordingly.
 	 */
 	public void setIdentity() {
 		timeScale = new LinearScale();
 		concScale = new LinearScale();
+		version++;
 	}
 
 	/**
@@ -152,6 +155,7 @@ public class Transformation {
 	 */
 	public void setTimeScale(Scale timeScale) {
 		this.timeScale = timeScale;
+		version++;
 	}
 
 	/**
@@ -160,6 +164,16 @@ public class Transformation {
 	 */
 	public void setConcentrationScale(Scale concScale) {
 		this.concScale = concScale;
+		version++;
+	}
+	
+	/**
+	 * Version is changed each time the transformation is changed (resized or scales replaced).
+	 * Used to find out whether a rendering is up to date.
+	 * @return Current version of this transformation.
+	 */
+	public int getVersion() {
+		return version;
 	}
 	
 	/**
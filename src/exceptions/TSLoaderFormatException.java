@@ -36,7 +36,7 @@ public class TSLoaderFormatException extends TSLoaderException {
 	public String getLocalizedMessage() {
 		StringBuilder out = new StringBuilder(super.getLocalizedMessage());
 		out.append('\n');
-		out.append(MessageFormat.format(getBundle().getString("tsl_line"), lineNum, lineString));
+		out.append(MessageFormat.format(getBundle().getString("line"), lineNum, lineString));
 		return out.toString();
 	}
 
@@ -0,0 +1,126 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ltl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Stores values of bounds of a {@link Property} in primitive fields, i.e. reading them allocates nothing.
+ *
+ * Each bound is in one of three states: absent, unbound (i.e. explicitly unbound, but present) and bound
+ * with a value. States are stored as bit flags.
+ *
+ * @author Tomáš Vejpustek
+ */
+abstract class AbstractProperty implements Property {
+	//flags of bound states
+	private static final int UPPER_PRESENT = 1;
+	private static final int UPPER_BOUND = 2;
+	private static final int LOWER_PRESENT = 4;
+	private static final int LOWER_BOUND = 8;
+
+	private double upper, lower;
+	private int flags = 0;
+
+	/**
+	 * @return <code>true</code> when <code>bound</code> has a value, <code>false</code> otherwise.
+	 */
+	protected final boolean isBound(Bound bound) {
+		return (flags & boundFlag(bound)) != 0;
+	}
+
+	/**
+	 * @return Value of <code>bound</code>. Undefined when it has no value (see {@link #isBound(ltl.Property.Bound)}).
+	 */
+	protected final double getValue(Bound bound) {
+		return (bound == Bound.UPPER) ? upper : lower;
+	}
+
+	/**
+	 * Sets value of <code>bound</code>.
+	 */
+	protected final void putValue(Bound bound, double value) {
+		if (bound == Bound.UPPER) {
+			upper = value;
+		} else {
+			lower = value;
+		}
+		flags |= presentFlag(bound) | boundFlag(bound);
+	}
+
+	/**
+	 * Makes <code>bound</code> present without value.
+	 */
+	protected final void putUnbound(Bound bound) {
+		flags = (flags | presentFlag(bound)) & ~boundFlag(bound);
+	}
+
+	/**
+	 * @return <code>true</code> when no bound is present, <code>false</code> otherwise.
+	 */
+	protected final boolean isEmpty() {
+		return flags == 0;
+	}
+
+	/**
+	 * Makes both bounds absent.
+	 */
+	protected final void clearValues() {
+		flags = 0;
+	}
+
+	/**
+	 * Sets bounds to the same state as bounds of <code>source</code>.
+	 */
+	protected final void copyValues(AbstractProperty source) {
+		upper = source.upper;
+		lower = source.lower;
+		flags = source.flags;
+	}
+
+	/**
+	 * Writes this property into a journal (see {@link ModelJournal}).
+	 */
+	void write(DataOutput out) throws IOException {
+		for (Bound b : Bound.values()) {
+			if ((flags & presentFlag(b)) == 0) {
+				out.writeByte(ModelJournal.ABSENT);
+			} else if (!isBound(b)) {
+				out.writeByte(ModelJournal.UNBOUND);
+			} else {
+				out.writeByte(ModelJournal.BOUND);
+				out.writeDouble(getValue(b));
+			}
+		}
+	}
+
+	/**
+	 * Reads state of this property written by {@link #write(DataOutput)}.
+	 */
+	void read(DataInput in) throws IOException {
+		clearValues();
+		for (Bound b : Bound.values()) {
+			byte state = in.readByte();
+			if (state == ModelJournal.UNBOUND) {
+				putUnbound(b);
+			} else if (state == ModelJournal.BOUND) {
+				putValue(b, in.readDouble());
+			} else if (state != ModelJournal.ABSENT) {
+				throw new IllegalArgumentException("Unknown state of bound.");
+			}
+		}
+	}
+
+	@Override
+	public abstract Property clone();
+
+	private static int presentFlag(Bound bound) {
+		return (bound == Bound.UPPER) ? UPPER_PRESENT : LOWER_PRESENT;
+	}
+
+	private static int boundFlag(Bound bound) {
+		return (bound == Bound.UPPER) ? UPPER_BOUND : LOWER_BOUND;
+	}
+}
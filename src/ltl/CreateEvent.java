@@ -49,4 +49,13 @@ public class CreateEvent implements ModelChange {
 		target.insertEvent(this.target, info.getIndex(), info.getLeft(), info.getRight());
 	}
 
+	@Override
+	public ModelChange merge(ModelChange following) {
+		return null;
+	}
+
+	@Override
+	public int getSize() {
+		return 4; //event and transitions of its location
+	}
 }
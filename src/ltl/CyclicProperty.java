@@ -2,11 +2,9 @@
 //Full copyright notice found in src/LICENSE.  
 package ltl;
 
-import java.util.HashMap;
-import java.util.Map;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -24,14 +22,13 @@ import exceptions.XMLException;
  * @author Tomáš Vejpustek
  *
  */
-public abstract class CyclicProperty implements Property {
-	private Map<Bound, Double> values = new HashMap<Bound, Double>(); //note when LOWER bound is not set, it is point, otherwise, it is unset
-	
+public abstract class CyclicProperty extends AbstractProperty {
+	//note when LOWER bound is present but not bound, it is point; when no bound is present, it is unset
 
 	@Override
 	public double getBound(Bound bound) {
 		if (hasBound(bound)) {
-			return values.get(bound);
+			return getValue(bound);
 		} else {
 			return Double.NaN;
 		}
@@ -39,7 +36,7 @@ public abstract class CyclicProperty implements Property {
 
 	@Override
 	public boolean hasBound(Bound bound) {
-		return (values.get(bound) != null);
+		return isBound(bound);
 	}
 
 	@Override
@@ -54,19 +51,19 @@ public abstract class CyclicProperty implements Property {
 
 	@Override
 	public boolean isSet() {
-		return !values.isEmpty();
+		return !isEmpty();
 	}
 
 	@Override
 	public void makePoint() {
 		if (!hasBound(Bound.UPPER)) {
 			if (!hasBound(Bound.LOWER)) {
-				values.put(Bound.UPPER, getCenter());
+				putValue(Bound.UPPER, getCenter());
 			} else {
-				values.put(Bound.UPPER, values.get(Bound.LOWER));
+				putValue(Bound.UPPER, getValue(Bound.LOWER));
 			}
 		}
-		values.put(Bound.LOWER, null);
+		putUnbound(Bound.LOWER);
 	}
 
 	@Override
@@ -87,19 +84,19 @@ public abstract class CyclicProperty implements Property {
 
 	@Override
 	public void stretchBound(Bound bound, double value) {
-		values.put(bound, value);
+		putValue(bound, value);
 	}
 
 	@Override
 	public void unbind(Bound bound) {
-		values.put(bound, null);
+		putUnbound(bound);
 	}
 
 	@Override
 	public void unset() {
-		values.clear();
+		clearValues();
 	}
-
+	
 	@Override
 	public void loadFromXML(Node node) throws XMLException {
 		NodeList nodes = node.getChildNodes();
@@ -109,10 +106,10 @@ public abstract class CyclicProperty implements Property {
 			Node n = nodes.item(index);
 			String name = n.getNodeName();
 			if (name.equals("upper")) {
-				values.put(Bound.UPPER, Double.valueOf(n.getFirstChild().getNodeValue()));
+				putValue(Bound.UPPER, Double.valueOf(n.getFirstChild().getNodeValue()));
 				hasUpper = true;
 			} else if (name.equals("lower")) {
-				values.put(Bound.LOWER, Double.valueOf(n.getFirstChild().getNodeValue()));
+				putValue(Bound.LOWER, Double.valueOf(n.getFirstChild().getNodeValue()));
 				hasLower = true;
 			}
 		}
@@ -122,24 +119,19 @@ public abstract class CyclicProperty implements Property {
 	}
 
 	@Override
-	public Node toXML(Document document) {
-		return toXML(document, "cyclic_property");
-	}
-
-	@Override
-	public Node toXML(Document document, String name) {
-		Element property = document.createElement(name);
+	public void toXML(XMLStreamWriter out, String name) throws XMLStreamException {
+		out.writeStartElement(name);
 		if (hasBound(Bound.UPPER)) {
-			Element up = document.createElement("upper");
-			up.appendChild(document.createTextNode(Double.toString(values.get(Bound.UPPER))));
-			property.appendChild(up);
+			out.writeStartElement("upper");
+			out.writeCharacters(Double.toString(getValue(Bound.UPPER)));
+			out.writeEndElement();
 		}
 		if (hasBound(Bound.LOWER)) {
-			Element low = document.createElement("lower");
-			low.appendChild(document.createTextNode(Double.toString(values.get(Bound.LOWER))));
-			property.appendChild(low);
+			out.writeStartElement("lower");
+			out.writeCharacters(Double.toString(getValue(Bound.LOWER)));
+			out.writeEndElement();
 		}
-		return property;
+		out.writeEndElement();
 	}
 	
 	@Override
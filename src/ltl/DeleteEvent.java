@@ -52,5 +52,13 @@ public class DeleteEvent implements ModelChange {
 		target.removeEvent(info.getIndex(), info.getJoined());
 	}
 
+	@Override
+	public ModelChange merge(ModelChange following) {
+		return null;
+	}
 
+	@Override
+	public int getSize() {
+		return 4; //event and transitions of its location
+	}
 }
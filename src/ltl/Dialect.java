@@ -0,0 +1,144 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ltl;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import ltl.LTLFormula.Operator;
+import ltl.LTLFormula.Relation;
+import ltl.LTLFormula.Variable;
+
+/**
+ * Syntax of LTL formulae accepted by a model checker, used by {@link FormulaBuilder}.
+ *
+ * Besides built-in dialects ({@link PlainDialect}, {@link SpinDialect} and {@link NuSMVDialect}), further dialects
+ * are loaded by {@link ServiceLoader}, i.e. they are listed in <code>META-INF/services/ltl.Dialect</code>
+ * and have a public constructor without arguments.
+ *
+ * @author Tomáš Vejpustek
+ */
+public abstract class Dialect {
+	private static List<Dialect> dialects;
+
+	/**
+	 * @return Built-in dialects followed by dialects provided by services.
+	 */
+	public static synchronized List<Dialect> getDialects() {
+		if (dialects == null) {
+			List<Dialect> result = new ArrayList<Dialect>();
+			result.add(new PlainDialect());
+			result.add(new SpinDialect());
+			result.add(new NuSMVDialect());
+			for (Dialect dialect : ServiceLoader.load(Dialect.class)) {
+				result.add(dialect);
+			}
+			dialects = Collections.unmodifiableList(result);
+		}
+		return dialects;
+	}
+
+	/**
+	 * @param name Name of dialect (see {@link #getName()}).
+	 * @return Dialect with given name or <code>null</code> when there is no such dialect.
+	 */
+	public static Dialect get(String name) {
+		for (Dialect dialect : getDialects()) {
+			if (dialect.getName().equals(name)) {
+				return dialect;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return Short name used to select the dialect (e.g. on command line).
+	 */
+	public abstract String getName();
+
+	/**
+	 * @return Description of files with formulae in this dialect.
+	 */
+	public abstract String getDescription();
+
+	/**
+	 * @return Extension (without dot) of files with formulae in this dialect.
+	 */
+	public abstract String getExtension();
+
+	/**
+	 * @return Text of operator -- or of constant formula in case of {@link Operator#TRUE}.
+	 */
+	public abstract String getOperator(Operator operator);
+
+	/**
+	 * @return Name of variable.
+	 */
+	public abstract String getVariable(Variable variable);
+
+	/**
+	 * @return Text of relation.
+	 */
+	public abstract String getRelation(Relation relation);
+
+	/**
+	 * @return Dialect in which <code>formula</code> is written -- this one by default. Dialects whose output depends
+	 * on the whole formula (e.g. on range of its values) return an instance prepared for it.
+	 * @throws IllegalArgumentException when <code>formula</code> cannot be written in this dialect.
+	 */
+	public Dialect forFormula(LTLFormula formula) {
+		return this;
+	}
+
+	/**
+	 * @param value Finite number.
+	 * @return Text of numeric constant -- decimal notation without exponent and trailing zeros by default
+	 * (e.g. <code>300</code>, <code>0.0001</code>).
+	 */
+	public String formatValue(double value) {
+		if (value == 0) {
+			return "0";
+		}
+		return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+	}
+
+	/**
+	 * Writes atomic proposition, i.e. variable, relation and value (see {@link #formatValue(double)}).
+	 * @throws IllegalArgumentException when value of the proposition is infinite or not a number.
+	 */
+	public void writeAtom(LTLFormula atom, Appendable out) throws IOException {
+		double value = atom.getValue();
+		checkValue(value);
+		out.append(getVariable(atom.getVariable())).append(getRelation(atom.getRelation())).append(formatValue(value));
+	}
+
+	/**
+	 * @throws IllegalArgumentException when <code>value</code> is infinite or not a number.
+	 */
+	protected void checkValue(double value) {
+		if (Double.isInfinite(value) || Double.isNaN(value)) {
+			throw new IllegalArgumentException("Value " + value + " cannot be written in " + getName() + " dialect.");
+		}
+	}
+
+	/**
+	 * Writes text preceding formula in a file (nothing by default).
+	 */
+	public void begin(Appendable out) throws IOException {
+	}
+
+	/**
+	 * Writes text following formula in a file (nothing by default).
+	 */
+	public void end(Appendable out) throws IOException {
+	}
+
+	@Override
+	public String toString() {
+		return getName();
+	}
+}
@@ -0,0 +1,59 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ltl;
+
+import java.util.Arrays;
+
+/**
+ * Result of evaluation of a {@link Model} on a time series (see {@link Monitor}).
+ *
+ * Besides the verdict, contains witnesses -- indices of time series points in which events of the model occur.
+ *
+ * @author Tomáš Vejpustek
+ *
+ */
+public class Evaluation {
+	private final boolean satisfied;
+	private final int [] witnesses;
+
+	/**
+	 * @param satisfied <code>true</code> when the model is satisfied, <code>false</code> otherwise.
+	 * @param witnesses Index of point in which each event occurs (<code>-1</code> when it does not).
+	 */
+	Evaluation(boolean satisfied, int [] witnesses) {
+		this.satisfied = satisfied;
+		this.witnesses = witnesses;
+	}
+
+	/**
+	 * @return <code>true</code> when the time series satisfies the model, <code>false</code> otherwise.
+	 */
+	public boolean isSatisfied() {
+		return satisfied;
+	}
+
+	/**
+	 * @return Number of events of evaluated model.
+	 */
+	public int getEventCount() {
+		return witnesses.length;
+	}
+
+	/**
+	 * Returns witness of an event. When the model is satisfied, each nonempty event has a witness.
+	 * Otherwise, witnesses of events matched before the evaluation failed are returned.
+	 * @param event Index of an event in the model.
+	 * @return Index of time series point in which the event occurs or <code>-1</code> when there is none
+	 * (e.g. the event is empty and therefore not part of the formula).
+	 */
+	public int getWitness(int event) {
+		return witnesses[event];
+	}
+
+	/**
+	 * @return Witnesses of all events (see {@link #getWitness(int)}).
+	 */
+	public int [] getWitnesses() {
+		return Arrays.copyOf(witnesses, witnesses.length);
+	}
+}
@@ -4,13 +4,15 @@ package ltl;
 
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import ltl.Property.Bound;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -76,6 +78,28 @@ public class Event implements Cloneable, XMLRepresentable, LTLRepresentable {
 	 * @return <code>true</code> if this event contains given point, <code>false</code> otherwise.
 	 */
 	public boolean contains(Point2D p, Transformation coord) {
+		return getArea(coord).contains(p);
+	}
+	
+	/**
+	 * Computes on-screen area covered by this event when rendered (see {@link Canvas#drawEvent(Event)}).
+	 * @param coord Coordinate transformation between on-screen and model coordinates.
+	 * @return Bounding rectangle of this event (including its derivative) in on-screen coordinates.
+	 */
+	public Rectangle2D getBounds(Transformation coord) {
+		Point2D center = new Point2D.Double(getTime().getCenter(), getConcentration().getCenter());
+		double refX = coord.getX(center.getX());
+		double refY = coord.getY(center.getY());
+		Rectangle2D out = getArea(coord);
+		out.add(new Rectangle2D.Double(refX - Canvas.INT_END, refY - Canvas.INT_END, 2*Canvas.INT_END, 2*Canvas.INT_END));
+		out.add(Canvas.getDerivativeBounds(getDerivative(), center, coord));
+		return out;
+	}
+	
+	/**
+	 * @return Area in which this event is selected in on-screen coordinates.
+	 */
+	Rectangle2D getArea(Transformation coord) {
 		double x1, y1, x2, y2; //bounding rectangle specification
 		
 		if (getTime().isPoint() || ! getTime().isSet()) {
@@ -112,7 +136,7 @@ public class Event implements Cloneable, XMLRepresentable, LTLRepresentable {
 			}
 		}
 		
-		return (new Rectangle2D.Double(x1, y1, x2-x1, y2-y1)).contains(p);
+		return new Rectangle2D.Double(x1, y1, x2-x1, y2-y1);
 	}
 	
 	/**
@@ -165,16 +189,39 @@ public class Event implements Cloneable, XMLRepresentable, LTLRepresentable {
 	}
 	
 	@Override
-	public Node toXML(Document document) {
-		return toXML(document, "event");
+	public void toXML(XMLStreamWriter out, String name) throws XMLStreamException {
+		out.writeStartElement(name);
+		writeXMLContents(out);
+		out.writeEndElement();
 	}
 	
-	@Override
-	public Node toXML(Document document, String name) {
-		Element event = document.createElement(name);
-		event.appendChild(getTime().toXML(document, "time"));
-		event.appendChild(getConcentration().toXML(document, "concentration"));
-		event.appendChild(getDerivative().toXML(document, "derivative"));
+	/**
+	 * Writes XML representations of properties of this event (i.e. contents of its element) into <code>out</code>.
+	 * Used to write attributes of the element first.
+	 */
+	void writeXMLContents(XMLStreamWriter out) throws XMLStreamException {
+		getTime().toXML(out, "time");
+		getConcentration().toXML(out, "concentration");
+		getDerivative().toXML(out, "derivative");
+	}
+	
+	/**
+	 * Writes this event into a journal (see {@link ModelJournal}).
+	 */
+	void write(DataOutput out) throws IOException {
+		((AbstractProperty)time).write(out);
+		((AbstractProperty)concentration).write(out);
+		((AbstractProperty)derivative).write(out);
+	}
+	
+	/**
+	 * Reads event written by {@link #write(DataOutput)}.
+	 */
+	static Event read(DataInput in) throws IOException {
+		Event event = new Event(1, 1);
+		((AbstractProperty)event.time).read(in);
+		((AbstractProperty)event.concentration).read(in);
+		((AbstractProperty)event.derivative).read(in);
 		return event;
 	}
 	
@@ -200,27 +247,34 @@ public class Event implements Cloneable, XMLRepresentable, LTLRepresentable {
 	}
 
 	@Override
-	public String toLTL(FormulaBuilder builder) {
-		Queue<String> properties = new LinkedList<String>();
+	public LTLFormula toFormula(FormulaFactory factory) {
+		LTLFormula formula = null;
 		if (getTime().isSet()) {
-			properties.add(builder.time(this));
+			formula = factory.time(this);
 		}
 		if (getConcentration().isSet()) {
-			properties.add(builder.concentration(this));
+			formula = and(factory, formula, factory.concentration(this));
 		}
 		if (getDerivative().isSet()) {
-			properties.add(builder.derivative(this));
+			formula = and(factory, formula, factory.derivative(this));
 		}
 		
-		if (properties.isEmpty()) {
-			return null;
+		if (formula == null) {
+			return LTLFormula.TRUE;
 		} else {
-			String formula = properties.remove();
-			while (!properties.isEmpty()) {
-				formula = builder.and(formula, properties.remove());
-			}
 			return formula;
 		}
 	}
 	
+	/**
+	 * @return Conjunction of formulae, <code>property</code> when <code>formula</code> is <code>null</code>.
+	 */
+	private static LTLFormula and(FormulaFactory factory, LTLFormula formula, LTLFormula property) {
+		if (formula == null) {
+			return property;
+		} else {
+			return factory.and(formula, property);
+		}
+	}
+	
 }
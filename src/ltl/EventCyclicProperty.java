@@ -2,6 +2,10 @@
 //Full copyright notice found in src/LICENSE.  
 package ltl;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Property which specifies a circle sector (derivative) relating to an Event. It has constant reference point. 
  * @author Tomáš Vejpustek
@@ -40,5 +44,17 @@ public class EventCyclicProperty extends CyclicProperty {
 	public double getCenter() {
 		return reference;
 	}
+	
+	@Override
+	void write(DataOutput out) throws IOException {
+		out.writeDouble(reference);
+		super.write(out);
+	}
+	
+	@Override
+	void read(DataInput in) throws IOException {
+		reference = in.readDouble();
+		super.read(in);
+	}
 
 }
@@ -0,0 +1,171 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ltl;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import coordinates.Transformation;
+
+/**
+ * Finds events of a {@link Model} whose on-screen area (see {@link Event#contains(Point2D, Transformation)}) may
+ * contain a point.
+ *
+ * Events are stored in an interval tree over horizontal extents of their areas, which is built for one
+ * {@link Transformation} and its version (i.e. it is rebuilt after the transformation changes). Events added or removed
+ * later are kept aside and the tree is rebuilt only when there are too many of them.
+ *
+ * @author Tomáš Vejpustek
+ */
+class EventIndex {
+	private static final int MIN_CHANGES = 16; //number of changes kept aside before the tree is rebuilt
+
+	private final List<Event> events; //all indexed events
+
+	//interval tree -- events sorted by left end, subtree [from, to) has its root in (from+to)/2
+	private Transformation coord = null;
+	private int coordVersion;
+	private Event [] tree = new Event [0];
+	private double [] lower = new double [0]; //left ends of intervals
+	private double [] upper = new double [0]; //right ends of intervals
+	private double [] maxUpper = new double [0]; //maximum right end in the subtree of given root
+
+	private List<Event> added = new ArrayList<Event>(); //events not in the tree
+	private Set<Event> removed = Collections.newSetFromMap(new IdentityHashMap<Event, Boolean>()); //events in the tree which are not indexed
+
+	/**
+	 * @param events Indexed events. Changes of the list are to be reported by {@link #add(Event)},
+	 * {@link #remove(Event)} and {@link #clear()}.
+	 */
+	EventIndex(List<Event> events) {
+		this.events = events;
+	}
+
+	/**
+	 * Adds an event which has been added into indexed events.
+	 */
+	void add(Event event) {
+		if (!removed.remove(event)) {
+			added.add(event);
+		}
+	}
+
+	/**
+	 * Removes an event which has been removed from indexed events.
+	 */
+	void remove(Event event) {
+		for (int i = 0; i < added.size(); i++) {
+			if (added.get(i) == event) {
+				added.remove(i);
+				return;
+			}
+		}
+		removed.add(event);
+	}
+
+	/**
+	 * Removes all events (after indexed events have been cleared).
+	 */
+	void clear() {
+		coord = null;
+		tree = new Event [0];
+		added.clear();
+		removed.clear();
+	}
+
+	/**
+	 * @param p Point in on-screen coordinates.
+	 * @return Indexed events whose area contains <code>p</code>.
+	 */
+	List<Event> getContaining(Point2D p, Transformation coord) {
+		if ((this.coord != coord) || (coordVersion != coord.getVersion())
+				|| (added.size() + removed.size() > Math.max(MIN_CHANGES, (int) Math.sqrt(tree.length)))) {
+			build(coord);
+		}
+
+		List<Event> result = new ArrayList<Event>();
+		query(p, 0, tree.length, result);
+		for (Event e : added) {
+			if (e.contains(p, coord)) {
+				result.add(e);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds events from subtree <code>[from, to)</code> which contain <code>p</code> into <code>result</code>.
+	 */
+	private void query(Point2D p, int from, int to, List<Event> result) {
+		while (from < to) {
+			int root = (from + to) >>> 1;
+			if (maxUpper[root] < p.getX()) {
+				return;
+			}
+			query(p, from, root, result);
+			if (lower[root] > p.getX()) { //following events start even further
+				return;
+			}
+			if ((upper[root] >= p.getX()) && !removed.contains(tree[root]) && tree[root].contains(p, coord)) {
+				result.add(tree[root]);
+			}
+			from = root + 1;
+		}
+	}
+
+	/**
+	 * Builds interval tree of all indexed events for given transformation.
+	 */
+	private void build(Transformation coord) {
+		this.coord = coord;
+		coordVersion = coord.getVersion();
+		added.clear();
+		removed.clear();
+
+		int size = events.size();
+		final Rectangle2D [] areas = new Rectangle2D [size];
+		Integer [] order = new Integer [size];
+		Event [] all = events.toArray(new Event [size]);
+		for (int i = 0; i < size; i++) {
+			areas[i] = all[i].getArea(coord);
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Double.compare(areas[o1].getMinX(), areas[o2].getMinX());
+			}
+		});
+
+		tree = new Event [size];
+		lower = new double [size];
+		upper = new double [size];
+		maxUpper = new double [size];
+		for (int i = 0; i < size; i++) {
+			tree[i] = all[order[i]];
+			lower[i] = areas[order[i]].getMinX();
+			upper[i] = areas[order[i]].getMaxX();
+		}
+		computeMaxUpper(0, size);
+	}
+
+	/**
+	 * Fills {@link #maxUpper} of subtree <code>[from, to)</code>.
+	 * @return Maximum right end in the subtree.
+	 */
+	private double computeMaxUpper(int from, int to) {
+		if (from >= to) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		int root = (from + to) >>> 1;
+		maxUpper[root] = Math.max(upper[root], Math.max(computeMaxUpper(from, root), computeMaxUpper(root + 1, to)));
+		return maxUpper[root];
+	}
+}
@@ -2,190 +2,175 @@
 //Full copyright notice found in src/LICENSE.  
 package ltl;
 
-import ltl.Property.Bound;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import ltl.LTLFormula.Operator;
 
 /**
  * 
- * Stores settings used in LTL formulae (e.g. operators) and provides with basic formula-building primitives.
+ * Renders {@link LTLFormula}e into text in a {@link Dialect}.
+ * 
+ * By default, each operand of an operator is surrounded by parentheses, e.g. "<code>(a)U(b)</code>" or "<code>X(a)</code>",
+ * and {@link LTLFormula#TRUE} is rendered as empty formula. With minimal parentheses, binary operators are surrounded
+ * by spaces and operands are parenthesised only when required by precedence (atomic propositions and unary operators
+ * bind tighter than <code>&amp;</code>, which binds tighter than <code>|</code>; <code>U</code> is always parenthesised
+ * within other binary operators), e.g. "<code>[X]&gt;1.0 &amp; X(a | b)</code>". Operands of unary operators
+ * are always parenthesised.
+ * Formula is rendered iteratively from left to right, i.e. in time linear to length of the text,
+ * without regard to depth of the formula.
  * 
  * @author Tomáš Vejpustek
  */
 public class FormulaBuilder {
-	private static String EQUALS = "=";
-	private static String LESSER = "<";
-	private static String GREATER = ">";
-	
-	private String leftParenthesis = "(";
-	private String rightParenthesis = ")";
-	private String andOperator = "&";
-	private String orOperator = "|";
-	private String notOperator = "!";
-	private String nextOperator = "X";
-	private String untilOperator = "U";
-	private String futureOperator = "F";
-	private String globallyOperator = "G";
-	
-	private String concentration = "[X]";
-	private String derivative = "d[X]";
-	private String time = "t";
-	
-	/**
-	 * @return LTL representation of event concentration.
-	 */
-	public String concentration(Event e) {
-		return property(e.getConcentration(), concentration);
-	}
-	
-	/**
-	 * @return LTL representation of transition concentration.
-	 */
-	public String concentration(Transition t) {
-		return property(t.getConcentration(), concentration);
-	}
-	
-	/**
-	 * @return LTL representation of event derivative.
-	 */
-	public String derivative(Event e) {
-		return derivative(e.getDerivative(), derivative);
-	}
+	private static String LEFT_PARENTHESIS = "(";
+	private static String RIGHT_PARENTHESIS = ")";
 	
-	/**
-	 * @return LTL representation of transition derivative.
-	 */
-	public String derivative(Transition t) {
-		return derivative(t.getDerivative(), derivative);
-	}
+	private final Dialect dialect;
+	private final boolean minimalParentheses;
 	
 	/**
-	 * @return LTL representation of event time.
+	 * Creates builder of {@link PlainDialect} which parenthesises all operands.
 	 */
-	public String time(Event e) {
-		return property(e.getTime(), time);
+	public FormulaBuilder() {
+		this(false);
 	}
 	
 	/**
-	 * @return Formula constituting logical conjunction of arguments.
+	 * Creates builder of {@link PlainDialect}.
+	 * @param minimalParentheses <code>true</code> when only parentheses required by operator precedence are written,
+	 * <code>false</code> when all operands are parenthesised.
 	 */
-	public String and(String form1, String form2) {
-		return parenthesise(form1) + andOperator + parenthesise(form2);
+	public FormulaBuilder(boolean minimalParentheses) {
+		this(new PlainDialect(), minimalParentheses);
 	}
 	
 	/**
-	 * @return Formula constituting logical disjunction of arguments.
+	 * @param dialect Syntax of formulae.
+	 * @param minimalParentheses <code>true</code> when only parentheses required by operator precedence are written,
+	 * <code>false</code> when all operands are parenthesised.
 	 */
-	public String or(String form1, String form2) {
-		return parenthesise(form1) + orOperator + parenthesise(form2);
+	public FormulaBuilder(Dialect dialect, boolean minimalParentheses) {
+		this.dialect = dialect;
+		this.minimalParentheses = minimalParentheses;
 	}
 	
 	/**
-	 * @return Formula constituting logical negation of <code>form</code>.
+	 * @return Syntax of formulae.
 	 */
-	public String not(String form) {
-		return notOperator + parenthesise(form);
+	public Dialect getDialect() {
+		return dialect;
 	}
 	
 	/**
-	 * @return Formula in the form "X <code>form</code>".
+	 * @return Text of <code>formula</code>.
 	 */
-	public String next(String form) {
-		return nextOperator + parenthesise(form);
-	}
-	
-	/**
-	 * @return Formula in the form "<code>condition</code> U <code>release</code>".
-	 */
-	public String until(String condition, String release) {
-		return parenthesise(condition) + untilOperator + parenthesise(release);
+	public String toString(LTLFormula formula) {
+		StringBuilder out = new StringBuilder();
+		try {
+			write(formula, out);
+		} catch (IOException ioe) {
+			throw new IllegalStateException("StringBuilder cannot throw IOException.", ioe);
+		}
+		return out.toString();
 	}
 	
 	/**
-	 * @return Formula in the form "F <code>form</code>".
+	 * Writes <code>formula</code> into <code>out</code> as content of a file, i.e. including text which
+	 * precedes and follows the formula in the dialect.
+	 * @throws IOException when <code>out</code> cannot be written into.
 	 */
-	public String future(String form) {
-		return futureOperator + parenthesise(form);
+	public void export(LTLFormula formula, Appendable out) throws IOException {
+		Dialect target = dialect.forFormula(formula);
+		target.begin(out);
+		write(formula, target, out);
+		target.end(out);
 	}
 	
 	/**
-	 * @return Formula in the form "G <code>form</code>".
+	 * Writes text of <code>formula</code> into <code>out</code>.
+	 * @throws IOException when <code>out</code> cannot be written into.
 	 */
-	public String globally(String form) {
-		return globallyOperator + parenthesise(form);
+	public void write(LTLFormula formula, Appendable out) throws IOException {
+		write(formula, dialect.forFormula(formula), out);
 	}
 	
 	/**
-	 * @return <code>form</code> surrounded by parentheses.
+	 * Writes text of <code>formula</code> in <code>dialect</code> prepared for it into <code>out</code>.
 	 */
-	private String parenthesise(String form) {
-		return leftParenthesis + form + rightParenthesis;
+	private void write(LTLFormula formula, Dialect dialect, Appendable out) throws IOException {
+		//contains formulae to be rendered and strings to be written, the next one on top
+		Deque<Object> stack = new ArrayDeque<Object>();
+		stack.push(formula);
+		while (!stack.isEmpty()) {
+			Object item = stack.pop();
+			if (item instanceof String) {
+				out.append((String) item);
+				continue;
+			}
+			LTLFormula form = (LTLFormula) item;
+			switch (form.getOperator()) {
+			case TRUE:
+				out.append(dialect.getOperator(Operator.TRUE));
+				break;
+			case ATOM:
+				dialect.writeAtom(form, out);
+				break;
+			case NOT:
+			case NEXT:
+			case FUTURE:
+			case GLOBALLY:
+				out.append(dialect.getOperator(form.getOperator()));
+				pushOperand(stack, form.getLeft(), form.getOperator());
+				break;
+			default:
+				pushOperand(stack, form.getRight(), form.getOperator());
+				if (minimalParentheses) {
+					stack.push(" " + dialect.getOperator(form.getOperator()) + " ");
+				} else {
+					stack.push(dialect.getOperator(form.getOperator()));
+				}
+				pushOperand(stack, form.getLeft(), form.getOperator());
+			}
+		}
 	}
 	
 	/**
-	 * @param variable property name
-	 * @return Formula specifying property.
+	 * Pushes <code>operand</code> to rendering stack, surrounded by parentheses when required.
+	 * @param operator Operator of which it is the operand.
 	 */
-	private String property(Property prop, String variable) {
-		if (!prop.isSet()) {
-			return "";
-		} else if (prop.isPoint()) {
-			return variable+EQUALS+prop.getCenter();
+	private void pushOperand(Deque<Object> stack, LTLFormula operand, Operator operator) {
+		if (isParenthesised(operand, operator)) {
+			stack.push(RIGHT_PARENTHESIS);
+			stack.push(operand);
+			stack.push(LEFT_PARENTHESIS);
 		} else {
-			String lower, upper;
-			if (prop.hasBound(Bound.LOWER)) {
-				lower = variable+GREATER+Double.toString(prop.getBound(Bound.LOWER));
-			} else {
-				lower = null;
-			}
-			if (prop.hasBound(Bound.UPPER)) {
-				upper = variable+LESSER+Double.toString(prop.getBound(Bound.UPPER));
-			} else {
-				upper = null;
-			}
-			
-			if (prop.hasBounds()) {
-				return and(lower, upper);
-			} else if (lower != null) {
-				return lower;
-			} else {
-				return upper;
-			}
+			stack.push(operand);
 		}
 	}
 	
 	/**
-	 * @param variable derivative name
-	 * @return Formula specifying derivative.
+	 * @param operator Operator of which <code>operand</code> is the operand.
+	 * @return <code>true</code> when <code>operand</code> has to be parenthesised, <code>false</code> otherwise.
 	 */
-	private String derivative(Property der, String variable) {
-		if (!der.isSet()) {
-			return "";
-		} else if (der.isPoint()) {
-			return variable+EQUALS+der.getBound(Bound.UPPER);
-		} else {
-			String upper, lower;
-			if (Double.isInfinite(der.getBound(Bound.LOWER))) {
-				lower = null;
-			} else {
-				lower = variable + GREATER + Double.toString(der.getBound(Bound.LOWER));
-			}
-			if (Double.isInfinite(der.getBound(Bound.UPPER))) {
-				upper = null;
-			} else {
-				upper = variable + LESSER + Double.toString(der.getBound(Bound.UPPER));
-			}
-			if ((lower != null) && (upper != null)){
-				if (der.getBound(Bound.UPPER) < der.getBound(Bound.LOWER)) {
-					return or(lower, upper);
-				} else {
-					return and(lower, upper);
-				}
-			} else if (lower != null) {
-				return lower;
-			} else if (upper != null) {
-				return upper;
-			} else {
-				return "";
-			}
+	private boolean isParenthesised(LTLFormula operand, Operator operator) {
+		if (!minimalParentheses || (operator.getArity() == 1)) {
+			return true;
+		}
+		switch (operand.getOperator()) {
+		case ATOM:
+		case NOT:
+		case NEXT:
+		case FUTURE:
+		case GLOBALLY:
+			return false;
+		case AND:
+			return (operator == Operator.UNTIL);
+		case OR:
+			return (operator != Operator.OR);
+		default:
+			return true;
 		}
 	}
 	
@@ -0,0 +1,201 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ltl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import ltl.LTLFormula.Operator;
+import ltl.LTLFormula.Relation;
+import ltl.LTLFormula.Variable;
+import ltl.Property.Bound;
+
+/**
+ * Creates {@link LTLFormula}e and interns them (hash-consing), i.e. identical formulae created by one factory
+ * are stored only once.
+ *
+ * Also translates properties of events and transitions into atomic propositions.
+ *
+ * @author Tomáš Vejpustek
+ */
+public class FormulaFactory {
+	private final Map<LTLFormula, LTLFormula> formulae = new HashMap<LTLFormula, LTLFormula>();
+
+	/**
+	 * @return Number of distinct formulae created by this factory.
+	 */
+	public int getSize() {
+		return formulae.size();
+	}
+
+	/**
+	 * @return The stored formula identical to <code>formula</code> (<code>formula</code> itself when there is none).
+	 */
+	private LTLFormula intern(LTLFormula formula) {
+		LTLFormula stored = formulae.get(formula);
+		if (stored == null) {
+			formulae.put(formula, formula);
+			stored = formula;
+		}
+		return stored;
+	}
+
+	/**
+	 * @return Atomic proposition "<code>variable relation value</code>".
+	 */
+	public LTLFormula atom(Variable variable, Relation relation, double value) {
+		return intern(LTLFormula.atom(variable, relation, value));
+	}
+
+	/**
+	 * @return Formula constituting logical conjunction of arguments.
+	 */
+	public LTLFormula and(LTLFormula form1, LTLFormula form2) {
+		return intern(LTLFormula.binary(Operator.AND, form1, form2));
+	}
+
+	/**
+	 * @return Formula constituting logical disjunction of arguments.
+	 */
+	public LTLFormula or(LTLFormula form1, LTLFormula form2) {
+		return intern(LTLFormula.binary(Operator.OR, form1, form2));
+	}
+
+	/**
+	 * @return Formula constituting logical negation of <code>form</code>.
+	 */
+	public LTLFormula not(LTLFormula form) {
+		return intern(LTLFormula.unary(Operator.NOT, form));
+	}
+
+	/**
+	 * @return Formula in the form "X <code>form</code>".
+	 */
+	public LTLFormula next(LTLFormula form) {
+		return intern(LTLFormula.unary(Operator.NEXT, form));
+	}
+
+	/**
+	 * @return Formula in the form "<code>condition</code> U <code>release</code>".
+	 */
+	public LTLFormula until(LTLFormula condition, LTLFormula release) {
+		return intern(LTLFormula.binary(Operator.UNTIL, condition, release));
+	}
+
+	/**
+	 * @return Formula in the form "F <code>form</code>".
+	 */
+	public LTLFormula future(LTLFormula form) {
+		return intern(LTLFormula.unary(Operator.FUTURE, form));
+	}
+
+	/**
+	 * @return Formula in the form "G <code>form</code>".
+	 */
+	public LTLFormula globally(LTLFormula form) {
+		return intern(LTLFormula.unary(Operator.GLOBALLY, form));
+	}
+
+	/**
+	 * @return Formula specifying event concentration.
+	 */
+	public LTLFormula concentration(Event e) {
+		return property(e.getConcentration(), Variable.CONCENTRATION);
+	}
+
+	/**
+	 * @return Formula specifying transition concentration.
+	 */
+	public LTLFormula concentration(Transition t) {
+		return property(t.getConcentration(), Variable.CONCENTRATION);
+	}
+
+	/**
+	 * @return Formula specifying event derivative.
+	 */
+	public LTLFormula derivative(Event e) {
+		return derivative(e.getDerivative());
+	}
+
+	/**
+	 * @return Formula specifying transition derivative.
+	 */
+	public LTLFormula derivative(Transition t) {
+		return derivative(t.getDerivative());
+	}
+
+	/**
+	 * @return Formula specifying event time.
+	 */
+	public LTLFormula time(Event e) {
+		return property(e.getTime(), Variable.TIME);
+	}
+
+	/**
+	 * @return Formula specifying property (<code>TRUE</code> when it is not set).
+	 */
+	private LTLFormula property(Property prop, Variable variable) {
+		if (!prop.isSet()) {
+			return LTLFormula.TRUE;
+		} else if (prop.isPoint()) {
+			return atom(variable, Relation.EQUAL, prop.getCenter());
+		} else {
+			LTLFormula lower, upper;
+			if (prop.hasBound(Bound.LOWER)) {
+				lower = atom(variable, Relation.GREATER, prop.getBound(Bound.LOWER));
+			} else {
+				lower = null;
+			}
+			if (prop.hasBound(Bound.UPPER)) {
+				upper = atom(variable, Relation.LESSER, prop.getBound(Bound.UPPER));
+			} else {
+				upper = null;
+			}
+
+			if (prop.hasBounds()) {
+				return and(lower, upper);
+			} else if (lower != null) {
+				return lower;
+			} else {
+				return upper;
+			}
+		}
+	}
+
+	/**
+	 * @return Formula specifying derivative (<code>TRUE</code> when it is not set or it is not bounded).
+	 */
+	private LTLFormula derivative(Property der) {
+		if (!der.isSet()) {
+			return LTLFormula.TRUE;
+		} else if (der.isPoint()) {
+			return atom(Variable.DERIVATIVE, Relation.EQUAL, der.getBound(Bound.UPPER));
+		} else {
+			LTLFormula upper, lower;
+			if (Double.isInfinite(der.getBound(Bound.LOWER))) {
+				lower = null;
+			} else {
+				lower = atom(Variable.DERIVATIVE, Relation.GREATER, der.getBound(Bound.LOWER));
+			}
+			if (Double.isInfinite(der.getBound(Bound.UPPER))) {
+				upper = null;
+			} else {
+				upper = atom(Variable.DERIVATIVE, Relation.LESSER, der.getBound(Bound.UPPER));
+			}
+			if ((lower != null) && (upper != null)){
+				if (der.getBound(Bound.UPPER) < der.getBound(Bound.LOWER)) {
+					return or(lower, upper);
+				} else {
+					return and(lower, upper);
+				}
+			} else if (lower != null) {
+				return lower;
+			} else if (upper != null) {
+				return upper;
+			} else {
+				return LTLFormula.TRUE;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,255 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ltl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ltl.LTLFormula.Operator;
+import ltl.LTLFormula.Relation;
+import ltl.LTLFormula.Variable;
+
+/**
+ * Rewrites {@link LTLFormula}e into equivalent smaller ones:
+ * <ul>
+ * <li>conjunctions and disjunctions are flattened (and associated to the left) and repeated operands are removed,</li>
+ * <li>comparisons of the same variable in a conjunction (disjunction) are merged into the strongest (weakest) one,
+ * e.g. <code>[X]&gt;1 &amp; [X]&gt;2</code> into <code>[X]&gt;2</code>,</li>
+ * <li>{@link LTLFormula#TRUE} is removed from conjunctions and absorbs disjunctions, <code>F</code>, <code>G</code>
+ * and release of <code>U</code>,</li>
+ * <li><code>true U a</code> is rewritten to <code>F a</code>, nested <code>F</code> (<code>G</code>) to single one
+ * and double negation is removed.</li>
+ * </ul>
+ * <code>X true</code> is kept since it does not hold at the end of a finite time series.
+ *
+ * Formulae are simplified iteratively (bottom-up) and each distinct subformula is simplified only once.
+ *
+ * @author Tomáš Vejpustek
+ */
+public class FormulaSimplifier {
+	private final FormulaFactory factory;
+	private final Map<LTLFormula, LTLFormula> simplified = new IdentityHashMap<LTLFormula, LTLFormula>();
+
+	/**
+	 * @param factory Factory which creates simplified formulae. Simplified formulae should be created by it as well.
+	 */
+	public FormulaSimplifier(FormulaFactory factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * @return Simplified LTL representation of <code>source</code>.
+	 */
+	public static LTLFormula simplifyFormula(LTLRepresentable source) {
+		FormulaFactory factory = new FormulaFactory();
+		return new FormulaSimplifier(factory).simplify(source.toFormula(factory));
+	}
+
+	/**
+	 * @return Formula equivalent to <code>formula</code>.
+	 */
+	public LTLFormula simplify(LTLFormula formula) {
+		Deque<LTLFormula> stack = new ArrayDeque<LTLFormula>();
+		stack.push(formula);
+		while (!stack.isEmpty()) {
+			LTLFormula form = stack.peek();
+			if (simplified.containsKey(form)) {
+				stack.pop();
+				continue;
+			}
+			//operands are simplified first
+			boolean ready = true;
+			for (int i = 0; i < form.getOperator().getArity(); i++) {
+				LTLFormula operand = (i == 0) ? form.getLeft() : form.getRight();
+				if (!simplified.containsKey(operand)) {
+					stack.push(operand);
+					ready = false;
+				}
+			}
+			if (ready) {
+				stack.pop();
+				simplified.put(form, rewrite(form));
+			}
+		}
+		return simplified.get(formula);
+	}
+
+	/**
+	 * @return Simplified <code>form</code>, whose operands are already simplified.
+	 */
+	private LTLFormula rewrite(LTLFormula form) {
+		LTLFormula left = simplified.get(form.getLeft());
+		LTLFormula right = simplified.get(form.getRight());
+		switch (form.getOperator()) {
+		case TRUE:
+			return LTLFormula.TRUE;
+		case ATOM:
+			return factory.atom(form.getVariable(), form.getRelation(), form.getValue());
+		case NOT:
+			if (left.getOperator() == Operator.NOT) {
+				return left.getLeft();
+			}
+			return factory.not(left);
+		case NEXT:
+			return factory.next(left);
+		case FUTURE:
+			return future(left);
+		case GLOBALLY:
+			if (left.isTrue() || (left.getOperator() == Operator.GLOBALLY)) {
+				return left;
+			}
+			return factory.globally(left);
+		case UNTIL:
+			if (right.isTrue()) {
+				return LTLFormula.TRUE;
+			} else if (left.isTrue()) {
+				return future(right);
+			}
+			return factory.until(left, right);
+		default:
+			return junction(form.getOperator(), left, right);
+		}
+	}
+
+	/**
+	 * @return Simplified formula "F <code>form</code>".
+	 */
+	private LTLFormula future(LTLFormula form) {
+		if (form.isTrue() || (form.getOperator() == Operator.FUTURE)) {
+			return form;
+		}
+		return factory.future(form);
+	}
+
+	/**
+	 * @param operator {@link Operator#AND} or {@link Operator#OR}.
+	 * @return Simplified conjunction (disjunction) of simplified operands.
+	 */
+	private LTLFormula junction(Operator operator, LTLFormula left, LTLFormula right) {
+		boolean and = (operator == Operator.AND);
+		//flatten
+		List<LTLFormula> operands = new ArrayList<LTLFormula>();
+		Set<LTLFormula> present = Collections.newSetFromMap(new IdentityHashMap<LTLFormula, Boolean>());
+		Deque<LTLFormula> stack = new ArrayDeque<LTLFormula>();
+		stack.push(right);
+		stack.push(left);
+		while (!stack.isEmpty()) {
+			LTLFormula form = stack.pop();
+			if (form.getOperator() == operator) {
+				stack.push(form.getRight());
+				stack.push(form.getLeft());
+			} else if (form.isTrue()) {
+				if (!and) {
+					return LTLFormula.TRUE;
+				}
+			} else if (present.add(form)) {
+				operands.add(form);
+			}
+		}
+
+		operands = mergeComparisons(operands, and);
+
+		LTLFormula result = null;
+		for (LTLFormula form : operands) {
+			if (result == null) {
+				result = form;
+			} else if (and) {
+				result = factory.and(result, form);
+			} else {
+				result = factory.or(result, form);
+			}
+		}
+		if (result == null) {
+			return LTLFormula.TRUE;
+		}
+		return result;
+	}
+
+	/**
+	 * Merges comparisons of the same variable, i.e. keeps only the strongest (in conjunction) or the weakest
+	 * (in disjunction) lower and upper bound and, in conjunction, removes bounds implied by equality.
+	 * Comparisons with <code>NaN</code> are left intact.
+	 * @param and <code>true</code> for operands of conjunction, <code>false</code> for operands of disjunction.
+	 * @return Operands where each merged bound replaces the first comparison of its kind.
+	 */
+	private List<LTLFormula> mergeComparisons(List<LTLFormula> operands, boolean and) {
+		Map<Variable, LTLFormula> lower = new EnumMap<Variable, LTLFormula>(Variable.class);
+		Map<Variable, LTLFormula> upper = new EnumMap<Variable, LTLFormula>(Variable.class);
+		Map<Variable, LTLFormula> equal = new EnumMap<Variable, LTLFormula>(Variable.class);
+		for (LTLFormula form : operands) {
+			if ((form.getOperator() != Operator.ATOM) || Double.isNaN(form.getValue())) {
+				continue;
+			}
+			switch (form.getRelation()) {
+			case GREATER:
+				lower.put(form.getVariable(), select(lower.get(form.getVariable()), form, and));
+				break;
+			case LESSER:
+				upper.put(form.getVariable(), select(upper.get(form.getVariable()), form, !and));
+				break;
+			default:
+				if (equal.containsKey(form.getVariable())) {
+					equal.put(form.getVariable(), null); //more than one equality -- not merged
+				} else {
+					equal.put(form.getVariable(), form);
+				}
+			}
+		}
+		if (and) {
+			for (Map.Entry<Variable, LTLFormula> entry : equal.entrySet()) {
+				LTLFormula point = entry.getValue();
+				if (point == null) {
+					continue;
+				}
+				LTLFormula bound = lower.get(entry.getKey());
+				if ((bound != null) && (point.getValue() > bound.getValue())) {
+					lower.put(entry.getKey(), null);
+				}
+				bound = upper.get(entry.getKey());
+				if ((bound != null) && (point.getValue() < bound.getValue())) {
+					upper.put(entry.getKey(), null);
+				}
+			}
+		}
+
+		List<LTLFormula> result = new ArrayList<LTLFormula>(operands.size());
+		Set<Variable> lowerDone = Collections.newSetFromMap(new EnumMap<Variable, Boolean>(Variable.class));
+		Set<Variable> upperDone = Collections.newSetFromMap(new EnumMap<Variable, Boolean>(Variable.class));
+		for (LTLFormula form : operands) {
+			if ((form.getOperator() != Operator.ATOM) || Double.isNaN(form.getValue())
+					|| (form.getRelation() == Relation.EQUAL)) {
+				result.add(form);
+			} else if (form.getRelation() == Relation.GREATER) {
+				if (lowerDone.add(form.getVariable()) && (lower.get(form.getVariable()) != null)) {
+					result.add(lower.get(form.getVariable()));
+				}
+			} else {
+				if (upperDone.add(form.getVariable()) && (upper.get(form.getVariable()) != null)) {
+					result.add(upper.get(form.getVariable()));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param greatest <code>true</code> when comparison with greater value is selected, <code>false</code> otherwise.
+	 * @return One of the comparisons (<code>form</code> when <code>selected</code> is <code>null</code>).
+	 */
+	private static LTLFormula select(LTLFormula selected, LTLFormula form, boolean greatest) {
+		if (selected == null) {
+			return form;
+		} else if (greatest == (form.getValue() > selected.getValue())) {
+			return form;
+		} else {
+			return selected;
+		}
+	}
+}
@@ -0,0 +1,183 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ltl;
+
+import java.util.Arrays;
+
+import ltl.Monitor.Stage;
+import ltl.Monitor.Witness;
+import series.TimeSeries;
+
+/**
+ * Evaluates successive versions of a model (e.g. while a primitive is edited) on one time series,
+ * reusing results of the part of the model which has not changed.
+ *
+ * <p>Stages of {@link Monitor} are run only forwards, i.e. runs in a stage depend only on preceding stages.
+ * Thus, runs passing from the unchanged stages (preceding the edited primitive) to the rest of the model are recorded
+ * once and following evaluations run only the rest of the model, from the first point in which a run reaches it
+ * (i.e. from the occurrence of the preceding event). Model which has not changed at all is not evaluated again.</p>
+ *
+ * <p>The rest of the model is evaluated up to the end of the time series (or until the verdict is decided), not only
+ * up to the occurrence of the following event: the edited event may occur in any point after the preceding one
+ * and each of its occurrences may lead to another verdict of the following stages. Their results are not reused,
+ * since moving the edited primitive usually changes points in which they are reached.</p>
+ *
+ * <p>Not thread-safe. Time series must not be changed while the evaluator is used.</p>
+ *
+ * @author Tomáš Vejpustek
+ */
+public class IncrementalEvaluator {
+	private final TimeSeries series;
+	private final int size;
+
+	private Stage [] stages = null; //stages of the last evaluated model
+	private int events; //number of events of the last evaluated model
+	private Evaluation evaluation = null; //evaluation of the last evaluated model
+
+	//runs passing from stages preceding boundary (0 when nothing is recorded)
+	private int boundary = 0;
+	private int [] leftStart = new int [0]; //points from which run leaving the preceding stage is ...
+	private Witness [] left = new Witness [0]; //... this one (may be null)
+	private int leftCount = 0;
+	private int [] enteredIndex = new int [0]; //points after which a run enters the stage ...
+	private Witness [] entered = new Witness [0]; //... this one
+	private int enteredCount = 0;
+	private int prefixAlive; //number of points in which preceding stages are alive
+	private Witness prefixProgress; //run which has reached the furthest preceding stage
+
+	/**
+	 * @param series Time series on which models are evaluated.
+	 */
+	public IncrementalEvaluator(TimeSeries series) {
+		this.series = series;
+		size = series.getSize();
+	}
+
+	/**
+	 * @return Time series on which models are evaluated.
+	 */
+	public TimeSeries getTimeSeries() {
+		return series;
+	}
+
+	/**
+	 * Evaluates a model on the time series.
+	 * @param model Monitor of the model, which has not read any point (it is not changed).
+	 * @return Evaluation of the model (the same as by {@link Monitor#evaluate(Model, TimeSeries)}).
+	 */
+	public Evaluation evaluate(Monitor model) {
+		Stage [] chain = model.getStages();
+		int common = 0;
+		if (stages != null) {
+			while (common < chain.length && common < stages.length && chain[common].equals(stages[common])) {
+				common++;
+			}
+			if (common == chain.length && common == stages.length && model.getEventCount() == events) {
+				return evaluation;
+			}
+		}
+
+		//last stage is always evaluated (so that there is something to be evaluated)
+		int split = Math.min(common, chain.length - 1);
+		if (split <= 0) {
+			boundary = 0;
+			evaluation = evaluateWhole(model);
+		} else {
+			if (boundary != split) {
+				record(model, split);
+			}
+			evaluation = evaluateRest(model);
+		}
+		stages = chain;
+		events = model.getEventCount();
+		return evaluation;
+	}
+
+	/**
+	 * @return Evaluation of all stages of <code>model</code>.
+	 */
+	private Evaluation evaluateWhole(Monitor model) {
+		Monitor monitor = new Monitor(model, 0, model.getStages().length);
+		for (int i = 0; i < size && !monitor.isDecided(); i++) {
+			monitor.step(series.getTime(i), series.getConcentration(i), series.getDerivative(i));
+		}
+		return monitor.finish();
+	}
+
+	/**
+	 * Runs stages preceding <code>split</code> on the whole time series and records runs passing to the following stages.
+	 */
+	private void record(Monitor model, int split) {
+		boundary = split;
+		leftCount = 0;
+		enteredCount = 0;
+		Monitor monitor = new Monitor(model, 0, split);
+		Witness lastLeft = null;
+		int i;
+		for (i = 0; i < size && !monitor.isDecided(); i++) {
+			monitor.step(series.getTime(i), series.getConcentration(i), series.getDerivative(i));
+			if (monitor.getLeft() != lastLeft) {
+				lastLeft = monitor.getLeft();
+				addLeft(i, lastLeft);
+			}
+			if (monitor.getEntered() != null) {
+				addEntered(i, monitor.getEntered());
+			}
+		}
+		//preceding stages are dead after i points (or the time series has ended)
+		prefixAlive = monitor.isDecided() ? i - 1 : i;
+		if (lastLeft != null) {
+			addLeft(i, null);
+		}
+		prefixProgress = monitor.getProgress();
+	}
+
+	private void addLeft(int index, Witness run) {
+		if (leftCount == left.length) {
+			left = Arrays.copyOf(left, 2*leftCount + 1);
+			leftStart = Arrays.copyOf(leftStart, 2*leftCount + 1);
+		}
+		leftStart[leftCount] = index;
+		left[leftCount++] = run;
+	}
+
+	private void addEntered(int index, Witness run) {
+		if (enteredCount == entered.length) {
+			entered = Arrays.copyOf(entered, 2*enteredCount + 1);
+			enteredIndex = Arrays.copyOf(enteredIndex, 2*enteredCount + 1);
+		}
+		enteredIndex[enteredCount] = index;
+		entered[enteredCount++] = run;
+	}
+
+	/**
+	 * @return Evaluation of <code>model</code> where runs passing from stages preceding {@link #boundary} are recorded.
+	 */
+	private Evaluation evaluateRest(Monitor model) {
+		Monitor monitor = new Monitor(model, boundary, model.getStages().length);
+		int start = Integer.MAX_VALUE; //no run reaches the rest before this point
+		if (leftCount > 0) {
+			start = leftStart[0];
+		}
+		if (enteredCount > 0) {
+			start = Math.min(start, enteredIndex[0]);
+		}
+		if (start >= size) {
+			return monitor.finish(prefixProgress);
+		}
+		monitor.skip(start);
+		int nextLeft = 0, nextEntered = 0;
+		Witness leaving = null;
+		for (int i = start; i < size && !monitor.isDecided(); i++) {
+			while (nextLeft < leftCount && leftStart[nextLeft] <= i) {
+				leaving = left[nextLeft++];
+			}
+			Witness entering = null;
+			if (nextEntered < enteredCount && enteredIndex[nextEntered] == i) {
+				entering = entered[nextEntered++];
+			}
+			monitor.step(series.getTime(i), series.getConcentration(i), series.getDerivative(i), leaving, entering, i < prefixAlive);
+		}
+		return monitor.finish(prefixProgress);
+	}
+}
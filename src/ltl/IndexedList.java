@@ -0,0 +1,294 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ltl;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link java.util.List} stored in a balanced (AVL) tree of elements ordered by their indices, i.e. accessing,
+ * inserting, replacing and removing element of given index takes logarithmic time.
+ *
+ * Nodes of the tree are immutable and shared by modified versions of the tree. Thus, a copy of list
+ * (see {@link #IndexedList(IndexedList)}) is created in constant time.
+ *
+ * Supports <code>null</code> elements.
+ *
+ * @author Tomáš Vejpustek
+ */
+public class IndexedList<E> extends AbstractList<E> {
+	private Node<E> root = null;
+
+	/**
+	 * Creates empty list.
+	 */
+	public IndexedList() {}
+
+	/**
+	 * Creates list containing elements of <code>source</code> in the order of its iterator (in linear time).
+	 */
+	public IndexedList(Collection<? extends E> source) {
+		@SuppressWarnings("unchecked")
+		E [] elements = (E []) source.toArray();
+		root = build(elements, 0, elements.length);
+	}
+
+	/**
+	 * Creates copy of <code>source</code> in constant time. Following changes of either list do not affect the other one.
+	 */
+	public IndexedList(IndexedList<E> source) {
+		root = source.root;
+	}
+
+	@Override
+	public E get(int index) {
+		checkIndex(index, size());
+		Node<E> node = root;
+		while (true) {
+			int leftSize = size(node.left);
+			if (index < leftSize) {
+				node = node.left;
+			} else if (index == leftSize) {
+				return node.value;
+			} else {
+				index -= leftSize + 1;
+				node = node.right;
+			}
+		}
+	}
+
+	@Override
+	public E set(int index, E element) {
+		E result = get(index);
+		root = set(root, index, element);
+		return result;
+	}
+
+	@Override
+	public void add(int index, E element) {
+		checkIndex(index, size() + 1);
+		root = insert(root, index, element);
+		modCount++;
+	}
+
+	@Override
+	public E remove(int index) {
+		E result = get(index);
+		root = remove(root, index);
+		modCount++;
+		return result;
+	}
+
+	/**
+	 * Appends elements of <code>source</code>. Takes linear time when this list is empty.
+	 */
+	@Override
+	public boolean addAll(Collection<? extends E> source) {
+		if (root != null) {
+			return super.addAll(source);
+		}
+		@SuppressWarnings("unchecked")
+		E [] elements = (E []) source.toArray();
+		root = build(elements, 0, elements.length);
+		modCount++;
+		return elements.length > 0;
+	}
+
+	@Override
+	public void clear() {
+		root = null;
+		modCount++;
+	}
+
+	@Override
+	public int size() {
+		return size(root);
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new TreeIterator(0);
+	}
+
+	private static void checkIndex(int index, int bound) {
+		if ((index < 0) || (index >= bound)) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + bound);
+		}
+	}
+
+	/**
+	 * Node of AVL tree, which stores size and height of its subtree.
+	 */
+	private static class Node<E> {
+		final Node<E> left, right;
+		final E value;
+		final int size, height;
+
+		Node(Node<E> left, E value, Node<E> right) {
+			this.left = left;
+			this.value = value;
+			this.right = right;
+			size = size(left) + size(right) + 1;
+			height = Math.max(height(left), height(right)) + 1;
+		}
+	}
+
+	private static int size(Node<?> node) {
+		return (node == null) ? 0 : node.size;
+	}
+
+	private static int height(Node<?> node) {
+		return (node == null) ? 0 : node.height;
+	}
+
+	/**
+	 * @return Tree of <code>elements</code> from <code>from</code> (inclusive) to <code>to</code> (exclusive).
+	 */
+	private static <E> Node<E> build(E [] elements, int from, int to) {
+		if (from >= to) {
+			return null;
+		}
+		int mid = (from + to) >>> 1;
+		return new Node<E>(build(elements, from, mid), elements[mid], build(elements, mid + 1, to));
+	}
+
+	/**
+	 * @return Node joining <code>left</code>, <code>value</code> and <code>right</code>, whose heights differ
+	 * by at most two, rebalanced by rotations.
+	 */
+	private static <E> Node<E> balance(Node<E> left, E value, Node<E> right) {
+		if (height(left) > height(right) + 1) {
+			if (height(left.left) >= height(left.right)) {
+				return new Node<E>(left.left, left.value, new Node<E>(left.right, value, right));
+			} else {
+				Node<E> inner = left.right;
+				return new Node<E>(new Node<E>(left.left, left.value, inner.left), inner.value, new Node<E>(inner.right, value, right));
+			}
+		} else if (height(right) > height(left) + 1) {
+			if (height(right.right) >= height(right.left)) {
+				return new Node<E>(new Node<E>(left, value, right.left), right.value, right.right);
+			} else {
+				Node<E> inner = right.left;
+				return new Node<E>(new Node<E>(left, value, inner.left), inner.value, new Node<E>(inner.right, right.value, right.right));
+			}
+		}
+		return new Node<E>(left, value, right);
+	}
+
+	private static <E> Node<E> set(Node<E> node, int index, E element) {
+		int leftSize = size(node.left);
+		if (index < leftSize) {
+			return new Node<E>(set(node.left, index, element), node.value, node.right);
+		} else if (index > leftSize) {
+			return new Node<E>(node.left, node.value, set(node.right, index - leftSize - 1, element));
+		}
+		return new Node<E>(node.left, element, node.right);
+	}
+
+	private static <E> Node<E> insert(Node<E> node, int index, E element) {
+		if (node == null) {
+			return new Node<E>(null, element, null);
+		}
+		int leftSize = size(node.left);
+		if (index <= leftSize) {
+			return balance(insert(node.left, index, element), node.value, node.right);
+		}
+		return balance(node.left, node.value, insert(node.right, index - leftSize - 1, element));
+	}
+
+	private static <E> Node<E> remove(Node<E> node, int index) {
+		int leftSize = size(node.left);
+		if (index < leftSize) {
+			return balance(remove(node.left, index), node.value, node.right);
+		} else if (index > leftSize) {
+			return balance(node.left, node.value, remove(node.right, index - leftSize - 1));
+		} else if (node.left == null) {
+			return node.right;
+		} else if (node.right == null) {
+			return node.left;
+		}
+		//replaced by the first element of right subtree
+		Node<E> first = node.right;
+		while (first.left != null) {
+			first = first.left;
+		}
+		return balance(node.left, first.value, remove(node.right, 0));
+	}
+
+	/**
+	 * Iterates over the tree in order using a stack of nodes whose values have not been returned yet.
+	 */
+	private class TreeIterator implements Iterator<E> {
+		private Deque<Node<E>> path = new ArrayDeque<Node<E>>();
+		private int index; //index of the next element
+		private int expectedModCount = modCount;
+		private boolean removable = false;
+
+		TreeIterator(int index) {
+			this.index = index;
+			descend(index);
+		}
+
+		/**
+		 * Fills {@link #path} so that element of given index is on its top.
+		 */
+		private void descend(int index) {
+			path.clear();
+			Node<E> node = root;
+			while (node != null) {
+				int leftSize = size(node.left);
+				if (index <= leftSize) {
+					path.push(node);
+					if (index == leftSize) {
+						return;
+					}
+					node = node.left;
+				} else {
+					index -= leftSize + 1;
+					node = node.right;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !path.isEmpty();
+		}
+
+		@Override
+		public E next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (path.isEmpty()) {
+				throw new NoSuchElementException();
+			}
+			Node<E> node = path.pop();
+			for (Node<E> next = node.right; next != null; next = next.left) {
+				path.push(next);
+			}
+			index++;
+			removable = true;
+			return node.value;
+		}
+
+		@Override
+		public void remove() {
+			if (!removable) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			IndexedList.this.remove(--index);
+			expectedModCount = modCount;
+			removable = false;
+			descend(index);
+		}
+	}
+}
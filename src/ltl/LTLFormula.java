@@ -0,0 +1,199 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ltl;
+
+/**
+ * Immutable node of LTL formula.
+ *
+ * Formulae are created by {@link FormulaFactory}, which interns them -- identical subformulae created by one factory
+ * are the same object, i.e. a formula is a directed acyclic graph. Thus, operands are compared by reference
+ * in {@link #equals(Object)} and formulae created by different factories (except {@link #TRUE}) should not be combined.
+ *
+ * Formulae are rendered into text by {@link FormulaBuilder}.
+ *
+ * @author Tomáš Vejpustek
+ */
+public final class LTLFormula {
+
+	/**
+	 * Operator of formula node.
+	 */
+	public static enum Operator {
+		/** Formula which is always satisfied (has no operands). */
+		TRUE(0),
+		/** Atomic proposition comparing a variable to a value (has no operands). */
+		ATOM(0),
+		/** Logical negation. */
+		NOT(1),
+		/** "Next" temporal operator. */
+		NEXT(1),
+		/** "Future" temporal operator. */
+		FUTURE(1),
+		/** "Globally" temporal operator. */
+		GLOBALLY(1),
+		/** Logical conjunction. */
+		AND(2),
+		/** Logical disjunction. */
+		OR(2),
+		/** "Until" temporal operator. */
+		UNTIL(2);
+
+		private final int arity;
+
+		private Operator(int arity) {
+			this.arity = arity;
+		}
+
+		/**
+		 * @return Number of operands.
+		 */
+		public int getArity() {
+			return arity;
+		}
+	}
+
+	/**
+	 * Variable of atomic proposition.
+	 */
+	public static enum Variable {
+		TIME, CONCENTRATION, DERIVATIVE;
+	}
+
+	/**
+	 * Relation of atomic proposition -- the variable is <code>EQUAL</code>, <code>LESSER</code> or <code>GREATER</code>
+	 * than the value.
+	 */
+	public static enum Relation {
+		EQUAL, LESSER, GREATER;
+	}
+
+	/** Formula which is always satisfied. */
+	public static final LTLFormula TRUE = new LTLFormula(Operator.TRUE, null, null, null, null, 0);
+
+	private final Operator operator;
+	private final LTLFormula left, right;
+	private final Variable variable;
+	private final Relation relation;
+	private final double value;
+	private final int hash;
+
+	private LTLFormula(Operator operator, LTLFormula left, LTLFormula right, Variable variable, Relation relation, double value) {
+		this.operator = operator;
+		this.left = left;
+		this.right = right;
+		this.variable = variable;
+		this.relation = relation;
+		this.value = value;
+
+		int hash = operator.hashCode();
+		hash = 31*hash + System.identityHashCode(left);
+		hash = 31*hash + System.identityHashCode(right);
+		if (operator == Operator.ATOM) {
+			long bits = Double.doubleToLongBits(value);
+			hash = 31*hash + variable.hashCode();
+			hash = 31*hash + relation.hashCode();
+			hash = 31*hash + (int)(bits ^ (bits >>> 32));
+		}
+		this.hash = hash;
+	}
+
+	/**
+	 * Creates atomic proposition (not interned).
+	 */
+	static LTLFormula atom(Variable variable, Relation relation, double value) {
+		return new LTLFormula(Operator.ATOM, null, null, variable, relation, value);
+	}
+
+	/**
+	 * Creates formula with unary operator (not interned).
+	 */
+	static LTLFormula unary(Operator operator, LTLFormula operand) {
+		return new LTLFormula(operator, operand, null, null, null, 0);
+	}
+
+	/**
+	 * Creates formula with binary operator (not interned).
+	 */
+	static LTLFormula binary(Operator operator, LTLFormula left, LTLFormula right) {
+		return new LTLFormula(operator, left, right, null, null, 0);
+	}
+
+	/**
+	 * @return Operator of this formula.
+	 */
+	public Operator getOperator() {
+		return operator;
+	}
+
+	/**
+	 * @return <code>true</code> when this formula is {@link #TRUE}, <code>false</code> otherwise.
+	 */
+	public boolean isTrue() {
+		return (operator == Operator.TRUE);
+	}
+
+	/**
+	 * @return Operand of unary operator or left operand of binary operator.
+	 */
+	public LTLFormula getLeft() {
+		return left;
+	}
+
+	/**
+	 * @return Right operand of binary operator.
+	 */
+	public LTLFormula getRight() {
+		return right;
+	}
+
+	/**
+	 * @return Variable of atomic proposition.
+	 */
+	public Variable getVariable() {
+		return variable;
+	}
+
+	/**
+	 * @return Relation of atomic proposition.
+	 */
+	public Relation getRelation() {
+		return relation;
+	}
+
+	/**
+	 * @return Value of atomic proposition.
+	 */
+	public double getValue() {
+		return value;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof LTLFormula)) {
+			return false;
+		}
+		LTLFormula other = (LTLFormula) obj;
+		if ((hash != other.hash) || (operator != other.operator) || (left != other.left) || (right != other.right)) {
+			return false;
+		}
+		if (operator == Operator.ATOM) {
+			return (variable == other.variable) && (relation == other.relation)
+					&& (Double.doubleToLongBits(value) == Double.doubleToLongBits(other.value));
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return new FormulaBuilder().toString(this);
+	}
+
+}
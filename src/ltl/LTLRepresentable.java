@@ -11,8 +11,8 @@ package ltl;
 public interface LTLRepresentable {
 
 	/**
-	 * @param builder Settings of formula operators.
-	 * @return LTL representation of this object.
+	 * @param factory Factory which creates (and interns) the formula.
+	 * @return LTL representation of this object ({@link LTLFormula#TRUE} when it has no properties).
 	 */
-	public String toLTL(FormulaBuilder builder);
+	public LTLFormula toFormula(FormulaFactory factory);
 }
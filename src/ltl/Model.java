@@ -3,15 +3,15 @@
 package ltl;
 
 import java.awt.geom.Point2D;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -29,21 +29,31 @@ import exceptions.XMLException;
  * To modify model, use {@link #applyChange(ModelChange)}.
  * 
  * Stores information about selected graphic primitive.
+ * 
+ * Contained primitives are stored in persistent lists (see {@link IndexedList}) and are not modified in place
+ * once they are stored -- changed primitives are replaced by new ones instead. Thus, a consistent version of
+ * the model (see {@link #snapshot()}) is taken in constant time and each following change takes logarithmic time.
+ * The only exception are transitions adjacent to a selected event which follow the event while it is moved
+ * (see {@link #getEventSelector(int, Transformation)}); they are copied when the event is selected.
  *  
  * @author Tomáš Vejpustek
  *
  */
 public class Model implements XMLRepresentable, LTLRepresentable {
-	private List<Event> events = new ArrayList<Event>();
-	private List<Transition> transitions = new ArrayList<Transition>();
+	private IndexedList<Event> events = new IndexedList<Event>();
+	private IndexedList<Transition> transitions = new IndexedList<Transition>(); //interleaved with events
 	private int selectedEvent = -1;
 	private int selectedTransition = -1;
+	private int version = 0; //changed with contents or selection
+	private EventIndex index; //finds selected events
+	private ModelJournal journal = null; //records changes
 	
 	/**
 	 * Creates empty model with default transition (initial and terminal).
 	 */
 	public Model() {
 		transitions.add(new Transition(null, null));
+		index = new EventIndex(events);
 	}
 	
 	/**
@@ -52,8 +62,22 @@ public class Model implements XMLRepresentable, LTLRepresentable {
 	public void clear() {
 		unselect();
 		events.clear();
+		index.clear();
 		transitions.clear();
 		transitions.add(new Transition(null, null));
+		version++;
+		if (journal != null) {
+			journal.clear();
+		}
+	}
+	
+	/**
+	 * Version is changed with each change of contained events, transitions or selected primitive (which is
+	 * not iterated over). Used to find out whether a rendering of the model is up to date.
+	 * @return Current version of this model.
+	 */
+	public int getVersion() {
+		return version;
 	}
 
 	/**
@@ -65,16 +89,17 @@ public class Model implements XMLRepresentable, LTLRepresentable {
 			throw new IllegalStateException("Cannot add events when model is being edited.");
 		}
 		
-		Comparator<Event> comp = new EventTimeComparator();
-		int index = 0;
-		while ((index < events.size()) && (comp.compare(event, events.get(index)) >= 0)) {
-			index++;
-		}
+		int index = upperBound(event.getTime().getCenter());
 		events.add(index, event);
+		this.index.add(event);
 		Transition removed = transitions.remove(index);
 		Transition [] inserted = removed.split(event);
 		transitions.add(index, inserted[0]);
 		transitions.add(index+1, inserted[1]);
+		version++;
+		if (journal != null) {
+			journal.insertEvent(index, event, inserted[0], inserted[1]);
+		}
 		return new EventLocation(index, inserted[0], inserted[1], removed);
 	}
 	
@@ -87,9 +112,14 @@ public class Model implements XMLRepresentable, LTLRepresentable {
 	 */
 	void insertEvent(Event target, int index, Transition left, Transition right) {
 		events.add(index, target);
+		this.index.add(target);
 		transitions.remove(index);
 		transitions.add(index, left);
 		transitions.add(index+1, right);
+		version++;
+		if (journal != null) {
+			journal.insertEvent(index, target, left, right);
+		}
 	}
 	
 	/**
@@ -100,13 +130,17 @@ public class Model implements XMLRepresentable, LTLRepresentable {
 		if (!isEventSelected()) {
 			throw new IllegalStateException("Cannot delete event when there is no selected.");
 		}
-		events.remove(selectedEvent);
+		index.remove(events.remove(selectedEvent));
 		Transition left = transitions.remove(selectedEvent);
 		Transition right = transitions.remove(selectedEvent);
 		Transition joined = left.righJoin(right);
 		EventLocation result = new EventLocation(selectedEvent, left, right, joined);
 		transitions.add(selectedEvent, joined);
+		if (journal != null) {
+			journal.removeEvent(selectedEvent, joined);
+		}
 		selectedEvent = -1;
+		version++;
 		return result;
 	}
 
@@ -116,10 +150,14 @@ public class Model implements XMLRepresentable, LTLRepresentable {
 	 * @param joined Transition to replace the place of target event and its adjacent transitions.
 	 */
 	void removeEvent(int index, Transition joined) {
-		events.remove(index);
+		this.index.remove(events.remove(index));
 		transitions.remove(index);
 		transitions.remove(index);
 		transitions.add(index, joined);
+		version++;
+		if (journal != null) {
+			journal.removeEvent(index, joined);
+		}
 	}
 	
 	/**
@@ -138,11 +176,14 @@ public class Model implements XMLRepresentable, LTLRepresentable {
 		}
 		
 		int index = selectedEvent;
-		events.remove(index);
-		events.add(index, event);
-		transitions.get(index).setRight(event); //needed for undo and redo
-		transitions.get(index+1).setLeft(event); //needed for undo and redo
+		this.index.remove(events.set(index, event));
+		this.index.add(event);
+		attach(index, event);
 		selectedEvent = -1;
+		version++;
+		if (journal != null) {
+			journal.setEvent(index, event);
+		}
 		return index;
 	}
 	
@@ -181,6 +222,10 @@ public class Model implements XMLRepresentable, LTLRepresentable {
 		transitions.remove(index);
 		transitions.add(index, transition);
 		selectedTransition = -1;
+		version++;
+		if (journal != null) {
+			journal.setTransition(index, transition);
+		}
 		return index;
 	}
 	
@@ -201,23 +246,111 @@ public class Model implements XMLRepresentable, LTLRepresentable {
 		modifyTransition(target);
 	}
 	
+	/**
+	 * @param event Edited version of the selected event.
+	 * @return Model which differs from this one only in that the selected event is replaced by <code>event</code>
+	 * (other primitives are shared, adjacent transitions are copied). Used to evaluate the model while
+	 * the event is being edited, i.e. it should not be modified.
+	 */
+	public Model previewEvent(Event event) {
+		if (!isEventSelected()) {
+			throw new IllegalStateException("Cannot preview event when no event is selected.");
+		}
+		Model result = new Model(this);
+		result.events.set(selectedEvent, event);
+		result.attach(selectedEvent, event);
+		return result;
+	}
+
+	/**
+	 * @param transition Edited version of the selected transition.
+	 * @return Model which differs from this one only in that the selected transition is replaced by
+	 * <code>transition</code> (contained primitives are shared). Used to evaluate the model while the transition
+	 * is being edited, i.e. it should not be modified.
+	 */
+	public Model previewTransition(Transition transition) {
+		if (!isTransitionSelected()) {
+			throw new IllegalStateException("Cannot preview transition when no transition is selected.");
+		}
+		Model result = new Model(this);
+		result.transitions.set(selectedTransition, transition);
+		return result;
+	}
+
+	/**
+	 * @return Model containing the same primitives as this one with nothing selected, created in constant time.
+	 * Following changes of this model do not affect it. Used to read the model in background (e.g. to save it),
+	 * i.e. contained primitives are shared and should not be modified.
+	 */
+	public Model snapshot() {
+		Model result = new Model(this);
+		if (isEventSelected()) { //adjacent transitions may be changed by the selector
+			result.attach(selectedEvent, events.get(selectedEvent));
+		}
+		return result;
+	}
+	
+	/**
+	 * Records following changes of this model into <code>journal</code>.
+	 * @param journal Journal of changes, <code>null</code> when changes should not be recorded.
+	 */
+	public void setJournal(ModelJournal journal) {
+		this.journal = journal;
+	}
+	
+	/**
+	 * Creates model containing the same primitives as <code>source</code> with nothing selected.
+	 */
+	private Model(Model source) {
+		events = new IndexedList<Event>(source.events);
+		transitions = new IndexedList<Transition>(source.transitions);
+		index = new EventIndex(events);
+	}
+
+	/**
+	 * Replaces transitions adjacent to the event of given index by their copies.
+	 * @param event Event the copies are adjacent to.
+	 */
+	private void attach(int index, Event event) {
+		Transition left = transitions.get(index);
+		transitions.set(index, copy(left, left.getLeft(), event));
+		Transition right = transitions.get(index+1);
+		transitions.set(index+1, copy(right, event, right.getRight()));
+	}
+	
+	/**
+	 * @return Copy of <code>source</code> adjacent to given events.
+	 */
+	private static Transition copy(Transition source, Event left, Event right) {
+		Transition result = source.clone();
+		result.setLeft(left);
+		result.setRight(right);
+		return result;
+	}
+
 	/**
 	 * Unselects any previously selected selected graphical primitive.
 	 */
 	public void unselect() {
+		if (isEventSelected() || isTransitionSelected()) {
+			version++;
+		}
 		selectedEvent = -1;
 		selectedTransition = -1;
 	}
 	
 	/**
 	 * @param coord coordinate transformation.
-	 * @return Event selector for event of particular index.
+	 * @return Event selector for event of particular index. Transitions adjacent to the event are replaced by
+	 * their copies, which may be changed by the selector.
 	 */
 	public EventSelector getEventSelector(int index, Transformation coord) {
 		if (isEventSelected() || isTransitionSelected()) {
 			throw new IllegalStateException("Event or Transition is already selected.");
 		}
 		selectedEvent = index;
+		version++;
+		attach(index, events.get(index));
 		return EventSelector.get(coord, events.get(index), transitions.get(index), transitions.get(index+1));
 	}
 
@@ -230,22 +363,54 @@ public class Model implements XMLRepresentable, LTLRepresentable {
 			throw new IllegalStateException("An Event or Transition is selected, cannot select another.");
 		}
 		selectedTransition = index;
+		version++;
 		return TransitionSelector.get(coord, transitions.get(index));
 	}
 	
 	/**
-	 * @param coord coordinate transformation.
-	 * @param p point in on-screen coordinates.
-	 * @return List of events which contain target point.
+	 * @return Index of the first event whose time reference is not lesser than <code>time</code>
+	 * (number of events when there is none).
 	 */
-	private List<Event> getSelectedEvents(Point2D p, Transformation coord) {
-		List<Event> selected = new ArrayList<Event>();
-		for (Event e : events) {
-			if (e.contains(p, coord)) {
-				selected.add(e);
+	private int lowerBound(double time) {
+		int from = 0, to = events.size();
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (Double.compare(events.get(mid).getTime().getCenter(), time) < 0) {
+				from = mid + 1;
+			} else {
+				to = mid;
 			}
 		}
-		return selected;
+		return from;
+	}
+	
+	/**
+	 * @return Index of the first event whose time reference is greater than <code>time</code>
+	 * (number of events when there is none).
+	 */
+	private int upperBound(double time) {
+		int from = 0, to = events.size();
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (Double.compare(events.get(mid).getTime().getCenter(), time) <= 0) {
+				from = mid + 1;
+			} else {
+				to = mid;
+			}
+		}
+		return from;
+	}
+	
+	/**
+	 * @return Index of contained <code>event</code>.
+	 */
+	private int indexOf(Event event) {
+		for (int index = lowerBound(event.getTime().getCenter()); index < events.size(); index++) {
+			if (events.get(index) == event) {
+				return index;
+			}
+		}
+		return -1;
 	}
 	
 	/**
@@ -258,24 +423,32 @@ public class Model implements XMLRepresentable, LTLRepresentable {
 		if (isEventSelected() || isTransitionSelected()) {
 			throw new IllegalStateException("An Event or Transformation is selected, cannot select another.");
 		}
-		List<Event> selEvents = getSelectedEvents(p, coord);
-		if (!selEvents.isEmpty()) {
-			int minPriority = 10; //sufficiently high number
-			Event priorityEvent = null;
-			for (Event e : selEvents) {
-				if (e.selectionPriority() < minPriority) {
-					minPriority = e.selectionPriority();
-					priorityEvent = e;
+		//event with the lowest priority, the first one among equal
+		int minPriority = 10; //sufficiently high number
+		int priorityIndex = -1;
+		for (Event e : index.getContaining(p, coord)) {
+			int priority = e.selectionPriority();
+			if (priority <= minPriority) {
+				int eventIndex = indexOf(e);
+				if ((priority < minPriority) || (eventIndex < priorityIndex)) {
+					minPriority = priority;
+					priorityIndex = eventIndex;
 				}
 			}
-			selectedEvent = events.indexOf(priorityEvent);
-			if (selectedEvent >= 0) {
-				return EventSelector.get(coord, priorityEvent, transitions.get(selectedEvent), transitions.get(selectedEvent+1));
-			}
 		}
-		for (int index = 0; index < transitions.size(); index++) {
+		if (priorityIndex >= 0) {
+			selectedEvent = priorityIndex;
+			version++;
+			attach(selectedEvent, events.get(selectedEvent));
+			return EventSelector.get(coord, events.get(selectedEvent), transitions.get(selectedEvent), transitions.get(selectedEvent+1));
+		}
+		//only transitions between events surrounding the point in time may contain it
+		double time = coord.getTime(p.getX());
+		for (int index = lowerBound(time); (index < transitions.size())
+				&& ((index == 0) || (events.get(index-1).getTime().getCenter() <= time)); index++) {
 			if (transitions.get(index).contains(p, coord)) {
 				selectedTransition = index;
+				version++;
 				return TransitionSelector.get(coord, transitions.get(index)); 
 			}
 		}
@@ -296,6 +469,28 @@ public class Model implements XMLRepresentable, LTLRepresentable {
 		return new SkipReader<Transition>(transitions, selectedTransition);
 	}
 	
+	/**
+	 * @return Number of contained events (including selected one).
+	 */
+	int getEventCount() {
+		return events.size();
+	}
+	
+	/**
+	 * @return Contained event with given index (including selected one).
+	 */
+	Event getEvent(int index) {
+		return events.get(index);
+	}
+	
+	/**
+	 * @return Contained transition with given index (including selected one). Transition with index <code>i</code>
+	 * precedes the event with the same index, there is one more transition than events.
+	 */
+	Transition getTransition(int index) {
+		return transitions.get(index);
+	}
+	
 	/**
 	 * @return <code>true</code> if a contained event is selected, <code>false</code> otherwise.
 	 */
@@ -310,143 +505,152 @@ public class Model implements XMLRepresentable, LTLRepresentable {
 		return (selectedTransition >= 0);
 	}
 	
+	/**
+	 * Replaces contents of this model with loaded events and transitions. Used by {@link ModelLoader}.
+	 * @param events Events sorted by time.
+	 * @param transitions Transitions between <code>events</code> (one more than events).
+	 */
+	void load(List<Event> events, Transition [] transitions) {
+		clear();
+		this.events.addAll(events);
+		this.transitions.clear();
+		this.transitions.addAll(Arrays.asList(transitions));
+		index.clear();
+		version++;
+	}
+	
+	/**
+	 * Loads all events first and then all transitions (see {@link ModelLoader}).
+	 */
 	@Override
 	public void loadFromXML(Node node) throws XMLException {
 		clear();
 		NodeList nodes = node.getChildNodes();
-		
-		Map<Integer, Event> events = new HashMap<Integer, Event>();
+		ModelLoader loader = new ModelLoader();
 		for (int index = 0; index < nodes.getLength(); index++) {
 			Node n = nodes.item(index);
 			if (n.getNodeName().equals("event")) {
-				Event e = new Event(1, 1);
-				e.loadFromXML(n);
-				Integer id = Integer.valueOf(((Element)n).getAttribute("id"));
-				if (events.put(id, e) != null) {
-					throw new XMLException("err_xml_id_duplicity", "Duplicate Event ids in input file.");
-				}
-				addEvent(e);
+				loader.addEvent(n);
 			}
 		}
-		
 		for (int index = 0; index < nodes.getLength(); index++) {
 			Node n = nodes.item(index);
 			if (n.getNodeName().equals("transition")) {
-				Element e = (Element)n;
-				Event left, right;
-				if (e.hasAttribute("left")) {
-					left = events.get(Integer.valueOf(e.getAttribute("left")));
-					if (left == null) {
-						throw new XMLException("err_xml_id_left", "Transition with left event which does not exist.");
-					}
-				} else {
-					left = null;
-				}
-				if (e.hasAttribute("right")) {
-					right = events.get(Integer.valueOf(e.getAttribute("right")));
-					if (right == null) {
-						throw new XMLException("err_xml_id_right", "Transition with right event which does not exist.");
-					}
-				} else {
-					right = null;
-				}
-				Transition t = new Transition(left, right);
-				t.loadFromXML(n);
-				
-				int leftId = (t.getLeft() == null) ? -1 : this.events.indexOf(t.getLeft());
-				if (((leftId == this.events.size() - 1) && t.getRight() == null)
-						|| t.getRight().equals(this.events.get(leftId+1))) {
-					if (!transitions.remove(leftId+1).isEmpty()) {
-						throw new XMLException("err_xml_transition_duplicate", "Duplicate transition.");
-					}
-					transitions.add(leftId+1, t);
-				} else if (leftId < ((t.getRight() == null) ? this.events.size() : this.events.indexOf(t.getRight()))) {
-					throw new XMLException("xml_transitions_general", "General transitions not yet supported.");
-				} else {
-					throw new XMLException("err_xml_transitions_inconsistent", "Inconsistent ids in input file.");
-				}
+				loader.addTransition(n);
 			}
 		}
+		loader.load(this);
 	}
 
 	@Override
-	public Node toXML(Document document) {
-		return toXML(document, "formula");
+	public void toXML(XMLStreamWriter out, String name) throws XMLStreamException {
+		out.writeStartElement(name);
+		writeXMLContents(out);
+		out.writeEndElement();
 	}
-
-	@Override
-	public Node toXML(Document document, String name) {
-		Element model = document.createElement(name);
-		for (int index = 0; index < events.size(); index++) {
-			Element e = (Element)events.get(index).toXML(document);
-			e.setAttribute("id", Integer.toString(index));
-			model.appendChild(e);
+	
+	/**
+	 * Writes XML representations of events and transitions of this model (i.e. contents of its element) into
+	 * <code>out</code>.
+	 */
+	public void writeXMLContents(XMLStreamWriter out) throws XMLStreamException {
+		int index = 0;
+		for (Event event : events) {
+			out.writeStartElement("event");
+			out.writeAttribute("id", Integer.toString(index++));
+			event.writeXMLContents(out);
+			out.writeEndElement();
 		}
 		//default transitions
-		for (int index = 0; index < transitions.size(); index++) {
-			if (!transitions.get(index).isEmpty()) {
-				Element e = (Element)transitions.get(index).toXML(document);
+		index = 0;
+		for (Transition transition : transitions) {
+			if (!transition.isEmpty()) {
+				out.writeStartElement("transition");
 				if (index != 0) {
-					e.setAttribute("left", Integer.toString(index-1));
+					out.writeAttribute("left", Integer.toString(index-1));
 				}
 				if (index != transitions.size() - 1) {
-					e.setAttribute("right", Integer.toString(index));
+					out.writeAttribute("right", Integer.toString(index));
 				}
-				model.appendChild(e);
+				transition.writeXMLContents(out);
+				out.writeEndElement();
 			}
+			index++;
 		}
-		
-		//general transitions
-		/*Iterator<Transition> trans = transitions.iterator();
-		while (trans.hasNext()) {
-			Transition t = trans.next();
-			if (!t.isEmpty()) {
-				Element e = (Element)t.toXML(document);
-				if (t.getLeft() != null) {
-					e.setAttribute("left", Integer.toString(events.indexOf(t.getLeft())));
-				}
-				if (t.getRight() != null) {
-					e.setAttribute("right", Integer.toString(events.indexOf(t.getRight())));
-				}
-			}
-		}*/
-		return model;
 	}
 	
 	@Override
-	public String toLTL(FormulaBuilder builder) {
-		String formula = "";
-		Transition last = transitions.get(transitions.size() - 1);
+	public LTLFormula toFormula(FormulaFactory factory) {
+		//formula consists of transition 0, event 0, transition 1, ..., event n-1, transition n
+		//each of them nested in the previous one, e.g. "transition U (event & X(...))"
+		LTLFormula formula = null;
+		Transition last = transitions.get(events.size());
 		if (!last.isEmpty()) {
-			formula = builder.globally(last.toLTL(builder));
+			formula = factory.globally(last.toFormula(factory));
 		}
 		for (int index = events.size() - 1; index >= 0; index--) {
 			Event event = events.get(index);
-			String eventForm = event.toLTL(builder);
 			if (!event.isEmpty()) {
-				if (formula.isEmpty()) {
-					formula = eventForm;
+				if (formula == null) {
+					formula = event.toFormula(factory);
 				} else {
-					formula = builder.and(eventForm, builder.next(formula));
+					formula = factory.and(event.toFormula(factory), factory.next(formula));
 				}
 			}
 			
 			Transition trans = transitions.get(index);
-			String transForm = trans.toLTL(builder);
-			
 			if (!trans.isEmpty()) {
-				if (formula.isEmpty()) {
-					formula = builder.globally(transForm);
+				if (formula == null) {
+					formula = factory.globally(trans.toFormula(factory));
 				} else {
-					formula = builder.until(transForm, formula);
-				}
-			} else {
-				if (!formula.isEmpty()) {
-					formula = builder.future(formula);
+					formula = factory.until(trans.toFormula(factory), formula);
 				}
+			} else if (formula != null) {
+				formula = factory.future(formula);
+			}
+		}
+		
+		if (formula == null) {
+			return LTLFormula.TRUE;
+		} else {
+			return formula;
+		}
+	}
+	
+	/**
+	 * @param builder Settings of formula operators.
+	 * @return Text of LTL representation of this model.
+	 */
+	public String toLTL(FormulaBuilder builder) {
+		return builder.toString(toFormula(new FormulaFactory()));
+	}
+	
+	/**
+	 * Writes LTL representation of this model (see {@link #toFormula(FormulaFactory)}) into <code>out</code>.
+	 * @param builder Settings of formula operators.
+	 * @param out Destination of the formula (nothing is written when the formula is empty).
+	 * @throws IOException when <code>out</code> cannot be written into.
+	 */
+	public void toLTL(FormulaBuilder builder, Appendable out) throws IOException {
+		builder.write(toFormula(new FormulaFactory()), out);
+	}
+	
+	/**
+	 * @return <code>true</code> when LTL formula of this model is empty (i.e. no event or transition has a property set),
+	 * <code>false</code> otherwise.
+	 */
+	public boolean isFormulaEmpty() {
+		for (Event event : events) {
+			if (!event.isEmpty()) {
+				return false;
+			}
+		}
+		for (Transition trans : transitions) {
+			if (!trans.isEmpty()) {
+				return false;
 			}
 		}
-		return formula;
+		return true;
 	}
 
 }
@@ -40,4 +40,17 @@ public interface ModelChange {
 	 * @see {@link #undo(Model target)}.
 	 */
 	public void redo(Model target);
+	
+	/**
+	 * Merges this change with a change applied right after it into a single change.
+	 * @param following Change applied right after this one.
+	 * @return Change which has the effect of both changes, <code>null</code> when they cannot be merged.
+	 */
+	public ModelChange merge(ModelChange following);
+	
+	/**
+	 * @return Number of graphic primitives (events and transitions) held by this change. Used to estimate memory
+	 * taken by undo history.
+	 */
+	public int getSize();
 }
@@ -0,0 +1,299 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ltl;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Binary log of changes made to a {@link Model} since it has been saved. Used to recover unsaved changes
+ * after a crash by replaying them onto the saved model (see {@link #open(long, long, Model)}).
+ *
+ * The journal starts with a header identifying the saved version of the model (by length and checksum of the
+ * saved file) followed by records of changes (see {@link Model#setJournal(ModelJournal)}). Each record is
+ * written (flushed) as soon as the change is made. Records are appended, so each change takes time
+ * proportional only to the changed primitives.
+ *
+ * When the model is saved, records made before the save are dropped (see {@link #checkpoint()} and
+ * {@link #rebase(long, long, long)}). Records made while the model was being saved are kept.
+ *
+ * When the journal cannot be written to, it is deleted (an incomplete journal cannot be replayed) and
+ * following changes are not recorded.
+ *
+ * @author Tomáš Vejpustek
+ */
+public class ModelJournal {
+	private static final int MAGIC = 0x4C544A31; //"LTJ1"
+	private static final int HEADER_SIZE = 4 + 8 + 8;
+
+	//records
+	private static final byte INSERT_EVENT = 1;
+	private static final byte REMOVE_EVENT = 2;
+	private static final byte SET_EVENT = 3;
+	private static final byte SET_TRANSITION = 4;
+	private static final byte CLEAR = 5;
+
+	//states of bounds (see AbstractProperty)
+	static final byte ABSENT = 0;
+	static final byte UNBOUND = 1;
+	static final byte BOUND = 2;
+
+	private final File file;
+	private DataOutputStream out = null; //null when closed
+	private long offset; //length of the file when out was opened
+	private long dropped = 0; //length of records dropped by rebase
+
+	/**
+	 * @param file File containing the journal.
+	 */
+	public ModelJournal(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Opens journal of a model loaded from a saved file. When the journal exists and belongs to the same saved
+	 * version of the model, its changes are replayed onto <code>target</code> and following changes are appended.
+	 * Otherwise, the journal is started anew.
+	 * @param length Length of the file containing the saved model.
+	 * @param checksum Checksum of the file containing the saved model.
+	 * @param target Model loaded from the saved file. Should not have a journal yet.
+	 * @return Number of changes replayed onto <code>target</code>.
+	 */
+	public synchronized int open(long length, long checksum, Model target) throws IOException {
+		close();
+		int replayed = 0;
+		long valid = 0; //length of the file without incomplete record at its end
+		if (file.exists()) {
+			byte [] data = Files.readAllBytes(file.toPath());
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+			try {
+				if ((in.readInt() == MAGIC) && (in.readLong() == length) && (in.readLong() == checksum)) {
+					valid = HEADER_SIZE;
+					while (in.available() > 0) {
+						replay(in, target);
+						replayed++;
+						valid = data.length - in.available();
+					}
+				}
+			} catch (EOFException eofe) {
+				//incomplete header or record (crash while writing) -- ignored
+			} catch (RuntimeException re) { //corrupted record -- changes replayed so far are kept
+				re.printStackTrace();
+			}
+		}
+
+		if (valid > 0) {
+			RandomAccessFile truncated = new RandomAccessFile(file, "rw");
+			try {
+				truncated.setLength(valid);
+			} finally {
+				truncated.close();
+			}
+			openStream();
+		} else {
+			writeHeader(file, length, checksum);
+			openStream();
+		}
+		dropped = 0;
+		return replayed;
+	}
+
+	/**
+	 * Starts an empty journal of a model which has not been saved yet (i.e. which cannot be recovered until
+	 * {@link #rebase(long, long, long)} is called).
+	 */
+	public synchronized void create() throws IOException {
+		close();
+		writeHeader(file, -1, 0);
+		openStream();
+		dropped = 0;
+	}
+
+	/**
+	 * @return Position of the following record. Used to drop preceding records when the model saved at this
+	 * point has been written (see {@link #rebase(long, long, long)}).
+	 */
+	public synchronized long checkpoint() {
+		if (out == null) {
+			return dropped;
+		}
+		return dropped + offset + out.size() - HEADER_SIZE;
+	}
+
+	/**
+	 * Drops records preceding <code>checkpoint</code> and makes the journal belong to a newly saved version of
+	 * the model. The journal is replaced atomically.
+	 * @param length Length of the file containing the saved model.
+	 * @param checksum Checksum of the file containing the saved model.
+	 * @param checkpoint Position returned by {@link #checkpoint()} when the saved model was taken.
+	 */
+	public synchronized void rebase(long length, long checksum, long checkpoint) {
+		if (out == null) {
+			return;
+		}
+		try {
+			out.flush();
+			byte [] data = Files.readAllBytes(file.toPath());
+			int from = (int) (checkpoint - dropped + HEADER_SIZE);
+			File temp = new File(file.getPath() + ".tmp");
+			writeHeader(temp, length, checksum);
+			FileOutputStream tail = new FileOutputStream(temp, true);
+			try {
+				tail.write(data, from, data.length - from);
+				tail.getFD().sync();
+			} finally {
+				tail.close();
+			}
+			out.close();
+			out = null;
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException amnse) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			openStream();
+			dropped = checkpoint;
+		} catch (IOException ioe) {
+			fail(ioe);
+		}
+	}
+
+	/**
+	 * Stops recording changes and deletes the journal (i.e. when changes have been saved or discarded).
+	 */
+	public synchronized void delete() {
+		close();
+		file.delete();
+	}
+
+	void insertEvent(int index, Event event, Transition left, Transition right) {
+		record(INSERT_EVENT, index, event, left, right);
+	}
+
+	void removeEvent(int index, Transition joined) {
+		record(REMOVE_EVENT, index, null, joined, null);
+	}
+
+	void setEvent(int index, Event event) {
+		record(SET_EVENT, index, event, null, null);
+	}
+
+	void setTransition(int index, Transition transition) {
+		record(SET_TRANSITION, index, null, transition, null);
+	}
+
+	void clear() {
+		record(CLEAR, -1, null, null, null);
+	}
+
+	/**
+	 * Writes a record. Arguments which are <code>null</code> (or negative <code>index</code>) are not written.
+	 */
+	private synchronized void record(byte type, int index, Event event, Transition first, Transition second) {
+		if (out == null) {
+			return;
+		}
+		try {
+			out.writeByte(type);
+			if (index >= 0) {
+				out.writeInt(index);
+			}
+			if (event != null) {
+				event.write(out);
+			}
+			if (first != null) {
+				first.write(out);
+			}
+			if (second != null) {
+				second.write(out);
+			}
+			out.flush();
+		} catch (IOException ioe) {
+			fail(ioe);
+		}
+	}
+
+	/**
+	 * Reads a record and applies it onto <code>target</code>.
+	 */
+	private static void replay(DataInput in, Model target) throws IOException {
+		byte type = in.readByte();
+		if (type == CLEAR) {
+			target.clear();
+			return;
+		}
+		int index = in.readInt();
+		switch (type) {
+			case INSERT_EVENT:
+				Event event = Event.read(in);
+				Transition left = Transition.read(in, getEvent(target, index - 1), event);
+				Transition right = Transition.read(in, event, getEvent(target, index));
+				target.insertEvent(event, index, left, right);
+				break;
+			case REMOVE_EVENT:
+				target.removeEvent(index, Transition.read(in, getEvent(target, index - 1), getEvent(target, index + 1)));
+				break;
+			case SET_EVENT:
+				target.modifyEvent(Event.read(in), index);
+				break;
+			case SET_TRANSITION:
+				target.modifyTransition(Transition.read(in, getEvent(target, index - 1), getEvent(target, index)), index);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown journal record.");
+		}
+	}
+
+	/**
+	 * @return Event of given index, <code>null</code> when there is no such event (i.e. beyond ends of the model).
+	 */
+	private static Event getEvent(Model target, int index) {
+		return ((index < 0) || (index >= target.getEventCount())) ? null : target.getEvent(index);
+	}
+
+	private static void writeHeader(File target, long length, long checksum) throws IOException {
+		DataOutputStream header = new DataOutputStream(new FileOutputStream(target));
+		try {
+			header.writeInt(MAGIC);
+			header.writeLong(length);
+			header.writeLong(checksum);
+		} finally {
+			header.close();
+		}
+	}
+
+	private void openStream() throws IOException {
+		offset = file.length();
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+	}
+
+	private void close() {
+		if (out != null) {
+			try {
+				out.close();
+			} catch (IOException ioe) {
+				ioe.printStackTrace();
+			}
+			out = null;
+		}
+	}
+
+	/**
+	 * Stops recording after an error and deletes the journal, which is not complete.
+	 */
+	private void fail(IOException cause) {
+		cause.printStackTrace();
+		delete();
+	}
+}
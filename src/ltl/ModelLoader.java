@@ -0,0 +1,122 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ltl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import exceptions.XMLException;
+
+/**
+ * Builds a {@link Model} from XML representations of its events and transitions, which are passed one by one
+ * (all events first, then all transitions) so that the whole document need not be held in memory.
+ *
+ * Events are sorted by time (stable, i.e. events with the same time reference stay in document order as if added
+ * one by one by {@link Model#addEvent(Event)}) when the first transition (or the end of model) is reached. All
+ * transitions between them are created at once and loaded transitions replace them according to the ids of their
+ * adjacent events. Thus, the model is loaded in O(n log n) time.
+ *
+ * @author Tomáš Vejpustek
+ */
+public class ModelLoader {
+	private Map<Integer, Event> ids = new HashMap<Integer, Event>();
+	private List<Event> events = new ArrayList<Event>();
+	private Map<Event, Integer> positions = null; //positions of sorted events, null until the events are sorted
+	private Transition [] transitions;
+
+	/**
+	 * Loads an event.
+	 * @param node XML representation of the event (see {@link Event#toXML(javax.xml.stream.XMLStreamWriter, String)})
+	 * with attribute <code>id</code>.
+	 * @throws IllegalStateException when a transition has been already loaded.
+	 */
+	public void addEvent(Node node) throws XMLException {
+		if (positions != null) {
+			throw new IllegalStateException("Events cannot be loaded after transitions.");
+		}
+		Event e = new Event(1, 1);
+		e.loadFromXML(node);
+		Integer id = Integer.valueOf(((Element)node).getAttribute("id"));
+		if (ids.put(id, e) != null) {
+			throw new XMLException("err_xml_id_duplicity", "Duplicate Event ids in input file.");
+		}
+		events.add(e);
+	}
+
+	/**
+	 * Loads a transition.
+	 * @param node XML representation of the transition
+	 * (see {@link Transition#toXML(javax.xml.stream.XMLStreamWriter, String)}) with attributes <code>left</code> and <code>right</code> referring to ids of its adjacent events (when it has any).
+	 */
+	public void addTransition(Node node) throws XMLException {
+		sortEvents();
+		Element e = (Element)node;
+		Event left, right;
+		if (e.hasAttribute("left")) {
+			left = ids.get(Integer.valueOf(e.getAttribute("left")));
+			if (left == null) {
+				throw new XMLException("err_xml_id_left", "Transition with left event which does not exist.");
+			}
+		} else {
+			left = null;
+		}
+		if (e.hasAttribute("right")) {
+			right = ids.get(Integer.valueOf(e.getAttribute("right")));
+			if (right == null) {
+				throw new XMLException("err_xml_id_right", "Transition with right event which does not exist.");
+			}
+		} else {
+			right = null;
+		}
+		Transition t = new Transition(left, right);
+		t.loadFromXML(node);
+
+		int leftId = (left == null) ? -1 : positions.get(left);
+		int rightId = (right == null) ? events.size() : positions.get(right);
+		if (rightId == leftId + 1) {
+			if (!transitions[rightId].isEmpty()) {
+				throw new XMLException("err_xml_transition_duplicate", "Duplicate transition.");
+			}
+			transitions[rightId] = t;
+		} else if (leftId < rightId) {
+			throw new XMLException("xml_transitions_general", "General transitions not yet supported.");
+		} else {
+			throw new XMLException("err_xml_transitions_inconsistent", "Inconsistent ids in input file.");
+		}
+	}
+
+	/**
+	 * Replaces contents of <code>target</code> with loaded events and transitions.
+	 */
+	public void load(Model target) {
+		sortEvents();
+		target.load(events, transitions);
+	}
+
+	/**
+	 * Sorts loaded events (only once) and creates transitions between them.
+	 */
+	private void sortEvents() {
+		if (positions != null) {
+			return;
+		}
+		Collections.sort(events, new EventTimeComparator());
+		positions = new IdentityHashMap<Event, Integer>();
+		transitions = new Transition [events.size() + 1];
+		Event previous = null;
+		for (int index = 0; index < events.size(); index++) {
+			Event current = events.get(index);
+			positions.put(current, index);
+			transitions[index] = new Transition(previous, current);
+			previous = current;
+		}
+		transitions[events.size()] = new Transition(previous, null);
+	}
+}
@@ -58,5 +58,26 @@ public class ModifyEvent implements ModelChange {
 		}
 		target.modifyEvent(this.target, index);
 	}
+	
+	/**
+	 * Merges modifications of the same {@link Event}.
+	 */
+	@Override
+	public ModelChange merge(ModelChange following) {
+		if ((index < 0) || !(following instanceof ModifyEvent)) {
+			return null;
+		}
+		ModifyEvent next = (ModifyEvent)following;
+		if (next.index != index) {
+			return null;
+		}
+		ModifyEvent result = new ModifyEvent(original, next.target);
+		result.index = index;
+		return result;
+	}
 
+	@Override
+	public int getSize() {
+		return 2;
+	}
 }
@@ -13,7 +13,7 @@ import coordinates.Transformation;
  */
 public class ModifyTransition implements ModelChange {
 	private Transition original, target;
-	private int index;
+	private int index = -1;
 	
 	/**
 	 * Prepares transition modification.
@@ -57,4 +57,26 @@ public class ModifyTransition implements ModelChange {
 		}
 		target.modifyTransition(this.target, index);
 	}
+	
+	/**
+	 * Merges modifications of the same {@link Transition}.
+	 */
+	@Override
+	public ModelChange merge(ModelChange following) {
+		if ((index < 0) || !(following instanceof ModifyTransition)) {
+			return null;
+		}
+		ModifyTransition next = (ModifyTransition)following;
+		if (next.index != index) {
+			return null;
+		}
+		ModifyTransition result = new ModifyTransition(original, next.target);
+		result.index = index;
+		return result;
+	}
+
+	@Override
+	public int getSize() {
+		return 2;
+	}
 }
@@ -0,0 +1,504 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ltl;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import ltl.Property.Bound;
+import series.TimeSeries;
+
+/**
+ * Evaluates a {@link Model} directly on points of a time series, i.e. without building its LTL formula.
+ *
+ * <p>Model is translated into a chain of stages equivalent to the formula created by {@link Model#toLTL(FormulaBuilder)}
+ * -- each nonempty event is a stage "<i>event</i> &amp; X <i>rest</i>" (or just "<i>event</i>" when it is the last one),
+ * each transition is a stage "<i>transition</i> U <i>rest</i>" ("F <i>rest</i>" when it is empty) and the last nonempty
+ * transition is a stage "G <i>transition</i>". Properties are compared the same way as in the formula (e.g. bounds are strict).
+ * The chain is run as a nondeterministic automaton over time series points, which are fed by {@link #step(double, double, double)}
+ * one after another, so that the time series is read only once.</p>
+ *
+ * <p>Time series is regarded as a finite sequence of states: "X" requires the next point to exist and "G" holds when
+ * its argument holds in all remaining points.</p>
+ *
+ * <p>Each run of the automaton remembers points in which events occurred (witnesses). When more runs reach the same stage,
+ * the first one is kept. Model is copied when the monitor is created, i.e. later changes of model do not affect it.</p>
+ *
+ * @author Tomáš Vejpustek
+ *
+ */
+public class Monitor {
+	private static enum StageType {EVENT, UNTIL, FUTURE, GLOBALLY};
+
+	/**
+	 * One stage of the formula.
+	 */
+	static class Stage {
+		private final StageType type;
+		private final Condition condition;
+		private final int event;
+
+		/**
+		 * @param condition Condition of event or transition (<code>null</code> for {@link StageType#FUTURE}).
+		 * @param event Index of event in model (<code>-1</code> when the stage is not an event).
+		 */
+		Stage(StageType type, Condition condition, int event) {
+			this.type = type;
+			this.condition = condition;
+			this.event = event;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Stage)) {
+				return false;
+			}
+			Stage other = (Stage) obj;
+			return (type == other.type) && (event == other.event) && equal(condition, other.condition);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31*(31*type.hashCode() + event) + (condition == null ? 0 : condition.hashCode());
+		}
+	}
+
+	/**
+	 * @return <code>true</code> when both objects are <code>null</code> or equal, <code>false</code> otherwise.
+	 */
+	private static boolean equal(Object o1, Object o2) {
+		return (o1 == null) ? (o2 == null) : o1.equals(o2);
+	}
+
+	/**
+	 * Conjunction of constraints of time, concentration and derivative (absent constraints hold always).
+	 */
+	private static class Condition {
+		private final Constraint time, concentration, derivative;
+
+		Condition(Constraint time, Constraint concentration, Constraint derivative) {
+			this.time = time;
+			this.concentration = concentration;
+			this.derivative = derivative;
+		}
+
+		boolean holds(double t, double c, double d) {
+			return (time == null || time.holds(t)) && (concentration == null || concentration.holds(c))
+					&& (derivative == null || derivative.holds(d));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Condition)) {
+				return false;
+			}
+			Condition other = (Condition) obj;
+			return equal(time, other.time) && equal(concentration, other.concentration) && equal(derivative, other.derivative);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31*(31*(time == null ? 0 : time.hashCode()) + (concentration == null ? 0 : concentration.hashCode()))
+					+ (derivative == null ? 0 : derivative.hashCode());
+		}
+	}
+
+	/**
+	 * Constraint of one variable, created from {@link Property} the same way as by {@link FormulaBuilder}.
+	 */
+	private static class Constraint {
+		private final boolean point, either;
+		private final double value, lower, upper;
+		private final boolean hasLower, hasUpper;
+
+		private Constraint(double value) {
+			point = true;
+			this.value = value;
+			either = hasLower = hasUpper = false;
+			lower = upper = Double.NaN;
+		}
+
+		private Constraint(boolean hasLower, double lower, boolean hasUpper, double upper, boolean either) {
+			point = false;
+			value = Double.NaN;
+			this.hasLower = hasLower;
+			this.lower = lower;
+			this.hasUpper = hasUpper;
+			this.upper = upper;
+			this.either = either;
+		}
+
+		/**
+		 * @return Constraint of time or concentration property, <code>null</code> when it is not set.
+		 */
+		static Constraint get(Property prop) {
+			if (!prop.isSet()) {
+				return null;
+			} else if (prop.isPoint()) {
+				return new Constraint(prop.getCenter());
+			} else {
+				return new Constraint(prop.hasBound(Bound.LOWER), prop.getBound(Bound.LOWER),
+						prop.hasBound(Bound.UPPER), prop.getBound(Bound.UPPER), false);
+			}
+		}
+
+		/**
+		 * @return Constraint of derivative, <code>null</code> when it is not set or unbounded.
+		 */
+		static Constraint getDerivative(Property der) {
+			if (!der.isSet()) {
+				return null;
+			} else if (der.isPoint()) {
+				return new Constraint(der.getBound(Bound.UPPER));
+			} else {
+				double lower = der.getBound(Bound.LOWER);
+				double upper = der.getBound(Bound.UPPER);
+				boolean hasLower = !Double.isInfinite(lower);
+				boolean hasUpper = !Double.isInfinite(upper);
+				if (!hasLower && !hasUpper) {
+					return null;
+				}
+				return new Constraint(hasLower, lower, hasUpper, upper, hasLower && hasUpper && (upper < lower));
+			}
+		}
+
+		boolean holds(double x) {
+			if (point) {
+				return (x == value);
+			} else if (either) {
+				return (x > lower) || (x < upper);
+			} else {
+				return (!hasLower || x > lower) && (!hasUpper || x < upper);
+			}
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Constraint)) {
+				return false;
+			}
+			Constraint other = (Constraint) obj;
+			return (point == other.point) && (either == other.either) && (hasLower == other.hasLower) && (hasUpper == other.hasUpper)
+					&& (Double.compare(value, other.value) == 0) && (Double.compare(lower, other.lower) == 0)
+					&& (Double.compare(upper, other.upper) == 0);
+		}
+
+		@Override
+		public int hashCode() {
+			long bits = Double.doubleToLongBits(value) + 31*Double.doubleToLongBits(lower) + 961*Double.doubleToLongBits(upper);
+			return (int)(bits ^ (bits >>> 32));
+		}
+	}
+
+	/**
+	 * Point in which an event occurred in a run, linked to witnesses of preceding events.
+	 */
+	static class Witness {
+		private final int event, index;
+		private final Witness parent;
+
+		Witness(int event, int index, Witness parent) {
+			this.event = event;
+			this.index = index;
+			this.parent = parent;
+		}
+	}
+
+	/** run which has matched no event yet */
+	private static final Witness START = new Witness(-1, -1, null);
+
+	private final int events;
+	private final Stage [] stages;
+	private final int from, to; //stages run by this monitor
+	private Witness [] current, next; //runs in each stage for current and next point (null when there is none)
+	private int position = 0;
+	private boolean alive;
+	private Witness accepted = null; //run satisfying the formula regardless of following points
+	private Witness held = null; //run in globally stage whose condition holds in the last point
+	private Witness progress; //run which has reached the furthest stage
+	private int progressStage;
+	private Witness left = null, entered = null; //runs leaving the last run stage in the last point (see getLeft(), getEntered())
+
+	/**
+	 * Creates monitor of a model.
+	 */
+	public Monitor(Model model) {
+		events = model.getEventCount();
+		LinkedList<Stage> chain = new LinkedList<Stage>();
+		Transition last = model.getTransition(events);
+		if (!last.isEmpty()) {
+			chain.addFirst(new Stage(StageType.GLOBALLY, getCondition(last), -1));
+		}
+		for (int index = events - 1; index >= 0; index--) {
+			Event event = model.getEvent(index);
+			if (!event.isEmpty()) {
+				chain.addFirst(new Stage(StageType.EVENT, getCondition(event), index));
+			}
+			Transition trans = model.getTransition(index);
+			if (!trans.isEmpty()) {
+				chain.addFirst(new Stage(chain.isEmpty() ? StageType.GLOBALLY : StageType.UNTIL, getCondition(trans), -1));
+			} else if (!chain.isEmpty()) {
+				chain.addFirst(new Stage(StageType.FUTURE, null, -1));
+			}
+		}
+		stages = chain.toArray(new Stage [chain.size()]);
+		from = 0;
+		to = stages.length;
+		current = new Witness [stages.length];
+		next = new Witness [stages.length];
+		progress = START;
+		progressStage = 0;
+		if (stages.length == 0) { //empty formula
+			accepted = START;
+			alive = false;
+		} else {
+			current[0] = START;
+			alive = true;
+		}
+	}
+
+	/**
+	 * Creates monitor which runs only a part of stages of another monitor -- used for incremental evaluation.
+	 *
+	 * When <code>from</code> is not <code>0</code>, runs enter the first stage only by {@link #step(double, double, double, Witness, Witness, boolean)}.
+	 * When <code>to</code> is not the number of stages, runs leaving the last stage are not advanced further,
+	 * but are available by {@link #getLeft()} and {@link #getEntered()}.
+	 * @param chain Monitor whose stages are run (it is not changed).
+	 * @param from Index of the first run stage.
+	 * @param to Index following the last run stage.
+	 */
+	Monitor(Monitor chain, int from, int to) {
+		events = chain.events;
+		stages = chain.stages;
+		this.from = from;
+		this.to = to;
+		current = new Witness [stages.length];
+		next = new Witness [stages.length];
+		alive = true;
+		if (stages.length == 0) { //empty formula
+			accepted = START;
+			alive = false;
+			progress = START;
+		} else if (from == 0) {
+			current[0] = START;
+			progress = START;
+			progressStage = 0;
+		} else {
+			progress = null;
+			progressStage = from - 1;
+		}
+	}
+
+	/**
+	 * @return Stages of the formula.
+	 */
+	Stage [] getStages() {
+		return stages;
+	}
+
+	/**
+	 * @return Number of events of the model, i.e. length of witnesses (empty events have no stage).
+	 */
+	int getEventCount() {
+		return events;
+	}
+
+	private static Condition getCondition(Event event) {
+		return new Condition(Constraint.get(event.getTime()), Constraint.get(event.getConcentration()),
+				Constraint.getDerivative(event.getDerivative()));
+	}
+
+	private static Condition getCondition(Transition trans) {
+		return new Condition(null, Constraint.get(trans.getConcentration()), Constraint.getDerivative(trans.getDerivative()));
+	}
+
+	/**
+	 * Reads the next point of time series. Points following a decision (see {@link #isDecided()}) are ignored.
+	 * @param time Time value of the point.
+	 * @param concentration Species concentration in the point.
+	 * @param derivative Species concentration derivative in the point.
+	 */
+	public void step(double time, double concentration, double derivative) {
+		step(time, concentration, derivative, null, null, false);
+	}
+
+	/**
+	 * Reads the next point of time series, with runs coming from preceding stages which are not run by this monitor.
+	 * @param left Run which may leave the preceding stage (until or future) in this point (or <code>null</code>).
+	 * @param entered Run which enters the first stage in the next point from the preceding one (or <code>null</code>).
+	 * @param alive <code>true</code> when the preceding stages are not dead in this point, <code>false</code> otherwise.
+	 */
+	void step(double time, double concentration, double derivative, Witness left, Witness entered, boolean alive) {
+		position++;
+		if (isDecided()) {
+			return;
+		}
+		if (left != null && current[from] == null) {
+			current[from] = left;
+		}
+		//runs which may leave until or future stage in this point
+		for (int k = from; k < to - 1; k++) {
+			if (current[k] != null && current[k+1] == null
+					&& (stages[k].type == StageType.UNTIL || stages[k].type == StageType.FUTURE)) {
+				current[k+1] = current[k];
+			}
+		}
+		this.left = null;
+		this.entered = null;
+		if (to < stages.length && (stages[to-1].type == StageType.UNTIL || stages[to-1].type == StageType.FUTURE)) {
+			this.left = current[to-1];
+		}
+		held = null;
+		this.alive = alive;
+		if (entered != null) {
+			advance(from, entered);
+		}
+		for (int k = from; k < to; k++) {
+			Witness run = current[k];
+			if (run == null) {
+				continue;
+			}
+			if (k > progressStage) {
+				progress = run;
+				progressStage = k;
+			}
+			Stage stage = stages[k];
+			switch (stage.type) {
+			case EVENT:
+				if (stage.condition.holds(time, concentration, derivative)) {
+					Witness matched = new Witness(stage.event, position - 1, run);
+					if (k == stages.length - 1) {
+						if (accepted == null) {
+							accepted = matched;
+						}
+					} else if (k == to - 1) {
+						this.entered = matched;
+						this.alive = true;
+					} else {
+						advance(k+1, matched);
+					}
+				}
+				break;
+			case UNTIL:
+				if (stage.condition.holds(time, concentration, derivative)) {
+					advance(k, run);
+				}
+				break;
+			case FUTURE:
+				advance(k, run);
+				break;
+			case GLOBALLY:
+				if (stage.condition.holds(time, concentration, derivative)) {
+					advance(k, run);
+					held = run;
+				}
+				break;
+			}
+		}
+		Witness [] swap = current;
+		current = next;
+		next = swap;
+		Arrays.fill(next, null);
+	}
+
+	/**
+	 * @return Run which may leave the last run stage (until or future) in the last read point, <code>null</code>
+	 * when there is none or all stages are run.
+	 */
+	Witness getLeft() {
+		return left;
+	}
+
+	/**
+	 * @return Run which enters the stage following the last run one in the point following the last read one,
+	 * <code>null</code> when there is none or all stages are run.
+	 */
+	Witness getEntered() {
+		return entered;
+	}
+
+	/**
+	 * Skips points in which no run can be in run stages.
+	 */
+	void skip(int points) {
+		position += points;
+	}
+
+	/**
+	 * Moves a run to a stage in the next point (unless there is one already).
+	 */
+	private void advance(int stage, Witness run) {
+		if (next[stage] == null) {
+			next[stage] = run;
+		}
+		alive = true;
+	}
+
+	/**
+	 * @return <code>true</code> when the verdict does not depend on following points (formula is already satisfied
+	 * or cannot be satisfied anymore), <code>false</code> otherwise.
+	 */
+	public boolean isDecided() {
+		return (accepted != null) || !alive;
+	}
+
+	/**
+	 * @return Number of points read so far.
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Ends the time series.
+	 * @return Evaluation of the model on points read so far.
+	 */
+	public Evaluation finish() {
+		return finish(START);
+	}
+
+	/**
+	 * @return Run which has reached the furthest stage, <code>null</code> when no run has reached run stages.
+	 */
+	Witness getProgress() {
+		return progress;
+	}
+
+	/**
+	 * Ends the time series.
+	 * @param preceding Run which has reached the furthest of preceding stages (which are not run by this monitor).
+	 * @return Evaluation of the model on points read so far.
+	 */
+	Evaluation finish(Witness preceding) {
+		Witness run;
+		boolean satisfied;
+		if (accepted != null) {
+			run = accepted;
+			satisfied = true;
+		} else if (held != null && position > 0) {
+			run = held;
+			satisfied = true;
+		} else {
+			run = (progress != null) ? progress : preceding;
+			satisfied = false;
+		}
+		int [] witnesses = new int [events];
+		Arrays.fill(witnesses, -1);
+		for (Witness w = run; w != START; w = w.parent) {
+			witnesses[w.event] = w.index;
+		}
+		return new Evaluation(satisfied, witnesses);
+	}
+
+	/**
+	 * Evaluates a model on a time series in one pass over its points (which stops as soon as the verdict is decided).
+	 * @return Evaluation of <code>model</code> on <code>series</code>.
+	 */
+	public static Evaluation evaluate(Model model, TimeSeries series) {
+		Monitor monitor = new Monitor(model);
+		for (int i = 0; i < series.getSize() && !monitor.isDecided(); i++) {
+			monitor.step(series.getTime(i), series.getConcentration(i), series.getDerivative(i));
+		}
+		return monitor.finish();
+	}
+}
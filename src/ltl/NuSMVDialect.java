@@ -0,0 +1,78 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ltl;
+
+import java.io.IOException;
+
+import ltl.LTLFormula.Operator;
+import ltl.LTLFormula.Relation;
+import ltl.LTLFormula.Variable;
+
+/**
+ * Syntax of NuSMV LTL specifications, e.g. "<code>LTLSPEC x &gt; 1 U G(dx &lt; 0)</code>".
+ * Variables are named <code>t</code> (time), <code>x</code> (concentration) and <code>dx</code> (derivative).
+ *
+ * @author Tomáš Vejpustek
+ */
+public class NuSMVDialect extends Dialect {
+	/** Name of the dialect */
+	public static final String NAME = "nusmv";
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public String getDescription() {
+		return "NuSMV LTL specification";
+	}
+
+	@Override
+	public String getExtension() {
+		return "smv";
+	}
+
+	@Override
+	public String getOperator(Operator operator) {
+		switch (operator) {
+		case TRUE: return "TRUE";
+		case NOT: return "!";
+		case NEXT: return "X";
+		case FUTURE: return "F";
+		case GLOBALLY: return "G";
+		case AND: return "&";
+		case OR: return "|";
+		case UNTIL: return "U";
+		default: throw new IllegalArgumentException("Operator " + operator + " has no text.");
+		}
+	}
+
+	@Override
+	public String getVariable(Variable variable) {
+		switch (variable) {
+		case TIME: return "t";
+		case CONCENTRATION: return "x";
+		default: return "dx";
+		}
+	}
+
+	@Override
+	public String getRelation(Relation relation) {
+		switch (relation) {
+		case EQUAL: return " = ";
+		case LESSER: return " < ";
+		default: return " > ";
+		}
+	}
+
+	@Override
+	public void begin(Appendable out) throws IOException {
+		out.append("LTLSPEC ");
+	}
+
+	@Override
+	public void end(Appendable out) throws IOException {
+		out.append('\n');
+	}
+}
@@ -0,0 +1,74 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ltl;
+
+import ltl.LTLFormula.Operator;
+import ltl.LTLFormula.Relation;
+import ltl.LTLFormula.Variable;
+
+/**
+ * Native syntax of the editor, e.g. "<code>([X]&gt;1.0)U(G(d[X]&lt;0.0))</code>".
+ * Formula which is always satisfied is written as empty text.
+ *
+ * @author Tomáš Vejpustek
+ */
+public class PlainDialect extends Dialect {
+	/** Name of the dialect */
+	public static final String NAME = "plain";
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public String getDescription() {
+		return "LTL formulae file";
+	}
+
+	@Override
+	public String getExtension() {
+		return "ltl";
+	}
+
+	@Override
+	public String getOperator(Operator operator) {
+		switch (operator) {
+		case TRUE: return "";
+		case NOT: return "!";
+		case NEXT: return "X";
+		case FUTURE: return "F";
+		case GLOBALLY: return "G";
+		case AND: return "&";
+		case OR: return "|";
+		case UNTIL: return "U";
+		default: throw new IllegalArgumentException("Operator " + operator + " has no text.");
+		}
+	}
+
+	@Override
+	public String getVariable(Variable variable) {
+		switch (variable) {
+		case TIME: return "t";
+		case CONCENTRATION: return "[X]";
+		default: return "d[X]";
+		}
+	}
+
+	@Override
+	public String getRelation(Relation relation) {
+		switch (relation) {
+		case EQUAL: return "=";
+		case LESSER: return "<";
+		default: return ">";
+		}
+	}
+
+	/**
+	 * Values are written the same as in formula files (see {@link Double#toString(double)}).
+	 */
+	@Override
+	public String formatValue(double value) {
+		return Double.toString(value);
+	}
+}
@@ -2,11 +2,13 @@
 //Full copyright notice found in src/LICENSE.  
 package ltl;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -21,12 +23,11 @@ import exceptions.XMLException;
  * 
  * @author Tomáš Vejpustek
  */
-public class PositiveProperty implements Property {
-	//bound -- both value specify end points
-	//unbound -- one value is null
-	//point -- both values are null
+public class PositiveProperty extends AbstractProperty {
+	//bound -- both bounds have values
+	//unbound -- one bound has no value
+	//point -- neither bound has value
 	private double reference;
-	private Map<Bound, Double> values = new HashMap<Bound, Double>();
 	private boolean set;
 	
 	/**
@@ -57,11 +58,11 @@ public class PositiveProperty implements Property {
 		set = true;
 		reference = (lower+upper)/2;
 		if (lower > upper) {
-			values.put(Bound.UPPER, lower);
-			values.put(Bound.LOWER, upper);
+			putValue(Bound.UPPER, lower);
+			putValue(Bound.LOWER, upper);
 		} else if (lower < upper) {
-			values.put(Bound.UPPER, upper);
-			values.put(Bound.LOWER, lower);
+			putValue(Bound.UPPER, upper);
+			putValue(Bound.LOWER, lower);
 		}	
 	}
 
@@ -81,7 +82,7 @@ public class PositiveProperty implements Property {
 	 */
 	protected boolean checkExceeding(Bound bound, double value) {
 		if (hasBound(bound.other()) || isPoint()) {
-			double other = isPoint() ? getCenter() : values.get(bound.other());
+			double other = isPoint() ? getCenter() : getValue(bound.other());
 			if ((bound.equals(Bound.UPPER) && value < other) || (bound.equals(Bound.LOWER) && value > other)) {
 				reference = other;
 				makePoint();
@@ -106,7 +107,7 @@ public class PositiveProperty implements Property {
 				return 0;
 			}
 		}
-		return values.get(bound);
+		return getValue(bound);
 	}
 
 	@Override
@@ -116,7 +117,7 @@ public class PositiveProperty implements Property {
 
 	@Override
 	public boolean hasBound(Bound bound) {
-		return (values.get(bound) != null);
+		return isBound(bound);
 	}
 
 	@Override
@@ -137,7 +138,7 @@ public class PositiveProperty implements Property {
 	@Override
 	public void makePoint() {
 		set = true;
-		values.clear();
+		clearValues();
 	}
 
 	@Override
@@ -156,9 +157,9 @@ public class PositiveProperty implements Property {
 				throw new IllegalArgumentException("Positive property cannot have value lesser or equal to zero.");
 			}
 			if (isPoint()) {
-				values.put(bound.other(), getCenter());
+				putValue(bound.other(), getCenter());
 			}
-			values.put(bound, value);
+			putValue(bound, value);
 		}
 	}
 	
@@ -169,22 +170,22 @@ public class PositiveProperty implements Property {
 			throw new IllegalArgumentException("Positive property cannot have value lesser or equal to zero.");
 		}
 		double d = value-getCenter();
-		if (hasBound(Bound.LOWER) && (values.get(Bound.LOWER)+d < 0)) {
-			d = -values.get(Bound.LOWER);
+		if (hasBound(Bound.LOWER) && (getValue(Bound.LOWER)+d < 0)) {
+			d = -getValue(Bound.LOWER);
 		}
 		reference = getCenter()+d;
 		if (hasBound(Bound.UPPER)) {
-			values.put(Bound.UPPER, values.get(Bound.UPPER)+d);
+			putValue(Bound.UPPER, getValue(Bound.UPPER)+d);
 		}
 		if (hasBound(Bound.LOWER)) {
-			values.put(Bound.LOWER, values.get(Bound.LOWER)+d);
+			putValue(Bound.LOWER, getValue(Bound.LOWER)+d);
 		}
 	}
 
 	@Override
 	public void unbind(Bound bound) {
 		if (hasBound(bound.other())) {
-			values.put(bound, null);
+			putUnbound(bound);
 		} else {
 			unset();
 		}
@@ -193,43 +194,52 @@ public class PositiveProperty implements Property {
 	@Override
 	public void unset() {
 		set = false;
-		values.clear();
+		clearValues();
 	}
 	
 	@Override
 	public Property clone() {
 		PositiveProperty clone = new PositiveProperty(reference);
 		clone.set = set;
-		clone.values = new HashMap<Bound, Double>(values);
+		clone.copyValues(this);
 		return clone;
 	}
-
+	
 	@Override
-	public Node toXML(Document document) {
-		return toXML(document, "property");
+	void write(DataOutput out) throws IOException {
+		out.writeDouble(reference);
+		out.writeBoolean(set);
+		super.write(out);
 	}
 	
 	@Override
-	public Node toXML(Document document, String name) {
-		Element property = document.createElement(name);
-		property.setAttribute("set", (isSet() ? "true" : "false"));
+	void read(DataInput in) throws IOException {
+		reference = in.readDouble();
+		set = in.readBoolean();
+		super.read(in);
+	}
+
+	@Override
+	public void toXML(XMLStreamWriter out, String name) throws XMLStreamException {
+		out.writeStartElement(name);
+		out.writeAttribute("set", (isSet() ? "true" : "false"));
 		
-		Element ref = document.createElement("reference");
-		ref.appendChild(document.createTextNode(Double.toString(getCenter())));
-		property.appendChild(ref);
+		out.writeStartElement("reference");
+		out.writeCharacters(Double.toString(getCenter()));
+		out.writeEndElement();
 		
 		if (hasBound(Bound.UPPER)) {
-			Element up = document.createElement("upper");
-			up.appendChild(document.createTextNode(Double.toString(getBound(Bound.UPPER))));
-			property.appendChild(up);
+			out.writeStartElement("upper");
+			out.writeCharacters(Double.toString(getBound(Bound.UPPER)));
+			out.writeEndElement();
 		}
 		
 		if (hasBound(Bound.LOWER)) {
-			Element low = document.createElement("lower");
-			low.appendChild(document.createTextNode(Double.toString(getBound(Bound.LOWER))));
-			property.appendChild(low);
+			out.writeStartElement("lower");
+			out.writeCharacters(Double.toString(getBound(Bound.LOWER)));
+			out.writeEndElement();
 		}
-		return property;
+		out.writeEndElement();
 	}
 
 	@Override
@@ -251,25 +261,25 @@ public class PositiveProperty implements Property {
 				if (lower <= 0) {
 					throw new XMLException("err_xml_positive", "Non-positive value of upper bound.");
 				}
-				values.put(Bound.LOWER, lower);
+				putValue(Bound.LOWER, lower);
 				hasLower = true;
 			} else if (name.equals("upper")) {
 				double upper = Double.valueOf(n.getFirstChild().getNodeValue());
 				if (upper <= 0) {
 					throw new XMLException("err_xml_positive", "Non-positive value of lower bound.");
 				}
-				values.put(Bound.UPPER, upper);
+				putValue(Bound.UPPER, upper);
 				hasUppper = true;
 			}	
 		}
 		if (!hasUppper) {
 			unbind(Bound.UPPER);
-		} else if (values.get(Bound.UPPER) < reference) {
+		} else if (getValue(Bound.UPPER) < reference) {
 			throw new XMLException("err_xml_bounds_order", "Reference value exceeds upper bound.");
 		}
 		if (!hasLower) {
 			unbind(Bound.LOWER);
-		} else if (values.get(Bound.LOWER) > reference) {
+		} else if (getValue(Bound.LOWER) > reference) {
 			throw new XMLException("err_xml_bounds_order", "Lower bound exceeds reference.");
 		}
 		if (node.getAttributes().getNamedItem("set").getNodeValue().equals("false")) {
@@ -14,16 +14,15 @@ import java.util.List;
  * @author Tomáš Vejpustek
  */
 public class SkipReader<E> implements Iterator<E> {
-	private List<E> elements;
+	private Iterator<E> elements;
 	private int selected;
-	private int index = -1;
+	private int index = 0; //index of the next element of elements
 
 	/**
 	 * Creates iterator of <code>elements</code> which skips no element.
 	 */
 	public SkipReader(List<E> elements) {
-		this.elements = elements;
-		selected = -1;
+		this(elements, -1);
 	}
 	
 	/**
@@ -32,25 +31,31 @@ public class SkipReader<E> implements Iterator<E> {
 	 * @param skipped Index of skipped element. 
 	 */
 	public SkipReader(List<E> elements, int skipped) {
-		this.elements = elements;
+		this.elements = elements.iterator();
 		selected = skipped;
 	}
 	
+	/**
+	 * Skips selected element when it is the next one.
+	 */
+	private void skip() {
+		if ((index == selected) && elements.hasNext()) {
+			elements.next();
+			index++;
+		}
+	}
+	
 	@Override
 	public boolean hasNext() {
-		if ((index + 1 == selected) && (selected == elements.size() - 1)) {
-			return false;
-		}
-		return (index + 1 < elements.size());
+		skip();
+		return elements.hasNext();
 	}
 
 	@Override
 	public E next() {
+		skip();
 		index++;
-		if (index == selected) {
-			index++;
-		}
-		return elements.get(index);
+		return elements.next();
 	}
 
 	@Override
@@ -0,0 +1,182 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ltl;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import ltl.LTLFormula.Operator;
+import ltl.LTLFormula.Relation;
+import ltl.LTLFormula.Variable;
+
+/**
+ * Syntax of SPIN inline LTL claims, e.g. "<code>ltl { (x &gt; 1) U [](dx &lt; 0) }</code>".
+ * Variables are named <code>t</code> (time), <code>x</code> (concentration) and <code>dx</code> (derivative),
+ * comparisons are always parenthesised.
+ *
+ * Promela has only integer variables. Thus, values of each variable are scaled by the least power of ten
+ * (at most <code>10^3</code>) which makes them integral, e.g. <code>x &gt; 12.5</code> is written as
+ * <code>x &gt; 125</code>, and a comment preceding the claim states how Promela variables have to be scaled.
+ * Values with more decimal places are rounded so that comparisons with integral variables keep their meaning
+ * (<code>&gt;</code> down, <code>&lt;</code> up, <code>==</code> to the nearest integer).
+ *
+ * @author Tomáš Vejpustek
+ */
+public class SpinDialect extends Dialect {
+	/** Name of the dialect */
+	public static final String NAME = "spin";
+	private static final int MAX_DECIMALS = 3;
+
+	private final int [] decimals; //decimal places kept for each variable, null when not prepared for a formula
+
+	/**
+	 * Creates dialect which has not been prepared for a formula (see {@link #forFormula(LTLFormula)}).
+	 */
+	public SpinDialect() {
+		decimals = null;
+	}
+
+	private SpinDialect(int [] decimals) {
+		this.decimals = decimals;
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public String getDescription() {
+		return "SPIN LTL claim";
+	}
+
+	@Override
+	public String getExtension() {
+		return "pml";
+	}
+
+	@Override
+	public String getOperator(Operator operator) {
+		switch (operator) {
+		case TRUE: return "true";
+		case NOT: return "!";
+		case NEXT: return "X";
+		case FUTURE: return "<>";
+		case GLOBALLY: return "[]";
+		case AND: return "&&";
+		case OR: return "||";
+		case UNTIL: return "U";
+		default: throw new IllegalArgumentException("Operator " + operator + " has no text.");
+		}
+	}
+
+	@Override
+	public String getVariable(Variable variable) {
+		switch (variable) {
+		case TIME: return "t";
+		case CONCENTRATION: return "x";
+		default: return "dx";
+		}
+	}
+
+	@Override
+	public String getRelation(Relation relation) {
+		switch (relation) {
+		case EQUAL: return " == ";
+		case LESSER: return " < ";
+		default: return " > ";
+		}
+	}
+
+	/**
+	 * @return Dialect which scales values of each variable of <code>formula</code> to integers.
+	 * @throws IllegalArgumentException when a scaled value does not fit into Promela <code>int</code>.
+	 */
+	@Override
+	public Dialect forFormula(LTLFormula formula) {
+		List<LTLFormula> atoms = new ArrayList<LTLFormula>();
+		Deque<LTLFormula> stack = new ArrayDeque<LTLFormula>();
+		stack.push(formula);
+		while (!stack.isEmpty()) {
+			LTLFormula form = stack.pop();
+			if (form.getOperator() == Operator.ATOM) {
+				atoms.add(form);
+			} else if (form.getOperator().getArity() > 0) {
+				stack.push(form.getLeft());
+				if (form.getOperator().getArity() > 1) {
+					stack.push(form.getRight());
+				}
+			}
+		}
+
+		int [] decimals = new int [Variable.values().length];
+		for (LTLFormula atom : atoms) {
+			checkValue(atom.getValue());
+			int places = BigDecimal.valueOf(atom.getValue()).stripTrailingZeros().scale();
+			int index = atom.getVariable().ordinal();
+			decimals[index] = Math.max(decimals[index], Math.min(places, MAX_DECIMALS));
+		}
+		SpinDialect prepared = new SpinDialect(decimals);
+		for (LTLFormula atom : atoms) {
+			prepared.scale(atom); //checks range
+		}
+		return prepared;
+	}
+
+	/**
+	 * @return Value of <code>atom</code> scaled and rounded according to its relation.
+	 * @throws IllegalArgumentException when the value does not fit into Promela <code>int</code>.
+	 */
+	private BigDecimal scale(LTLFormula atom) {
+		RoundingMode mode;
+		switch (atom.getRelation()) {
+		case GREATER: mode = RoundingMode.FLOOR; break;
+		case LESSER: mode = RoundingMode.CEILING; break;
+		default: mode = RoundingMode.HALF_UP;
+		}
+		BigDecimal value = BigDecimal.valueOf(atom.getValue()).movePointRight(decimals[atom.getVariable().ordinal()]).setScale(0, mode);
+		if (value.abs().compareTo(BigDecimal.valueOf(Integer.MAX_VALUE)) > 0) {
+			throw new IllegalArgumentException("Value " + atom.getValue() + " of " + getVariable(atom.getVariable())
+					+ " is out of range of Promela int when scaled to integer.");
+		}
+		return value;
+	}
+
+	@Override
+	public void writeAtom(LTLFormula atom, Appendable out) throws IOException {
+		if (decimals == null) {
+			forFormula(atom).writeAtom(atom, out);
+			return;
+		}
+		out.append('(').append(getVariable(atom.getVariable())).append(getRelation(atom.getRelation()));
+		out.append(scale(atom).toPlainString()).append(')');
+	}
+
+	@Override
+	public void begin(Appendable out) throws IOException {
+		boolean scaled = false;
+		for (Variable variable : Variable.values()) {
+			if (decimals != null && decimals[variable.ordinal()] > 0) {
+				out.append(scaled ? ", " : "/* variables are scaled to integers: ");
+				out.append(getVariable(variable)).append(" = ");
+				out.append(BigDecimal.ONE.movePointRight(decimals[variable.ordinal()]).toPlainString());
+				out.append(" * ").append(variable.name().toLowerCase());
+				scaled = true;
+			}
+		}
+		if (scaled) {
+			out.append(" */\n");
+		}
+		out.append("ltl { ");
+	}
+
+	@Override
+	public void end(Appendable out) throws IOException {
+		out.append(" }\n");
+	}
+}
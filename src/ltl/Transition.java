@@ -3,11 +3,16 @@
 package ltl;
 
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import ltl.Property.Bound;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -25,6 +30,7 @@ import exceptions.XMLException;
 public class Transition implements XMLRepresentable, LTLRepresentable {
 	private Event left, right;
 	private Property conc, deriv;
+	private Transformation coord = null; //coordinates the transition is edited in, determine its ends
 	
 	/**
 	 * Initiates adjacent events.
@@ -83,6 +89,31 @@ public class Transition implements XMLRepresentable, LTLRepresentable {
 		this.right = right;
 	}
 
+	/**
+	 * Sets coordinates which determine ends of this transition when an adjacent event is missing, i.e. the reference
+	 * points of its properties (see {@link TransitionPositiveProperty#getCenter()}). Each workspace has its own coordinates,
+	 * so transitions of different formulae may be edited at the same time.
+	 * @param coord Coordinates of the workspace this transition is edited in, <code>null</code> when there are none
+	 * (both ends are zero).
+	 */
+	public void setCoordinates(Transformation coord) {
+		this.coord = coord;
+	}
+	
+	/**
+	 * @return Time of the right end of this transition when there is no event to the right.
+	 */
+	double getTimeEnd() {
+		return (coord != null) ? coord.getTimeBound() : 0;
+	}
+	
+	/**
+	 * @return Concentration of ends of this transition when there is no adjacent event.
+	 */
+	double getConcentrationEnd() {
+		return (coord != null) ? coord.getConcentrationBound()/2 : 0;
+	}
+
 	public Property getConcentration() {
 		return conc;
 	}
@@ -177,9 +208,54 @@ public class Transition implements XMLRepresentable, LTLRepresentable {
 		return false;
 	}
 	
+	/**
+	 * Computes on-screen area covered by this transition when rendered (see {@link Canvas#drawTransition(Transition)}).
+	 * @param coord Coordinate transformation between on-screen and model coordinates.
+	 * @return Bounding rectangle of this transition (including its derivative) in on-screen coordinates.
+	 */
+	public Rectangle2D getBounds(Transformation coord) {
+		double leftX = (getLeft() != null) ? coord.getX(getLeft().getTime().getCenter()) : 0;
+		double leftY = (getLeft() != null) ? coord.getY(getLeft().getConcentration().getCenter()) : coord.getSize().getY()/2;
+		double rightX = (getRight() != null) ? coord.getX(getRight().getTime().getCenter()) : coord.getSize().getX();
+		double rightY = (getRight() != null) ? coord.getY(getRight().getConcentration().getCenter()) : coord.getSize().getY()/2;
+		Rectangle2D out = new Rectangle2D.Double(leftX, leftY, 0, 0);
+		out.add(rightX, rightY);
+		
+		if (getConcentration().isSet()) {
+			double upper = (getConcentration().hasBound(Bound.UPPER)) ? coord.getY(getConcentration().getBound(Bound.UPPER)) : 0;
+			double lower = (getConcentration().hasBound(Bound.LOWER)) ? coord.getY(getConcentration().getBound(Bound.LOWER)) : coord.getSize().getY();
+			out.add(leftX, upper);
+			out.add(leftX, lower);
+		}
+		Point2D center = new Point2D.Double(coord.getTime((leftX+rightX)/2), coord.getConcentration((leftY+rightY)/2));
+		out.add(Canvas.getDerivativeBounds(getDerivative(), center, coord));
+		return out;
+	}
+	
+	/**
+	 * Writes properties of this transition into a journal (see {@link ModelJournal}).
+	 */
+	void write(DataOutput out) throws IOException {
+		((AbstractProperty)conc).write(out);
+		((AbstractProperty)deriv).write(out);
+	}
+	
+	/**
+	 * Reads transition written by {@link #write(DataOutput)}.
+	 * @param left Event adjacent to the transition from left.
+	 * @param right Event adjacent to the transition from right.
+	 */
+	static Transition read(DataInput in, Event left, Event right) throws IOException {
+		Transition transition = new Transition(left, right);
+		((AbstractProperty)transition.conc).read(in);
+		((AbstractProperty)transition.deriv).read(in);
+		return transition;
+	}
+	
 	@Override
 	public Transition clone() {
 		Transition result = new Transition(getLeft(), getRight());
+		result.coord = coord;
 		for (Bound b : Bound.values()) {
 			if (getConcentration().hasBound(b)) {
 				result.getConcentration().setBound(b, getConcentration().getBound(b));
@@ -207,28 +283,31 @@ public class Transition implements XMLRepresentable, LTLRepresentable {
 	}
 
 	@Override
-	public Node toXML(Document document, String name) {
-		Element transition =  document.createElement(name);
-		transition.appendChild(getConcentration().toXML(document, "concentration"));
-		transition.appendChild(getDerivative().toXML(document, "derivative"));
-		return transition;
+	public void toXML(XMLStreamWriter out, String name) throws XMLStreamException {
+		out.writeStartElement(name);
+		writeXMLContents(out);
+		out.writeEndElement();
 	}
-
-	@Override
-	public Node toXML(Document document) {
-		return toXML(document, "transition");
+	
+	/**
+	 * Writes XML representations of properties of this transition (i.e. contents of its element) into <code>out</code>.
+	 * Used to write attributes of the element first.
+	 */
+	void writeXMLContents(XMLStreamWriter out) throws XMLStreamException {
+		getConcentration().toXML(out, "concentration");
+		getDerivative().toXML(out, "derivative");
 	}
 
 	@Override
-	public String toLTL(FormulaBuilder builder) {
+	public LTLFormula toFormula(FormulaFactory factory) {
 		if (getConcentration().isSet() && getDerivative().isSet()) {
-			return builder.and(builder.concentration(this), builder.derivative(this));
+			return factory.and(factory.concentration(this), factory.derivative(this));
 		} else if (getConcentration().isSet()) {
-			return builder.concentration(this);
+			return factory.concentration(this);
 		} else if (getDerivative().isSet()) {
-			return builder.derivative(this);
+			return factory.derivative(this);
 		} else {
-			return null;
+			return LTLFormula.TRUE;
 		}
 	}
 	
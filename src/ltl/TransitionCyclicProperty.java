@@ -9,7 +9,6 @@ package ltl;
  *
  */
 public class TransitionCyclicProperty extends CyclicProperty {
-	private static double concEnd, timeEnd;
 	private Transition parent;
 	
 	/**
@@ -30,29 +29,17 @@ public class TransitionCyclicProperty extends CyclicProperty {
 		return clone;
 	}
 
+	/**
+	 * @return Slope between adjacent events. Missing event is replaced by end of the transition
+	 * (see {@link Transition#setCoordinates(coordinates.Transformation)}).
+	 */
 	@Override
 	public double getCenter() {
 		double leftT = (parent.getLeft() != null) ? parent.getLeft().getTime().getCenter() : 0;
-		double leftC = (parent.getLeft() != null) ? parent.getLeft().getConcentration().getCenter() : timeEnd;
-		double rightT = (parent.getRight() != null) ? parent.getRight().getTime().getCenter() : concEnd;
-		double rightC = (parent.getRight() != null) ? parent.getRight().getConcentration().getCenter() : concEnd;
+		double leftC = (parent.getLeft() != null) ? parent.getLeft().getConcentration().getCenter() : parent.getConcentrationEnd();
+		double rightT = (parent.getRight() != null) ? parent.getRight().getTime().getCenter() : parent.getTimeEnd();
+		double rightC = (parent.getRight() != null) ? parent.getRight().getConcentration().getCenter() : parent.getConcentrationEnd();
 		return (rightC-leftC)/(rightT-leftT);
 	}
 
-	/**
-	 * Sets concentration values for the case one of adjacent {@link Event}s is <code>null</code>.
-	 */
-	public static void setConcentrationEnd(double value) {
-		concEnd = value;
-	}
-
-	/**
-	 * Sets maximum time of time series for the case right adjacent {@link Event} is <code>null</code>. 
-	 */
-	public static void setTimeEnd(double value) {
-		timeEnd = value;
-	}
-	
-	
-
 }
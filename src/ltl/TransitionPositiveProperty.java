@@ -2,11 +2,10 @@
 //Full copyright notice found in src/LICENSE.  
 package ltl;
 
-import java.util.HashMap;
-import java.util.Map;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -23,10 +22,7 @@ import exceptions.XMLException;
  * 
  * @author Tomáš Vejpustek
  */
-public class TransitionPositiveProperty implements Property {
-	private static double end = 0;
-	
-	private Map<Bound, Double> bounds = new HashMap<Bound, Double>();
+public class TransitionPositiveProperty extends AbstractProperty {
 	private Transition parent;
 	
 	/**
@@ -45,7 +41,7 @@ public class TransitionPositiveProperty implements Property {
 	 */
 	protected boolean checkExceeding(Bound bound, double value) {
 		if (hasBound(bound.other())) {
-			double other = bounds.get(bound.other());
+			double other = getValue(bound.other());
 			if ((bound.equals(Bound.UPPER) && value < other) || (bound.equals(Bound.LOWER) && value > other)) {
 				unset();
 				return true;
@@ -66,19 +62,23 @@ public class TransitionPositiveProperty implements Property {
 				return 0;
 			}
 		}
-		return bounds.get(bound);
+		return getValue(bound);
 	}
 
+	/**
+	 * @return Mean concentration of adjacent events. Missing event is replaced by end of the transition
+	 * (see {@link Transition#setCoordinates(coordinates.Transformation)}).
+	 */
 	@Override
 	public double getCenter() {
-		double left = (parent.getLeft() != null) ? parent.getLeft().getConcentration().getCenter() : end;
-		double right = (parent.getRight() != null) ? parent.getRight().getConcentration().getCenter() : end;
+		double left = (parent.getLeft() != null) ? parent.getLeft().getConcentration().getCenter() : parent.getConcentrationEnd();
+		double right = (parent.getRight() != null) ? parent.getRight().getConcentration().getCenter() : parent.getConcentrationEnd();
 		return (left+right)/2;
 	}
 
 	@Override
 	public boolean hasBound(Bound bound) {
-		return (bounds.get(bound) != null);
+		return isBound(bound);
 	}
 
 	@Override
@@ -122,14 +122,14 @@ public class TransitionPositiveProperty implements Property {
 			if (value <= 0) {
 				throw new IllegalArgumentException("Positive property cannot have value lesser or equal to zero.");
 			}
-			bounds.put(bound, value);
+			putValue(bound, value);
 		}
 	}
 
 	@Override
 	public void unbind(Bound bound) {
 		if (hasBound(bound.other())) {
-			bounds.put(bound, null);
+			putUnbound(bound);
 		} else {
 			unset();
 		}
@@ -137,9 +137,9 @@ public class TransitionPositiveProperty implements Property {
 
 	@Override
 	public void unset() {
-		bounds.clear();
+		clearValues();
 	}
-
+	
 	@Override
 	public void loadFromXML(Node node) throws XMLException {
 		NodeList nodes = node.getChildNodes();
@@ -154,14 +154,14 @@ public class TransitionPositiveProperty implements Property {
 				if (upper <= 0) {
 					throw new XMLException("err_xml_positive", "Non-positive value of upper bound.");
 				}
-				bounds.put(Bound.UPPER, upper);
+				putValue(Bound.UPPER, upper);
 				hasUpper = true;
 			} else if (name.equals("lower")) {
 				double lower = Double.valueOf(n.getChildNodes().item(0).getNodeValue());
 				if (lower <= 0) {
 					throw new XMLException("err_xml_positive", "Non-positive value of lower bound.");
 				}
-				bounds.put(Bound.LOWER, lower);
+				putValue(Bound.LOWER, lower);
 				hasLower = true;
 			}
 		}
@@ -171,47 +171,32 @@ public class TransitionPositiveProperty implements Property {
 		if (!hasUpper) {
 			unbind(Bound.UPPER);
 		}
-		if (hasLower && hasUpper && bounds.get(Bound.LOWER) > bounds.get(Bound.UPPER)){
+		if (hasLower && hasUpper && getValue(Bound.LOWER) > getValue(Bound.UPPER)){
 			throw new XMLException("err_xml_bounds_order", "Lower bound exceeds the upper one.");
 		}
 		
 	}
 
 	@Override
-	public Node toXML(Document document) {
-		return toXML(document, "relative_property");
-	}
-
-	@Override
-	public Node toXML(Document document, String name) {
-		Element property = document.createElement(name);
+	public void toXML(XMLStreamWriter out, String name) throws XMLStreamException {
+		out.writeStartElement(name);
 		if (hasBound(Bound.UPPER)) {
-			Element up = document.createElement("upper");
-			up.appendChild(document.createTextNode(Double.toString(getBound(Bound.UPPER))));
-			property.appendChild(up);
+			out.writeStartElement("upper");
+			out.writeCharacters(Double.toString(getBound(Bound.UPPER)));
+			out.writeEndElement();
 		}
 		if (hasBound(Bound.LOWER)) {
-			Element low = document.createElement("lower");
-			low.appendChild(document.createTextNode(Double.toString(getBound(Bound.LOWER))));
-			property.appendChild(low);
+			out.writeStartElement("lower");
+			out.writeCharacters(Double.toString(getBound(Bound.LOWER)));
+			out.writeEndElement();
 		}
-		return property;
+		out.writeEndElement();
 	}
 	
 	@Override
 	public Property clone() {
 		TransitionPositiveProperty clone = new TransitionPositiveProperty(parent);
-		clone.bounds = new HashMap<Bound, Double>(bounds);
+		clone.copyValues(this);
 		return clone;
 	}
-
-	/**
-	 * Sets values of end points in case parent {@link Transition} has one of the adjacent {@link Event} <code>null</code>.
-	 */
-	public static void setEnd(double value) {
-		if (value < 0) {
-			throw new IllegalArgumentException("Positive coordinate cannot have negative value.");
-		}
-		end = value;
-	}
 }
@@ -67,6 +67,16 @@ public abstract class AbstractSelector implements Selector {
 		return new Rectangle2D.Double(p.getX()-Canvas.SELECTOR_SIDE/2, p.getY()-Canvas.SELECTOR_SIDE/2, Canvas.SELECTOR_SIDE, Canvas.SELECTOR_SIDE);
 	}
 	
+	/**
+	 * Enlarges bounds of a drawn primitive so that they cover its line widths and selectors.
+	 * @param bounds Bounds of a primitive in on-screen coordinates.
+	 * @return <code>bounds</code> enlarged by {@link Canvas#BOUNDS_MARGIN} in each direction.
+	 */
+	protected static Rectangle2D addMargin(Rectangle2D bounds) {
+		return new Rectangle2D.Double(bounds.getX()-Canvas.BOUNDS_MARGIN, bounds.getY()-Canvas.BOUNDS_MARGIN,
+				bounds.getWidth()+2*Canvas.BOUNDS_MARGIN, bounds.getHeight()+2*Canvas.BOUNDS_MARGIN);
+	}
+	
 	/**
 	 * Transforms {@link MouseEvent} into {@link Point2D} (both in on-screen coordinates).
 	 */
@@ -6,6 +6,7 @@ import java.awt.event.MouseEvent;
 import java.awt.geom.Point2D;
 
 import ltl.CreateEvent;
+import ltl.Model;
 import ltl.ModelChange;
 
 import ltl.Event;
@@ -79,4 +80,12 @@ public class EventCreator extends EventSelector {
 	public ModelChange endMove(Point2D p) {
 		return null;
 	}
+
+	/**
+	 * Created event is not part of the model yet.
+	 */
+	@Override
+	public Model preview(Model model) {
+		return null;
+	}
 }
@@ -3,6 +3,7 @@
 package selector;
 
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 
 import ltl.Event;
 import ltl.ModelChange;
@@ -53,6 +54,19 @@ public abstract class EventMover extends EventSelector {
 		return result;
 	}
 	
+	/**
+	 * Includes adjacent transitions, which follow the event while it is being moved.
+	 */
+	@Override
+	public Rectangle2D getBounds() {
+		Rectangle2D out = super.getBounds();
+		if (isMoving()) {
+			out.add(addMargin(left.getBounds(getTransformation())));
+			out.add(addMargin(right.getBounds(getTransformation())));
+		}
+		return out;
+	}
+	
 	@Override
 	public boolean isMoving() {
 		return (origin != null);
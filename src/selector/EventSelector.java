@@ -4,9 +4,11 @@ package selector;
 
 import java.awt.event.MouseEvent;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 
 import ltl.DeleteEvent;
 import ltl.Event;
+import ltl.Model;
 import ltl.ModelChange;
 import ltl.ModifyEvent;
 import ltl.Property;
@@ -255,6 +257,21 @@ public abstract class EventSelector extends AbstractSelector {
 		c.drawEvent(getTarget());
 	}
 
+	@Override
+	public Rectangle2D getBounds() {
+		Rectangle2D out = getTarget().getBounds(getTransformation());
+		//anchors (see Canvas#drawAnchors(Event))
+		double x = getTransformation().getX(getTarget().getTime().getCenter());
+		double y = getTransformation().getY(getTarget().getConcentration().getCenter());
+		if (getTarget().getConcentration().isPoint()) {
+			out.add(0, y);
+		}
+		if (getTarget().getTime().isPoint()) {
+			out.add(x, getTransformation().getSize().getX());
+		}
+		return addMargin(out);
+	}
+
 	@Override
 	public boolean objectContains(Point2D p) {
 		return getTarget().contains(p, getTransformation());
@@ -301,5 +318,10 @@ public abstract class EventSelector extends AbstractSelector {
 	public void refreshStatusBar(StatusBar target) {
 		target.setSelectedEvent(getTarget());
 	}
+
+	@Override
+	public Model preview(Model model) {
+		return model.previewEvent(getTarget());
+	}
 	
 }
@@ -4,7 +4,9 @@ package selector;
 
 import java.awt.event.MouseEvent;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 
+import ltl.Model;
 import ltl.ModelChange;
 import ui.Canvas;
 import ui.StatusBar;
@@ -43,6 +45,12 @@ public interface Selector {
 	 */
 	public void draw (Canvas c);
 	
+	/**
+	 * @return Bounding rectangle of everything drawn by {@link #draw(Canvas)} in on-screen coordinates,
+	 * i.e. the area which has to be repainted when the selector changes.
+	 */
+	public Rectangle2D getBounds();
+	
 	
 	/**
 	 * @return <code>true</code> when selector is performing moving operation, <code>false</code> otherwise.
@@ -109,4 +117,11 @@ public interface Selector {
 	 * Refreshes information about selected primitive showed by <code>target</code>.
 	 */
 	public void refreshStatusBar(StatusBar target);
+
+	/**
+	 * @param model Model containing selected primitive.
+	 * @return Model in which selected primitive is replaced by its current (edited) form (see {@link Model#previewEvent(ltl.Event)}),
+	 * <code>null</code> when the primitive is not part of <code>model</code> (e.g. is being created).
+	 */
+	public Model preview(Model model);
 }
@@ -3,7 +3,9 @@
 package selector;
 import java.awt.event.MouseEvent;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 
+import ltl.Model;
 import ltl.ModelChange;
 import ltl.ModifyTransition;
 import ltl.Transition;
@@ -42,6 +44,7 @@ public abstract class TransitionSelector extends AbstractSelector {
 	protected TransitionSelector(Transformation coord, Transition target) {
 		super(coord);
 		this.target = target.clone();
+		this.target.setCoordinates(coord);
 		original = target;
 		derivative = DerivativeSelector.get(coord, getTarget().getDerivative(), new Point2D.Double(getTransformation().getTime(getCenter().getX()), getTransformation().getConcentration(getCenter().getY())));
 	}
@@ -71,6 +74,11 @@ public abstract class TransitionSelector extends AbstractSelector {
 		return new Point2D.Double((leftX+rightX)/2, (leftY+rightY)/2);
 	}
 	
+	@Override
+	public Rectangle2D getBounds() {
+		return addMargin(getTarget().getBounds(getTransformation()));
+	}
+	
 	@Override
 	public ModelChange delete() {
 		if (isDragging()) {
@@ -146,4 +154,9 @@ public abstract class TransitionSelector extends AbstractSelector {
 	public void refreshStatusBar(StatusBar target) {
 		target.setSelectedTransition(getTarget());
 	}
+
+	@Override
+	public Model preview(Model model) {
+		return model.previewTransition(getTarget());
+	}
 }
@@ -14,6 +14,8 @@ import exceptions.TSLoaderFormatException;
  * in given point on each line.
  * 
  * <p>With each line, {@link #checkFormat(String)} is performed before {@link #getTime(String)}, {@link #getConcentration(String)} and {@link #getDerivative(String)}.
+ * Each of them is called at most once per line, therefore derived classes may scan the line in {@link #checkFormat(String)}
+ * and let the getters use the result.
  * 
  * @author Tomáš Vejpustek
  *
@@ -107,6 +109,7 @@ public abstract class AbstractLineTSLoader extends AbstractTSLoader {
 	
 	/**
 	 *	Checks format of one input line. In the case of wrong format throws exception. 
+	 * May also split the line for subsequent calls of getters. 
 	 * 
 	 * @param line One line of input
 	 * @throws TSLoaderFormatException when wrong input format is encountered.
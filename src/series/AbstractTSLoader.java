@@ -6,6 +6,7 @@ import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStreamReader;
+import java.util.concurrent.CancellationException;
 
 import exceptions.TSLoaderException;
 
@@ -18,6 +19,11 @@ import xml.TimeSeriesSource;
  *
  */
 public abstract class AbstractTSLoader implements TimeSeriesLoader {
+	/** Number of points in segments passed to {@link TimeSeriesLoadListener}. */
+	static final int SEGMENT_SIZE = 64*1024;
+	
+	private CountingInputStream input = null;
+	private long inputLength = -1;
 	
 	/**
 	 * 
@@ -25,14 +31,42 @@ public abstract class AbstractTSLoader implements TimeSeriesLoader {
 	 * @return {@link TimeSeriesLoader} implementation corresponding to input parameters.
 	 */
 	public static TimeSeriesLoader getLoader(TimeSeriesSource src) throws TSLoaderException, FileNotFoundException {
-		FileInputStream in  = new FileInputStream(src.getSourceFile());
 		if (src.getLoaderName().equals(FieldTSLoader.NAME)) {
-			return getFieldLoader(new BufferedReader(new InputStreamReader(in)), src);
+			CountingInputStream in  = new CountingInputStream(new FileInputStream(src.getSourceFile()));
+			AbstractTSLoader out = getFieldLoader(new BufferedReader(new InputStreamReader(in)), src);
+			out.setInput(in, src.getSourceFile().length());
+			return out;
+		} else if (src.getLoaderName().equals(MappedTSLoader.NAME)) {
+			return getMappedLoader(src);
 		}
 		return null;
 	}
 	
-	private static TimeSeriesLoader getFieldLoader(BufferedReader in, TimeSeriesSource src) throws TSLoaderException {
+	/**
+	 * Creates loader which reads fields described by <code>src</code> line by line from another input,
+	 * e.g. to read more files of the same format.
+	 * @param in Input the time series is read from.
+	 * @param src Parameters of a field loader (i.e. {@link FieldTSLoader} or {@link MappedTSLoader}).
+	 * @return Loader reading from <code>in</code>.
+	 * @throws TSLoaderException when <code>src</code> does not describe a field loader or its parameters are garbled.
+	 */
+	public static AbstractTSLoader getFieldLoader(BufferedReader in, TimeSeriesSource src) throws TSLoaderException {
+		if (!src.getLoaderName().equals(FieldTSLoader.NAME) && !src.getLoaderName().equals(MappedTSLoader.NAME)) {
+			throw new TSLoaderException("import", "Time series loader does not read fields.");
+		}
+		int [] indices = getFieldIndices(src);
+		return new FieldTSLoader(in, src.getParameter(FieldTSLoader.P_SEPARATOR), indices[0], indices[1], indices[2]);
+	}
+	
+	private static TimeSeriesLoader getMappedLoader(TimeSeriesSource src) throws TSLoaderException, FileNotFoundException {
+		int [] indices = getFieldIndices(src);
+		return new MappedTSLoader(src.getSourceFile(), src.getParameter(FieldTSLoader.P_SEPARATOR), indices[0], indices[1], indices[2]);
+	}
+	
+	/**
+	 * Reads indices of time, concentration and derivative fields (in this order) shared by field loaders.
+	 */
+	private static int [] getFieldIndices(TimeSeriesSource src) throws TSLoaderException {
 		int time = 0;
 		int conc = 0;
 		int deriv = 0;
@@ -46,7 +80,70 @@ public abstract class AbstractTSLoader implements TimeSeriesLoader {
 		if (time < 0 || conc < 0 || deriv < 0) {
 			throw new TSLoaderException("import", "Negative number in field loader column description.");
 		}
-		
-		return new FieldTSLoader(in, src.getParameter(FieldTSLoader.P_SEPARATOR), time, conc, deriv);
+		String separator = src.getParameter(FieldTSLoader.P_SEPARATOR);
+		if (separator == null || separator.isEmpty()) {
+			throw new TSLoaderException("import", "Empty field separator in loader description.");
+		}
+		return new int [] {time, conc, deriv};
+	}
+	
+	/**
+	 * Reads all remaining points into a time series. Loaders which are able to read points in bulk override this method.
+	 * @param target Time series the points are appended to.
+	 * @throws TSLoaderException when an error during loading is encountered.
+	 */
+	void readAll(TimeSeries target) throws TSLoaderException {
+		TimeSeriesPoint input;
+		while (null != (input = readPoint())) {
+			target.add(input.getTime(), input.getConcentration(), input.getDerivative());
+		}
+	}
+	
+	/**
+	 * Sets input whose progress is reported by {@link #load(TimeSeriesLoadListener)}.
+	 * @param input Stream the loader reads from.
+	 * @param length Length of input in bytes.
+	 */
+	void setInput(CountingInputStream input, long length) {
+		this.input = input;
+		inputLength = length;
+	}
+	
+	/**
+	 * Reads all remaining points and passes them in segments to <code>listener</code>.
+	 * @param listener Receives segments of loaded points, may be <code>null</code>.
+	 * @return Time series comprising of all loaded points.
+	 * @throws TSLoaderException when an error during loading is encountered.
+	 * @throws CancellationException when <code>listener</code> cancels loading.
+	 */
+	public TimeSeries load(TimeSeriesLoadListener listener) throws TSLoaderException {
+		TimeSeries out = new TimeSeries();
+		if (listener == null) {
+			readAll(out);
+		} else {
+			TimeSeries segment = new TimeSeries();
+			TimeSeriesPoint point;
+			while (null != (point = readPoint())) {
+				segment.add(point.getTime(), point.getConcentration(), point.getDerivative());
+				if (segment.getSize() == SEGMENT_SIZE) {
+					publish(out, segment, listener);
+					segment = new TimeSeries();
+				}
+			}
+			if (!segment.isEmpty()) {
+				publish(out, segment, listener);
+			}
+		}
+		out.trimToSize();
+		return out;
+	}
+	
+	private void publish(TimeSeries target, TimeSeries segment, TimeSeriesLoadListener listener) {
+		if (listener.isCancelled()) {
+			throw new CancellationException("Loading of time series was cancelled.");
+		}
+		segment.trimToSize();
+		target.append(segment);
+		listener.segmentLoaded(segment, (input == null ? -1 : input.getCount()), inputLength);
 	}
 }
@@ -0,0 +1,58 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package series;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts bytes read from underlying stream. Used to report loading progress.
+ * 
+ * @author Tomáš Vejpustek
+ *
+ */
+class CountingInputStream extends FilterInputStream {
+	private volatile long count = 0;
+
+	CountingInputStream(InputStream in) {
+		super(in);
+	}
+	
+	/**
+	 * @return Number of bytes read (or skipped) so far.
+	 */
+	long getCount() {
+		return count;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int out = super.read();
+		if (out >= 0) {
+			count++;
+		}
+		return out;
+	}
+
+	@Override
+	public int read(byte [] b, int off, int len) throws IOException {
+		int out = super.read(b, off, len);
+		if (out > 0) {
+			count += out;
+		}
+		return out;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long out = super.skip(n);
+		count += out;
+		return out;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+}
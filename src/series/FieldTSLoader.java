@@ -12,6 +12,10 @@ import exceptions.TSLoaderFormatException;
 /**
  * Reads time series from a CSV-like file which is separated into lines and fields (columns).
  * 
+ * <p>Field separator is a regular expression, separators without metacharacters are matched literally
+ * (see {@link FieldTokenizer}). Each line is scanned only once
+ * in {@link #checkFormat(String)}, values of fields are then parsed without creating substrings.</p>
+ * 
  * @author Tomáš Vejpustek
  *
  */
@@ -25,11 +29,12 @@ public class FieldTSLoader extends AbstractLineTSLoader {
 	private int time,conc,deriv; //field indices
 	private int maxIndex;
 	private String separator; //field separators
+	private FieldTokenizer tokenizer;
 
 	/**
 	 * Specifies field separator and indices of relevant fields.
 	 * @param input Input Reader.
-	 * @param fieldSeparator Separator of fields
+	 * @param fieldSeparator Separator of fields (regular expression)
 	 * @param timeFieldIndex Index of time value
 	 * @param concentrationFieldIndex Index of concentration
 	 * @param derivativeFieldIndex Index of derivative
@@ -54,30 +59,27 @@ public class FieldTSLoader extends AbstractLineTSLoader {
 		conc = concentrationFieldIndex;
 		deriv = derivativeFieldIndex;
 		maxIndex = Math.max(time, Math.max(conc, deriv));
+		tokenizer = new FieldTokenizer(separator, maxIndex);
 	}
 	
 	/**
-	 * Splits line according to separator given in constructor.
-	 */
-	private String [] splitLine(String line) {
-		return line.split(separator);
-	}
-	
-	/**
-	 * Returns value of a field with particular index. Throws error when the number is too garbled.
+	 * Returns value of a field with particular index from the line last tokenized in {@link #checkFormat(String)}.
+	 * Throws error when the number is too garbled.
 	 */
 	private double getField(String line, int index) throws TSLoaderFormatException {
-		String [] fields = splitLine(line);
 		try {
-			return Double.valueOf(fields[index]);
+			return tokenizer.parseField(index);
 		} catch (NumberFormatException nfe) {
 			throw new TSLoaderFormatException("num_in", "Unintelligible decimal number.", getLineNum(), line);
 		}
 	}
 
+	/**
+	 * Splits line into fields (scanning it only once) according to separator given in constructor.
+	 */
 	@Override
 	protected void checkFormat(String line) throws TSLoaderFormatException {
-		if (splitLine(line).length < maxIndex) {
+		if (tokenizer.tokenize(line) <= maxIndex) {
 			throw new TSLoaderFormatException("field_num", "Too few fields.", getLineNum(), line);
 		}
 	}
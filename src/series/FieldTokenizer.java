@@ -0,0 +1,246 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package series;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits lines into fields separated by a separator and parses decimal numbers straight from the line characters.
+ *
+ * <p>Separator is a regular expression (as in {@link String#split(String)}). Separators which contain no regular expression
+ * metacharacters (e.g. <code>,</code> or <code>;</code>) are matched literally, without the regular expression engine.</p>
+ *
+ * <p>Each line is scanned once by {@link #tokenize(CharSequence)}, which remembers boundaries of fields
+ * up to a given maximum index. Fields are then parsed by {@link #parseField(int)} without creating substrings
+ * (except for numbers the fast path cannot handle exactly, see {@link #parseField(int)}).</p>
+ *
+ * <p>Tokenizer keeps the last line, therefore it is not thread-safe.</p>
+ *
+ * @author Tomáš Vejpustek
+ *
+ */
+final class FieldTokenizer {
+	/** Maximum mantissa which is represented exactly by a <code>double</code> (2^53). */
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+	/** Powers of ten represented exactly by a <code>double</code>. */
+	private static final double [] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	/** Characters which have special meaning in a regular expression. */
+	private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+
+	private final String separator;
+	private final Matcher matcher; //null when separator is matched literally
+	private final int [] start;
+	private final int [] end;
+	private CharSequence line;
+	private int fields;
+
+	/**
+	 * @param separator Field separator (regular expression).
+	 * @param maxIndex Highest index of a field which is going to be parsed.
+	 * @throws java.util.regex.PatternSyntaxException when separator is not a valid regular expression.
+	 */
+	FieldTokenizer(String separator, int maxIndex) {
+		if (separator == null || separator.isEmpty()) {
+			throw new IllegalArgumentException("Field separator is empty.");
+		}
+		if (maxIndex < 0) {
+			throw new IllegalArgumentException("Maximum field index is negative.");
+		}
+		this.separator = separator;
+		matcher = isLiteral(separator) ? null : Pattern.compile(separator).matcher("");
+		start = new int [maxIndex+1];
+		end = new int [maxIndex+1];
+	}
+
+	/**
+	 * Finds boundaries of fields in a line. Scanning stops after the field with maximum index (given in constructor).
+	 * @param line Input line.
+	 * @return Number of found fields, at most maximum index + 1.
+	 */
+	int tokenize(CharSequence line) {
+		this.line = line;
+		fields = 0;
+		if (matcher != null) {
+			return tokenizePattern(line);
+		}
+		int length = line.length();
+		int sepLength = separator.length();
+		char first = separator.charAt(0);
+		int fieldStart = 0;
+		int i = 0;
+		while (i < length) {
+			if (line.charAt(i) == first && matchesSeparator(line, i, length)) {
+				start[fields] = fieldStart;
+				end[fields] = i;
+				fields++;
+				if (fields == start.length) {
+					return fields;
+				}
+				i += sepLength;
+				fieldStart = i;
+			} else {
+				i++;
+			}
+		}
+		start[fields] = fieldStart;
+		end[fields] = length;
+		fields++;
+		return fields;
+	}
+
+	/**
+	 * Finds boundaries of fields using regular expression separator. Fields are the same as returned
+	 * by {@link Pattern#split(CharSequence, int)} with negative limit.
+	 */
+	private int tokenizePattern(CharSequence line) {
+		matcher.reset(line);
+		int fieldStart = 0;
+		while (matcher.find()) {
+			if (matcher.end() == 0) {
+				continue; //zero-width match at the beginning does not make an empty leading field
+			}
+			start[fields] = fieldStart;
+			end[fields] = matcher.start();
+			fields++;
+			if (fields == start.length) {
+				return fields;
+			}
+			fieldStart = matcher.end();
+		}
+		start[fields] = fieldStart;
+		end[fields] = line.length();
+		fields++;
+		return fields;
+	}
+
+	/**
+	 * @return <code>true</code> when <code>separator</code> contains no regular expression metacharacters.
+	 */
+	static boolean isLiteral(String separator) {
+		for (int i = 0; i < separator.length(); i++) {
+			if (METACHARACTERS.indexOf(separator.charAt(i)) >= 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return <code>true</code> when the separator occurs in <code>line</code> on position <code>index</code>.
+	 */
+	private boolean matchesSeparator(CharSequence line, int index, int length) {
+		int sepLength = separator.length();
+		if (index + sepLength > length) {
+			return false;
+		}
+		for (int j = 1; j < sepLength; j++) {
+			if (line.charAt(index+j) != separator.charAt(j)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return Number of fields found in the last line.
+	 */
+	int getFieldCount() {
+		return fields;
+	}
+
+	/**
+	 * Parses a decimal number in a field of the last tokenized line. Accepts the same input as {@link Double#valueOf(String)}.
+	 *
+	 * <p>Plain decimal numbers (with optional sign, fraction and exponent) whose digits fit into 53 bits
+	 * and whose decimal exponent is at most 22 in absolute value are computed directly from characters
+	 * -- such result is exact. Other inputs are passed to {@link Double#parseDouble(String)}.</p>
+	 *
+	 * @param index Index of the field.
+	 * @return Value of the field.
+	 * @throws NumberFormatException when the field does not contain a decimal number.
+	 */
+	double parseField(int index) {
+		if (index >= fields) {
+			throw new IndexOutOfBoundsException("Line has only " + fields + " fields.");
+		}
+		int from = start[index];
+		int to = end[index];
+		while (from < to && line.charAt(from) <= ' ') {
+			from++;
+		}
+		while (to > from && line.charAt(to-1) <= ' ') {
+			to--;
+		}
+
+		int i = from;
+		boolean negative = false;
+		if (i < to && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+			negative = (line.charAt(i) == '-');
+			i++;
+		}
+		long mantissa = 0;
+		int exponent = 0;
+		int digits = 0;
+		boolean exact = true;
+		while (i < to && isDigit(line.charAt(i))) {
+			mantissa = 10*mantissa + (line.charAt(i) - '0');
+			if (mantissa > MAX_EXACT_MANTISSA) {
+				exact = false;
+				break;
+			}
+			digits++;
+			i++;
+		}
+		if (exact && i < to && line.charAt(i) == '.') {
+			i++;
+			while (i < to && isDigit(line.charAt(i))) {
+				mantissa = 10*mantissa + (line.charAt(i) - '0');
+				if (mantissa > MAX_EXACT_MANTISSA) {
+					exact = false;
+					break;
+				}
+				exponent--;
+				digits++;
+				i++;
+			}
+		}
+		if (exact && digits > 0 && i < to && (line.charAt(i) == 'e' || line.charAt(i) == 'E')) {
+			i++;
+			boolean negativeExp = false;
+			if (i < to && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+				negativeExp = (line.charAt(i) == '-');
+				i++;
+			}
+			int exp = 0;
+			int expDigits = 0;
+			while (i < to && isDigit(line.charAt(i)) && exp < POWERS_OF_TEN.length) {
+				exp = 10*exp + (line.charAt(i) - '0');
+				expDigits++;
+				i++;
+			}
+			if (expDigits == 0) {
+				exact = false;
+			}
+			exponent += (negativeExp ? -exp : exp);
+		}
+		if (!exact || digits == 0 || i != to || exponent < -(POWERS_OF_TEN.length-1) || exponent > (POWERS_OF_TEN.length-1)) {
+			return Double.parseDouble(line.subSequence(from, to).toString());
+		}
+
+		double value = mantissa;
+		if (exponent < 0) {
+			value /= POWERS_OF_TEN[-exponent];
+		} else if (exponent > 0) {
+			value *= POWERS_OF_TEN[exponent];
+		}
+		return (negative ? -value : value);
+	}
+
+	private static boolean isDigit(char c) {
+		return (c >= '0' && c <= '9');
+	}
+}
@@ -0,0 +1,419 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package series;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import exceptions.TSLoaderException;
+import exceptions.TSLoaderFormatException;
+
+/**
+ * Reads time series from a CSV-like file in the same format as {@link FieldTSLoader}, but maps the file
+ * into memory and parses it in parallel.
+ *
+ * <p>The file is split into chunks aligned to line ends. Each chunk is parsed by a task of a fork-join pool
+ * into its own column segment, segments are then concatenated in order. Line numbers in errors are counted
+ * from the beginning of the file and the error closest to it is reported.</p>
+ *
+ * <p>Input encoding is expected to be ASCII-compatible (e.g. UTF-8 or ISO-8859-1): lines are scanned byte by byte,
+ * only lines reported in errors are decoded using the default charset.</p>
+ *
+ * <p>Whole file is parsed on the first call of {@link #readPoint()}, points are then returned from memory.
+ * {@link TimeSeries#TimeSeries(TimeSeriesLoader)} copies the parsed columns directly.</p>
+ *
+ * @author Tomáš Vejpustek
+ *
+ */
+public class MappedTSLoader extends AbstractTSLoader {
+	static final String NAME = "mapped";
+	/** Nominal length of a chunk in bytes. */
+	private static final int CHUNK_SIZE = 8*1024*1024;
+	/** Length of a buffer used to search for line ends near chunk boundaries. */
+	private static final int PROBE_SIZE = 4*1024;
+
+	private static ForkJoinPool pool;
+
+	private File source;
+	private String separator;
+	private int time, conc, deriv; //field indices
+	private int maxIndex;
+	private TimeSeries points; //parsed points
+	private int next;
+	private volatile boolean aborted;
+
+	/**
+	 * Parsed points from one chunk of input together with an error encountered in it (if any).
+	 */
+	private class Chunk extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+		private final TimeSeries segment = new TimeSeries();
+		private int lines = 0;
+		private String errorType;
+		private String errorMessage;
+		private String errorLine;
+		private IOException ioError;
+
+		Chunk(FileChannel channel, long start, long end) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			MappedByteBuffer buffer;
+			try {
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			} catch (IOException ioe) {
+				ioError = ioe;
+				return;
+			}
+			FieldTokenizer tokenizer = new FieldTokenizer(encode(separator), maxIndex);
+			ByteLine line = new ByteLine(buffer);
+			int limit = buffer.limit();
+			int lineStart = 0;
+			while (lineStart < limit) {
+				int lineEnd = lineStart;
+				while (lineEnd < limit && buffer.get(lineEnd) != '\n' && buffer.get(lineEnd) != '\r') {
+					lineEnd++;
+				}
+				line.set(lineStart, lineEnd);
+				if (!parseLine(tokenizer, line) || aborted) {
+					return;
+				}
+				lines++;
+				if (lineEnd < limit && buffer.get(lineEnd) == '\r') {
+					lineEnd++;
+				}
+				if (lineEnd < limit && buffer.get(lineEnd) == '\n') {
+					lineEnd++;
+				}
+				lineStart = lineEnd;
+			}
+		}
+
+		/**
+		 * Parses one line into the segment.
+		 * @return <code>false</code> when an error was encountered, <code>true</code> otherwise.
+		 */
+		private boolean parseLine(FieldTokenizer tokenizer, ByteLine line) {
+			if (tokenizer.tokenize(line) <= maxIndex) {
+				return setError("field_num", "Too few fields.", line);
+			}
+			double t, c, d;
+			try {
+				t = tokenizer.parseField(time);
+				if (t < 0) {
+					return setError("neg_time", "Negative time value", line);
+				}
+				c = tokenizer.parseField(conc);
+				if (c < 0) {
+					return setError("neg_conc", "Negative concentration value.", line);
+				}
+				d = tokenizer.parseField(deriv);
+			} catch (NumberFormatException nfe) {
+				return setError("num_in", "Unintelligible decimal number.", line);
+			}
+			segment.add(t, c, d);
+			return true;
+		}
+
+		private boolean setError(String type, String message, ByteLine line) {
+			errorType = type;
+			errorMessage = message;
+			errorLine = line.toString();
+			return false;
+		}
+	}
+
+	/**
+	 * Read-only view of a part of a byte buffer as characters (each byte being one character).
+	 * Used to tokenize lines without decoding them.
+	 */
+	private static class ByteLine implements CharSequence {
+		private final ByteBuffer buffer;
+		private int start;
+		private int length;
+
+		ByteLine(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		void set(int start, int end) {
+			this.start = start;
+			length = end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) (buffer.get(start + index) & 0xFF);
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			StringBuilder out = new StringBuilder(to - from);
+			for (int i = from; i < to; i++) {
+				out.append(charAt(i));
+			}
+			return out.toString();
+		}
+
+		/**
+		 * @return Line decoded using the default charset.
+		 */
+		@Override
+		public String toString() {
+			byte [] bytes = new byte [length];
+			for (int i = 0; i < length; i++) {
+				bytes[i] = buffer.get(start + i);
+			}
+			return new String(bytes, Charset.defaultCharset());
+		}
+	}
+
+	/**
+	 * Specifies source file, field separator and indices of relevant fields.
+	 * @param source Input file.
+	 * @param fieldSeparator Separator of fields (regular expression, see {@link FieldTSLoader}).
+	 * @param timeFieldIndex Index of time value
+	 * @param concentrationFieldIndex Index of concentration
+	 * @param derivativeFieldIndex Index of derivative
+	 * @throws FileNotFoundException when source file does not exist.
+	 */
+	public MappedTSLoader(File source, String fieldSeparator, int timeFieldIndex, int concentrationFieldIndex, int derivativeFieldIndex) throws FileNotFoundException {
+		if (timeFieldIndex < 0) {
+			throw new IllegalArgumentException("Index of time field is negative.");
+		}
+		if (concentrationFieldIndex < 0) {
+			throw new IllegalArgumentException("Index of concentration field is negative.");
+		}
+		if (derivativeFieldIndex < 0) {
+			throw new IllegalArgumentException("Index of derivative field is negative.");
+		}
+		if (fieldSeparator == null || fieldSeparator.isEmpty()) {
+			throw new IllegalArgumentException("Field separator is empty.");
+		}
+		if (!source.isFile()) {
+			throw new FileNotFoundException(source.toString());
+		}
+		this.source = source;
+		separator = fieldSeparator;
+		time = timeFieldIndex;
+		conc = concentrationFieldIndex;
+		deriv = derivativeFieldIndex;
+		maxIndex = Math.max(time, Math.max(conc, deriv));
+		new FieldTokenizer(encode(separator), maxIndex); //fails on invalid separator before parsing begins
+	}
+
+	/**
+	 * Creates loader from CSV with the default format of {@link CsvTSLoader}.
+	 * @param source Input file.
+	 * @throws FileNotFoundException when source file does not exist.
+	 */
+	public MappedTSLoader(File source) throws FileNotFoundException {
+		this(source, ",", 0, 1, 2);
+	}
+
+	/**
+	 * Transforms separator into a sequence of characters which corresponds to its encoded bytes.
+	 */
+	private static String encode(String separator) {
+		byte [] bytes = separator.getBytes(Charset.defaultCharset());
+		char [] chars = new char [bytes.length];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i] = (char) (bytes[i] & 0xFF);
+		}
+		return new String(chars);
+	}
+
+	private static synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool();
+		}
+		return pool;
+	}
+
+	/**
+	 * Parses whole input (when not done already).
+	 */
+	private TimeSeries getPoints() throws TSLoaderException {
+		if (points == null) {
+			TimeSeries target = new TimeSeries();
+			parse(target, null);
+			points = target;
+		}
+		return points;
+	}
+
+	/**
+	 * Parses whole input in parallel and appends it to <code>target</code>. Parsed chunks are appended (and passed
+	 * to <code>listener</code>) in order as soon as they and all chunks before them are finished.
+	 * @param listener Receives loaded segments, may be <code>null</code>.
+	 */
+	private void parse(TimeSeries target, TimeSeriesLoadListener listener) throws TSLoaderException {
+		FileInputStream in;
+		try {
+			in = new FileInputStream(source);
+		} catch (FileNotFoundException fnfe) {
+			throw new TSLoaderException("io", "IO error", fnfe);
+		}
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			List<Chunk> chunks = split(channel);
+			ForkJoinPool pool = getPool();
+			aborted = false;
+			for (Chunk chunk : chunks) {
+				pool.execute(chunk);
+			}
+
+			int lineNum = 0;
+			try {
+				for (Chunk chunk : chunks) {
+					chunk.join();
+					if (chunk.ioError != null) {
+						throw new TSLoaderException("io", "IO error", chunk.ioError);
+					}
+					if (chunk.errorType != null) {
+						throw new TSLoaderFormatException(chunk.errorType, chunk.errorMessage, lineNum + chunk.lines, chunk.errorLine);
+					}
+					if (listener != null && listener.isCancelled()) {
+						throw new CancellationException("Loading of time series was cancelled.");
+					}
+					lineNum += chunk.lines;
+					target.append(chunk.segment);
+					if (listener != null) {
+						listener.segmentLoaded(chunk.segment, chunk.end, size);
+					}
+				}
+			} finally {
+				aborted = true; //stops remaining chunks in case of an error
+				for (Chunk chunk : chunks) {
+					if (!chunk.isDone()) {
+						chunk.cancel(false);
+					}
+				}
+				for (Chunk chunk : chunks) {
+					if (!chunk.isCancelled()) {
+						chunk.quietlyJoin(); //mapped buffers are not used after channel is closed
+					}
+				}
+			}
+		} catch (IOException ioe) {
+			throw new TSLoaderException("io", "IO error", ioe);
+		} finally {
+			try {
+				in.close();
+			} catch (IOException ioe) {
+				//input was read completely, nothing to be done
+			}
+		}
+	}
+
+	/**
+	 * Splits input into chunks which start at the beginning of a line.
+	 */
+	private List<Chunk> split(FileChannel channel) throws IOException {
+		List<Chunk> chunks = new ArrayList<Chunk>();
+		long size = channel.size();
+		long start = 0;
+		ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+		while (start < size) {
+			long end = Math.min(size, start + CHUNK_SIZE);
+			while (end < size) { //move chunk end behind the nearest line end
+				probe.clear();
+				int read = channel.read(probe, end);
+				if (read <= 0) {
+					end = size;
+					break;
+				}
+				int i = 0;
+				while (i < read && probe.get(i) != '\n') {
+					i++;
+				}
+				end += i;
+				if (i < read) {
+					end++;
+					break;
+				}
+			}
+			if (end - start > Integer.MAX_VALUE) {
+				throw new IOException("Line is too long to be mapped.");
+			}
+			chunks.add(new Chunk(channel, start, end));
+			start = end;
+		}
+		return chunks;
+	}
+
+	@Override
+	public TimeSeriesPoint readPoint() throws TSLoaderException {
+		TimeSeries in = getPoints();
+		if (next >= in.getSize()) {
+			return null;
+		}
+		TimeSeriesPoint out = new TimeSeriesPoint(in.getTime(next), in.getConcentration(next), in.getDerivative(next));
+		next++;
+		return out;
+	}
+
+	@Override
+	void readAll(TimeSeries target) throws TSLoaderException {
+		if (points == null) {
+			parse(target, null);
+			points = target;
+			next = target.getSize();
+		} else {
+			super.readAll(target);
+		}
+	}
+
+	/**
+	 * Parses input in parallel, chunks are passed to <code>listener</code> in order as they are finished.
+	 */
+	@Override
+	public TimeSeries load(TimeSeriesLoadListener listener) throws TSLoaderException {
+		if (points != null) {
+			return super.load(listener);
+		}
+		TimeSeries out = new TimeSeries();
+		parse(out, listener);
+		points = out;
+		next = out.getSize();
+		return out;
+	}
+
+	@Override
+	public Map<String, String> export() {
+		Map<String, String> out = new HashMap<String, String>();
+		out.put("name", NAME);
+		out.put(FieldTSLoader.P_SEPARATOR, separator);
+		out.put(FieldTSLoader.P_TIME_INDEX, Integer.toString(time));
+		out.put(FieldTSLoader.P_CONC_INDEX, Integer.toString(conc));
+		out.put(FieldTSLoader.P_DERIV_INDEX, Integer.toString(deriv));
+		return out;
+	}
+}
@@ -0,0 +1,151 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package series;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Levels of detail of a time series, each coarser than the previous one by a factor of {@link #FACTOR}.
+ * 
+ * Levels are built on request and extended when points are appended to the time series (coarsest levels
+ * are added as needed). Levels coarser than the finest one (i.e. points) are stored here.
+ * 
+ * @author Tomáš Vejpustek
+ *
+ */
+class MinMaxPyramid {
+	/** Number of buckets (or points) comprising a bucket in the next coarser level. */
+	static final int FACTOR = 8;
+	
+	private final TimeSeries series;
+	private final List<Level> levels = new ArrayList<Level>();
+	private int sourceSize = 0; //number of points levels were built from
+	
+	/**
+	 * Level of detail stored in primitive columns.
+	 */
+	private static class Level implements TimeSeriesLevel {
+		private double [] start = new double [0];
+		private double [] end = new double [0];
+		private double [] min = new double [0];
+		private double [] max = new double [0];
+		private int size = 0;
+		private double maxSpan = 0; //maximum length of bucket time interval
+		
+		private void setSize(int newSize) {
+			if (newSize > start.length) {
+				int capacity = Math.max(newSize, start.length + (start.length >> 1));
+				start = Arrays.copyOf(start, capacity);
+				end = Arrays.copyOf(end, capacity);
+				min = Arrays.copyOf(min, capacity);
+				max = Arrays.copyOf(max, capacity);
+			}
+			size = newSize;
+		}
+		
+		private void set(int index, double startTime, double endTime, double minimum, double maximum) {
+			start[index] = startTime;
+			end[index] = endTime;
+			min[index] = minimum;
+			max[index] = maximum;
+			if (endTime - startTime > maxSpan) {
+				maxSpan = endTime - startTime;
+			}
+		}
+
+		@Override
+		public int getSize() {
+			return size;
+		}
+
+		@Override
+		public double getStartTime(int index) {
+			return start[index];
+		}
+
+		@Override
+		public double getEndTime(int index) {
+			return end[index];
+		}
+
+		@Override
+		public double getMinimum(int index) {
+			return min[index];
+		}
+
+		@Override
+		public double getMaximum(int index) {
+			return max[index];
+		}
+
+		@Override
+		public int findBucket(double time) {
+			int index = Arrays.binarySearch(start, 0, size, time);
+			if (index < 0) {
+				index = -index - 2;
+			}
+			return Math.max(0, index);
+		}
+	}
+	
+	/**
+	 * @param series Time series whose levels of detail are computed.
+	 */
+	MinMaxPyramid(TimeSeries series) {
+		this.series = series;
+	}
+	
+	/**
+	 * Extends levels to points appended to the time series since the last call.
+	 */
+	void update() {
+		if (sourceSize == series.getSize()) {
+			return;
+		}
+		TimeSeriesLevel finer = series.getPoints();
+		int from = sourceSize; //first changed bucket (or point) in finer level
+		int level = 0;
+		while (finer.getSize() > FACTOR) {
+			int first = from / FACTOR;
+			if (level == levels.size()) { //new level is computed whole
+				levels.add(new Level());
+				first = 0;
+			}
+			Level coarser = levels.get(level);
+			coarser.setSize((finer.getSize() + FACTOR - 1) / FACTOR);
+			for (int bucket = first; bucket < coarser.getSize(); bucket++) {
+				int lo = bucket*FACTOR;
+				int hi = Math.min(lo + FACTOR, finer.getSize());
+				double minimum = finer.getMinimum(lo);
+				double maximum = finer.getMaximum(lo);
+				for (int i = lo + 1; i < hi; i++) {
+					minimum = Math.min(minimum, finer.getMinimum(i));
+					maximum = Math.max(maximum, finer.getMaximum(i));
+				}
+				coarser.set(bucket, finer.getStartTime(lo), finer.getEndTime(hi-1), minimum, maximum);
+			}
+			finer = coarser;
+			from = first;
+			level++;
+		}
+		sourceSize = series.getSize();
+	}
+	
+	/**
+	 * @param maxSpan Maximum length of time interval of a bucket.
+	 * @return The coarsest level of detail whose buckets do not span more than <code>maxSpan</code>.
+	 */
+	TimeSeriesLevel getLevel(double maxSpan) {
+		update();
+		TimeSeriesLevel out = series.getPoints();
+		for (Level level : levels) {
+			if (level.maxSpan > maxSpan) {
+				break;
+			}
+			out = level;
+		}
+		return out;
+	}
+}
@@ -2,46 +2,121 @@
 //Full copyright notice found in src/LICENSE.
 package series;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.ListIterator;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
 
 import exceptions.TSLoaderException;
 
 /**
  * A sequence of {@link TimeSeriesPoint} in ascending time order.
- * 
+ *
  * Underlying data structure to be annotated by a user. Not supposed to change after loading.
- * 
+ *
+ * <p>Points are not stored as objects -- time, concentration and derivative values are kept in three
+ * primitive columns. Use index-based accessors (e.g. {@link #getConcentration(int)}) or
+ * {@link TimeSeriesIterator#advance()} to read them without creating a {@link TimeSeriesPoint} for each point.</p>
+ *
  * @author Tomáš Vejpustek
  *
  */
 public class TimeSeries {
-	private List<TimeSeriesPoint> points = new ArrayList<TimeSeriesPoint>();
-	
-	private class TimeSeriesIteratorImpl implements TimeSeriesIterator {
-		private ListIterator<TimeSeriesPoint> iter;
-		
-		public TimeSeriesIteratorImpl(ListIterator<TimeSeriesPoint> iterator) {
-			iter = iterator;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private double [] time = new double [INITIAL_CAPACITY];
+	private double [] concentration = new double [INITIAL_CAPACITY];
+	private double [] derivative = new double [INITIAL_CAPACITY];
+	private int size = 0;
+	private double maxConcentration = 0;
+	private MinMaxPyramid pyramid = null; //levels of detail, computed on request
+	private final TimeSeriesLevel points = new PointLevel();
+
+	/**
+	 * The finest level of detail -- one bucket per point.
+	 */
+	private class PointLevel implements TimeSeriesLevel {
+		@Override
+		public int getSize() {
+			return size;
 		}
 
+		@Override
+		public double getStartTime(int index) {
+			return time[index];
+		}
+
+		@Override
+		public double getEndTime(int index) {
+			return time[index];
+		}
+
+		@Override
+		public double getMinimum(int index) {
+			return concentration[index];
+		}
+
+		@Override
+		public double getMaximum(int index) {
+			return concentration[index];
+		}
+
+		@Override
+		public int findBucket(double t) {
+			int index = Arrays.binarySearch(time, 0, size, t);
+			if (index < 0) {
+				index = -index - 2;
+			}
+			return Math.max(0, index);
+		}
+	}
+
+	private class TimeSeriesIteratorImpl implements TimeSeriesIterator {
+		private int index = -1;
+
 		@Override
 		public boolean hasNext() {
-			return iter.hasNext();
+			return (index + 1 < size);
 		}
 
 		@Override
 		public TimeSeriesPoint next() {
-			return iter.next();
+			advance();
+			return new TimeSeriesPoint(getTime(), getConcentration(), getDerivative());
+		}
+
+		@Override
+		public void advance() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("There is no next point in the time series.");
+			}
+			index++;
+		}
+
+		@Override
+		public int getIndex() {
+			return index;
+		}
+
+		@Override
+		public double getTime() {
+			return TimeSeries.this.getTime(index);
+		}
+
+		@Override
+		public double getConcentration() {
+			return TimeSeries.this.getConcentration(index);
+		}
+
+		@Override
+		public double getDerivative() {
+			return TimeSeries.this.getDerivative(index);
 		}
 	}
-	
+
 	/**
 	 * Creates empty time series.
 	 */
 	public TimeSeries() {}
-	
+
 	/**
 	 * Loads time series from given source (usually a file).
 	 * @param source Wrapper of designated input.
@@ -49,31 +124,182 @@ public class TimeSeries {
 	 */
 	public TimeSeries(TimeSeriesLoader source) throws TSLoaderException {
 		//TODO ascending order testing?
-		TimeSeriesPoint input;
-		while (null != (input = source.readPoint())) {
-			points.add(input);
+		if (source instanceof AbstractTSLoader) {
+			((AbstractTSLoader) source).readAll(this);
+		} else {
+			TimeSeriesPoint input;
+			while (null != (input = source.readPoint())) {
+				add(input.getTime(), input.getConcentration(), input.getDerivative());
+			}
 		}
+		trimToSize();
 	}
-	
+
+	/**
+	 * Creates time series from columns of values. Arrays are used directly, i.e. they are not copied.
+	 * @param time Time values.
+	 * @param concentration Species concentrations.
+	 * @param derivative Species concentration derivatives.
+	 */
+	TimeSeries(double [] time, double [] concentration, double [] derivative) {
+		if (time.length != concentration.length || time.length != derivative.length) {
+			throw new IllegalArgumentException("Columns of time series differ in length.");
+		}
+		this.time = time;
+		this.concentration = concentration;
+		this.derivative = derivative;
+		size = time.length;
+		for (int i = 0; i < size; i++) {
+			if (concentration[i] > maxConcentration) {
+				maxConcentration = concentration[i];
+			}
+		}
+	}
+
+	/**
+	 * Appends a point to the end of this time series. Used while loading.
+	 * @param time Time value of the point.
+	 * @param concentration Species concentration in the point.
+	 * @param derivative Species concentration derivative in the point.
+	 */
+	void add(double time, double concentration, double derivative) {
+		if (size == this.time.length) {
+			ensureCapacity(size + 1);
+		}
+		this.time[size] = time;
+		this.concentration[size] = concentration;
+		this.derivative[size] = derivative;
+		if (concentration > maxConcentration) {
+			maxConcentration = concentration;
+		}
+		size++;
+	}
+
+	/**
+	 * Appends all points of another time series to the end of this one. Used while loading, e.g. to display
+	 * segments of a time series as they are loaded (see {@link TimeSeriesLoadListener}).
+	 * @param segment Points to be appended.
+	 */
+	public void append(TimeSeries segment) {
+		ensureCapacity(size + segment.size);
+		System.arraycopy(segment.time, 0, time, size, segment.size);
+		System.arraycopy(segment.concentration, 0, concentration, size, segment.size);
+		System.arraycopy(segment.derivative, 0, derivative, size, segment.size);
+		if (segment.maxConcentration > maxConcentration) {
+			maxConcentration = segment.maxConcentration;
+		}
+		size += segment.size;
+	}
+
+	/**
+	 * Grows columns so that they can hold at least <code>capacity</code> points.
+	 */
+	private void ensureCapacity(int capacity) {
+		if (capacity > time.length) {
+			int newCapacity = Math.max(capacity, time.length + (time.length >> 1));
+			time = Arrays.copyOf(time, newCapacity);
+			concentration = Arrays.copyOf(concentration, newCapacity);
+			derivative = Arrays.copyOf(derivative, newCapacity);
+		}
+	}
+
+	/**
+	 * Shrinks columns to the number of contained points (done when loading is finished).
+	 */
+	void trimToSize() {
+		if (size < time.length) {
+			time = Arrays.copyOf(time, size);
+			concentration = Arrays.copyOf(concentration, size);
+			derivative = Arrays.copyOf(derivative, size);
+		}
+	}
+
 	/**
 	 * @return <code>true</code> when there is no point in this time series, <code>false</code> otherwise.
 	 */
 	public boolean isEmpty() {
-		return points.isEmpty();
+		return (size == 0);
 	}
-	
+
+	/**
+	 * @return Number of points in this time series.
+	 */
+	public int getSize() {
+		return size;
+	}
+
 	/**
 	 * @return Iterator over the points comprising this time series.
 	 */
 	public TimeSeriesIterator iterator() {
-		return new TimeSeriesIteratorImpl(points.listIterator());
+		return new TimeSeriesIteratorImpl();
 	}
-	
+
 	/**
 	 * @return Duration of time series, i.e. the interval between its first and last points.
 	 */
 	public double getLength() {
-		return points.get(points.size() - 1).getTime();
+		return getTime(size - 1);
 	}
-	
+
+	/**
+	 * @return Maximum species concentration in this time series (zero when it is empty).
+	 */
+	public double getMaxConcentration() {
+		return maxConcentration;
+	}
+
+	/**
+	 * Returns level of detail suitable for rendering, e.g. when <code>maxSpan</code> is the time corresponding to one pixel,
+	 * the level has roughly one bucket per pixel. Levels are computed on the first call and extended when points are appended.
+	 * @param maxSpan Maximum length of time interval of one bucket.
+	 * @return The coarsest level of detail whose buckets span at most <code>maxSpan</code>.
+	 */
+	public TimeSeriesLevel getLevelOfDetail(double maxSpan) {
+		if (pyramid == null) {
+			pyramid = new MinMaxPyramid(this);
+		}
+		return pyramid.getLevel(maxSpan);
+	}
+
+	/**
+	 * @return Points of this time series as the finest level of detail.
+	 */
+	TimeSeriesLevel getPoints() {
+		return points;
+	}
+
+	/**
+	 * @return Time value of the point with given index.
+	 * @throws IndexOutOfBoundsException when there is no point with such index.
+	 */
+	public double getTime(int index) {
+		checkIndex(index);
+		return time[index];
+	}
+
+	/**
+	 * @return Species concentration in the point with given index.
+	 * @throws IndexOutOfBoundsException when there is no point with such index.
+	 */
+	public double getConcentration(int index) {
+		checkIndex(index);
+		return concentration[index];
+	}
+
+	/**
+	 * @return Species concentration derivative in the point with given index.
+	 * @throws IndexOutOfBoundsException when there is no point with such index.
+	 */
+	public double getDerivative(int index) {
+		checkIndex(index);
+		return derivative[index];
+	}
+
+	private void checkIndex(int index) {
+		if ((index < 0) || (index >= size)) {
+			throw new IndexOutOfBoundsException("Time series has no point with index " + index + ".");
+		}
+	}
+
 }
@@ -0,0 +1,288 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package series;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.zip.CRC32;
+
+import exceptions.TSLoaderException;
+
+import xml.TimeSeriesSource;
+
+/**
+ * Binary cache of loaded time series, so that a time series referenced by a formula need not be parsed
+ * from text each time the formula is opened.
+ *
+ * <p>Cache files are stored in a cache directory (see {@link #getCacheDirectory()}) and are identified by a key
+ * comprising of source file path, its size and time of last modification and loader parameters.
+ * A cache file contains the key, number of points, three columns of values (time, concentration and derivative)
+ * and a CRC32 checksum. It is mapped into memory when read. Cache files which do not match the key or are corrupt
+ * are ignored and rewritten.</p>
+ *
+ * <p>Cache is only an optimization -- failure to write it is silently ignored.</p>
+ *
+ * @author Tomáš Vejpustek
+ *
+ */
+public class TimeSeriesCache {
+	private static final int MAGIC = 0x4C545343; //"LTSC"
+	private static final int VERSION = 1;
+	private static final int BLOCK_SIZE = 64*1024;
+	private static final Charset KEY_CHARSET = Charset.forName("UTF-8");
+	private static final String SUFFIX = ".tsc";
+
+	private TimeSeriesCache() {}
+
+	/**
+	 * @return Directory containing cache files, i.e. <code>.ltl-editor/cache</code> in user home directory.
+	 */
+	public static File getCacheDirectory() {
+		return new File(new File(System.getProperty("user.home"), ".ltl-editor"), "cache");
+	}
+
+	/**
+	 * Loads time series from its source. Uses the cache file when it is valid, otherwise loads the time series
+	 * via {@link AbstractTSLoader#getLoader(TimeSeriesSource)} and writes a new cache file.
+	 * @param src Source of the time series.
+	 * @return Loaded time series.
+	 * @throws FileNotFoundException when the source file does not exist.
+	 * @throws TSLoaderException when the time series cannot be loaded.
+	 */
+	public static TimeSeries load(TimeSeriesSource src) throws TSLoaderException, FileNotFoundException {
+		return load(src, null);
+	}
+
+	/**
+	 * Loads time series from its source (see {@link #load(TimeSeriesSource)}) and reports loaded segments to a listener.
+	 * A time series read from the cache is reported as one segment.
+	 * @param src Source of the time series.
+	 * @param listener Receives segments of loaded time series, may be <code>null</code>.
+	 * @return Loaded time series.
+	 * @throws FileNotFoundException when the source file does not exist.
+	 * @throws TSLoaderException when the time series cannot be loaded.
+	 * @throws CancellationException when <code>listener</code> cancels loading.
+	 */
+	public static TimeSeries load(TimeSeriesSource src, TimeSeriesLoadListener listener) throws TSLoaderException, FileNotFoundException {
+		File source = src.getSourceFile();
+		if (!source.isFile()) {
+			throw new FileNotFoundException(source.toString());
+		}
+		String key = getKey(source, src.getParameters());
+		TimeSeries out = read(getCacheFile(source, src.getParameters()), key);
+		if (out != null) {
+			if (listener != null) {
+				listener.segmentLoaded(out, source.length(), source.length());
+			}
+		} else {
+			TimeSeriesLoader loader = AbstractTSLoader.getLoader(src);
+			if (loader == null) {
+				throw new TSLoaderException("import", "Unknown time series loader.");
+			}
+			if (loader instanceof AbstractTSLoader) {
+				out = ((AbstractTSLoader) loader).load(listener);
+			} else {
+				out = new TimeSeries(loader);
+			}
+			store(source, src.getParameters(), out);
+		}
+		return out;
+	}
+
+	/**
+	 * Writes cache file of a time series.
+	 * @param source Source file of the time series.
+	 * @param params Parameters of loader used to load the time series (see {@link TimeSeriesLoader#export()}).
+	 * @param series Loaded time series.
+	 */
+	public static void store(File source, Map<String, String> params, TimeSeries series) {
+		String key = getKey(source, params);
+		File target = getCacheFile(source, params);
+		File dir = target.getParentFile();
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			return;
+		}
+		File temp = null;
+		try {
+			temp = File.createTempFile("series", ".tmp", dir);
+			write(temp, key, series);
+			Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			temp = null;
+		} catch (IOException ioe) {
+			//cache is not necessary
+		} finally {
+			if (temp != null) {
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Creates the key identifying time series -- source path, size, time of modification and loader parameters (sorted).
+	 */
+	private static String getKey(File source, Map<String, String> params) {
+		StringBuilder out = new StringBuilder(getName(source, params));
+		out.append(source.length()).append('\n');
+		out.append(source.lastModified()).append('\n');
+		return out.toString();
+	}
+
+	/**
+	 * @return Part of the key which does not change with source file contents -- its path and loader parameters (sorted).
+	 */
+	private static String getName(File source, Map<String, String> params) {
+		StringBuilder out = new StringBuilder();
+		out.append(source.getAbsolutePath()).append('\n');
+		for (Map.Entry<String, String> param : new TreeMap<String, String>(params).entrySet()) {
+			out.append(param.getKey()).append('=').append(param.getValue()).append('\n');
+		}
+		return out.toString();
+	}
+
+	/**
+	 * @return Cache file named after the hash of source path and loader parameters, i.e. stale cache file
+	 * of the same source gets overwritten.
+	 */
+	private static File getCacheFile(File source, Map<String, String> params) {
+		String key = getName(source, params);
+		StringBuilder name = new StringBuilder();
+		try {
+			for (byte b : MessageDigest.getInstance("SHA-1").digest(key.getBytes(KEY_CHARSET))) {
+				name.append(Character.forDigit((b >> 4) & 0xF, 16));
+				name.append(Character.forDigit(b & 0xF, 16));
+			}
+		} catch (NoSuchAlgorithmException nsae) {
+			name.append(Integer.toHexString(key.hashCode()));
+		}
+		name.append(SUFFIX);
+		return new File(getCacheDirectory(), name.toString());
+	}
+
+	/**
+	 * Reads time series from a cache file.
+	 * @return Time series or <code>null</code> when the cache file does not exist, does not match the key or is corrupt.
+	 */
+	private static TimeSeries read(File file, String key) {
+		if (!file.isFile()) {
+			return null;
+		}
+		RandomAccessFile in = null;
+		try {
+			in = new RandomAccessFile(file, "r");
+			FileChannel channel = in.getChannel();
+			long length = channel.size();
+			if (length > Integer.MAX_VALUE) {
+				return null;
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			byte [] keyBytes = key.getBytes(KEY_CHARSET);
+			if (length < 4*4 + keyBytes.length + 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != keyBytes.length) {
+				return null;
+			}
+			byte [] storedKey = new byte [keyBytes.length];
+			buffer.get(storedKey);
+			int size = buffer.getInt();
+			if (!Arrays.equals(keyBytes, storedKey) || size < 0 || length != buffer.position() + 3L*8*size + 8) {
+				return null;
+			}
+			int dataEnd = (int) length - 8;
+			CRC32 crc = new CRC32();
+			ByteBuffer data = buffer.duplicate();
+			data.position(0);
+			data.limit(dataEnd);
+			crc.update(data);
+			if (crc.getValue() != buffer.getLong(dataEnd)) {
+				return null;
+			}
+			DoubleBuffer columns = buffer.asDoubleBuffer();
+			double [] time = new double [size];
+			double [] concentration = new double [size];
+			double [] derivative = new double [size];
+			columns.get(time);
+			columns.get(concentration);
+			columns.get(derivative);
+			return new TimeSeries(time, concentration, derivative);
+		} catch (IOException ioe) {
+			return null;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException ioe) {
+					//file was only read
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes time series into a cache file.
+	 */
+	private static void write(File file, String key, TimeSeries series) throws IOException {
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel channel = out.getChannel();
+			CRC32 crc = new CRC32();
+			byte [] keyBytes = key.getBytes(KEY_CHARSET);
+			ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(BLOCK_SIZE, 4*4 + keyBytes.length));
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(keyBytes.length);
+			buffer.put(keyBytes);
+			buffer.putInt(series.getSize());
+			for (int column = 0; column < 3; column++) {
+				for (int i = 0; i < series.getSize(); i++) {
+					if (buffer.remaining() < 8) {
+						flush(channel, buffer, crc);
+					}
+					buffer.putDouble(getValue(series, column, i));
+				}
+			}
+			flush(channel, buffer, crc);
+			buffer.putLong(crc.getValue());
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(false);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static double getValue(TimeSeries series, int column, int index) {
+		switch (column) {
+		case 0: return series.getTime(index);
+		case 1: return series.getConcentration(index);
+		default: return series.getDerivative(index);
+		}
+	}
+
+	/**
+	 * Writes buffer contents into channel and updates checksum.
+	 */
+	private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+		buffer.flip();
+		ByteBuffer checked = buffer.duplicate();
+		crc.update(checked);
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -1,5 +1,5 @@
 //Copyright (C) 2011 Tomáš Vejpustek
-//Full copyright notice found in src/LICENSE.  
+//Full copyright notice found in src/LICENSE.
 package series;
 
 import java.util.NoSuchElementException;
@@ -7,9 +7,13 @@ import java.util.NoSuchElementException;
 
 /**
  * Iterator over points of time series. To generate one use @link {@link TimeSeries#getIterator()}.
- * 
+ *
  * Note that iterator starts <b>before</b> first point in the series, i.e. {@link #next()} returns the first point.
- * 
+ *
+ * <p>Besides {@link #next()}, the iterator may be used as a cursor which creates no objects:
+ * {@link #advance()} moves to the next point and its values are then read by {@link #getTime()},
+ * {@link #getConcentration()} and {@link #getDerivative()}.</p>
+ *
  * @author Tomáš Vejpustek
  */
 public interface TimeSeriesIterator {
@@ -24,4 +28,30 @@ public interface TimeSeriesIterator {
 	 * @throws NoSuchElementException in case there is no next point.
 	 */
 	public TimeSeriesPoint next();
-}
\ No newline at end of file
+
+	/**
+	 * Moves to the next point without creating a {@link TimeSeriesPoint}.
+	 * @throws NoSuchElementException in case there is no next point.
+	 */
+	public void advance();
+
+	/**
+	 * @return Index of the current point (i.e. the one last returned by {@link #next()} or moved to by {@link #advance()}).
+	 */
+	public int getIndex();
+
+	/**
+	 * @return Time value of the current point.
+	 */
+	public double getTime();
+
+	/**
+	 * @return Species concentration in the current point.
+	 */
+	public double getConcentration();
+
+	/**
+	 * @return Species concentration derivative in the current point.
+	 */
+	public double getDerivative();
+}
@@ -0,0 +1,45 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package series;
+
+/**
+ * One level of detail of a {@link TimeSeries} -- consecutive points are grouped into buckets (in ascending time order)
+ * and only the time interval and extreme concentrations of each bucket are kept. Obtained via {@link TimeSeries#getLevelOfDetail(double)}.
+ * 
+ * The finest level contains one bucket per point.
+ * 
+ * @author Tomáš Vejpustek
+ *
+ */
+public interface TimeSeriesLevel {
+	
+	/**
+	 * @return Number of buckets.
+	 */
+	public int getSize();
+	
+	/**
+	 * @return Time of the first point in bucket.
+	 */
+	public double getStartTime(int index);
+	
+	/**
+	 * @return Time of the last point in bucket.
+	 */
+	public double getEndTime(int index);
+	
+	/**
+	 * @return Minimum species concentration in bucket.
+	 */
+	public double getMinimum(int index);
+	
+	/**
+	 * @return Maximum species concentration in bucket.
+	 */
+	public double getMaximum(int index);
+	
+	/**
+	 * @return Index of the last bucket starting before or at <code>time</code>, or <code>0</code> when there is none.
+	 */
+	public int findBucket(double time);
+}
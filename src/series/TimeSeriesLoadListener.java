@@ -0,0 +1,31 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package series;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Receives parts of a time series while it is being loaded (see {@link AbstractTSLoader#load(TimeSeriesLoadListener)})
+ * and may cancel loading.
+ * 
+ * <p>Methods are called from the loading thread.</p>
+ * 
+ * @author Tomáš Vejpustek
+ *
+ */
+public interface TimeSeriesLoadListener {
+	
+	/**
+	 * Called each time a segment of time series is loaded. Segments are passed in order and are not changed afterwards.
+	 * @param segment Points following those from previous segments.
+	 * @param position Number of input bytes processed so far or <code>-1</code> when unknown.
+	 * @param length Total number of input bytes or <code>-1</code> when unknown.
+	 */
+	public void segmentLoaded(TimeSeries segment, long position, long length);
+	
+	/**
+	 * Checked between segments, loading ends with {@link CancellationException} when it returns <code>true</code>.
+	 * @return <code>true</code> when loading should be stopped, <code>false</code> otherwise.
+	 */
+	public boolean isCancelled();
+}
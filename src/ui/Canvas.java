@@ -11,10 +11,9 @@ import java.awt.Paint;
 import java.awt.Stroke;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.util.HashMap;
-import java.util.Map;
 
 import ltl.Event;
 import ltl.Property;
@@ -22,8 +21,7 @@ import ltl.Transition;
 import ltl.Property.Bound;
 import selector.Selector;
 import series.TimeSeries;
-import series.TimeSeriesIterator;
-import series.TimeSeriesPoint;
+import series.TimeSeriesLevel;
 import coordinates.Transformation;
 
 /**
@@ -31,6 +29,8 @@ import coordinates.Transformation;
  * 
  * Contains values used for rendering.
  * 
+ * Drawing is clip-aware -- primitives outside the clip of underlying {@link Graphics} object are skipped.
+ * 
  * @author Tomáš Vejpustek
  *
  */
@@ -44,6 +44,8 @@ public class Canvas {
 	/** length of line displayed as a derivative */
 	public static final double DERIVATIVE_RADIUS = 50;
 	private static final double DERIVATIVE_CIRCLE_RADIUS = 25;
+	/** margin added to bounds of primitives to cover line widths and selectors */
+	public static final double BOUNDS_MARGIN = SELECTOR_SIDE;
 
 	private static Color BLANK = Color.WHITE;
 	private static Stroke SERIES_STROKE = new BasicStroke(1);
@@ -70,6 +72,7 @@ public class Canvas {
 	private Transformation coord;
 	private Point2D size;
 	private boolean selectorsActive;
+	private Rectangle2D clip; //null when the whole component is drawn
 	
 	/**
 	 * Creates canvas from a {@link Graphics} object and clears it.
@@ -81,17 +84,50 @@ public class Canvas {
 	 * @param selectorsActive <code>false</code> when all selectors should be drawn as disabled, <code>true</code> otherwise.
 	 */
 	public Canvas(Graphics g, Transformation coordinates, int width, int height, boolean selectorsActive) {
+		this(g, coordinates, width, height, selectorsActive, true);
+	}
+	
+	/**
+	 * Creates canvas from a {@link Graphics} object.
+	 * 
+	 * @param g Graphics object
+	 * @param coordinates Coordinate transformation from parent component to model.
+	 * @param width Width of parent component.
+	 * @param height Height of parent component.
+	 * @param selectorsActive <code>false</code> when all selectors should be drawn as disabled, <code>true</code> otherwise.
+	 * @param clear <code>true</code> when the canvas should be cleared, <code>false</code> when drawing over existing contents.
+	 */
+	public Canvas(Graphics g, Transformation coordinates, int width, int height, boolean selectorsActive, boolean clear) {
 		canvas = (Graphics2D) g;
 		coord = coordinates;
 		size = new Point2D.Double(width, height);
 		this.selectorsActive = selectorsActive;
+		clip = canvas.getClipBounds();
 		
 		canvas.setBackground(BLANK); //sets background
-		g.clearRect(0, 0, width, height);
+		if (clear) {
+			g.clearRect(0, 0, width, height);
+		}
+	}
+	
+	/**
+	 * @param bounds Bounds of a primitive in on-screen coordinates.
+	 * @return <code>false</code> when a primitive with given bounds lies outside the clip, <code>true</code> otherwise.
+	 */
+	private boolean isVisible(Rectangle2D bounds) {
+		if (clip == null) {
+			return true;
+		}
+		return clip.intersects(bounds.getX()-BOUNDS_MARGIN, bounds.getY()-BOUNDS_MARGIN,
+				bounds.getWidth()+2*BOUNDS_MARGIN, bounds.getHeight()+2*BOUNDS_MARGIN);
 	}
 	
 	/**
 	 * Renders time series as a line.
+	 * 
+	 * Uses level of detail with roughly one bucket per pixel (see {@link TimeSeries#getLevelOfDetail(double)}),
+	 * buckets falling into the same pixel column are merged and drawn as (at most) two vertices of one path.
+	 * Only pixel columns inside the clip (and their neighbours) are drawn.
 	 * @param series Input time series.
 	 */
 	public void drawTimeSeries(TimeSeries series) {
@@ -100,14 +136,100 @@ public class Canvas {
 		
 		if (series.isEmpty()) {return;} //for the case of empty time series
 		
-		Point2D start, end;
-		TimeSeriesIterator iter = series.iterator();
-		start = new Point2D.Double(0, iter.next().getConcentration());
-		while (iter.hasNext()) {
-			TimeSeriesPoint point = iter.next();
-			end = new Point2D.Double(point.getTime(), point.getConcentration());
-			canvas.draw(new Line2D.Double(coord.getX(start.getX()), coord.getY(start.getY()), coord.getX(end.getX()), coord.getY(end.getY())));
-			start = end;
+		double pixelTime = coord.getTime(1) - coord.getTime(0);
+		if (!(pixelTime > 0)) {
+			pixelTime = 0;
+		}
+		TimeSeriesLevel level = series.getLevelOfDetail(pixelTime);
+		
+		//drawing starts with a whole pixel column left of clip and ends right of it
+		int first = 0;
+		int lastColumn = Integer.MAX_VALUE;
+		if (clip != null) {
+			first = level.findBucket(coord.getTime(Math.floor(clip.getMinX()) - 1));
+			while (first > 0 && getColumn(level, first-1) == getColumn(level, first)) {
+				first--;
+			}
+			lastColumn = (int) Math.floor(clip.getMaxX()) + 1;
+		}
+		
+		Path2D path = new Path2D.Double();
+		double firstY = coord.getY(series.getConcentration(0));
+		if (first == 0) {
+			path.moveTo(coord.getX(0), firstY);
+		}
+		
+		//merged buckets of current pixel column
+		int column = 0;
+		int count = 0;
+		double x = 0, top = 0, bottom = 0, reference = 0;
+		for (int i = first; i < level.getSize(); i++) {
+			double bucketX = coord.getX(level.getStartTime(i));
+			double bucketTop = coord.getY(level.getMaximum(i));
+			double bucketBottom = coord.getY(level.getMinimum(i));
+			int bucketColumn = (int) Math.floor(bucketX);
+			if (count > 0 && bucketColumn == column) {
+				top = Math.min(top, bucketTop);
+				bottom = Math.max(bottom, bucketBottom);
+				count++;
+			} else {
+				if (count > 0) {
+					drawColumn(path, x, column, count, top, bottom, reference);
+					count = 0;
+				}
+				if (bucketColumn > lastColumn) {
+					break;
+				}
+				column = bucketColumn;
+				x = bucketX;
+				top = bucketTop;
+				bottom = bucketBottom;
+				reference = (i > 0) ? coord.getY((level.getMinimum(i-1) + level.getMaximum(i-1))/2) : firstY;
+				count = 1;
+			}
+		}
+		if (count > 0) {
+			drawColumn(path, x, column, count, top, bottom, reference);
+		}
+		canvas.draw(path);
+	}
+	
+	/**
+	 * @return Pixel column of bucket with given index.
+	 */
+	private int getColumn(TimeSeriesLevel level, int index) {
+		return (int) Math.floor(coord.getX(level.getStartTime(index)));
+	}
+	
+	/**
+	 * Adds merged buckets of one pixel column to rendered time series.
+	 * A single point is drawn precisely, otherwise the vertex closer to the reference goes first.
+	 * The reference depends only on the preceding bucket, so that a column is drawn the same regardless of clip.
+	 * @param reference Y coordinate of the preceding bucket (its middle).
+	 */
+	private static void drawColumn(Path2D path, double x, int column, int count, double top, double bottom, double reference) {
+		if (count == 1 && top == bottom) {
+			addVertex(path, x, top);
+			return;
+		}
+		double center = column + 0.5;
+		if (Math.abs(reference - top) < Math.abs(reference - bottom)) {
+			addVertex(path, center, top);
+			addVertex(path, center, bottom);
+		} else {
+			addVertex(path, center, bottom);
+			addVertex(path, center, top);
+		}
+	}
+	
+	/**
+	 * Adds a vertex to rendered time series, the first one starts the path.
+	 */
+	private static void addVertex(Path2D path, double x, double y) {
+		if (path.getCurrentPoint() == null) {
+			path.moveTo(x, y);
+		} else {
+			path.lineTo(x, y);
 		}
 	}
 	
@@ -143,6 +265,9 @@ public class Canvas {
 	 * Renders <code>event</code> with respect to its type.
 	 */
 	public void drawEvent(Event event) {
+		if (!isVisible(event.getBounds(coord))) {
+			return;
+		}
 		Property time = event.getTime();
 		Property conc = event.getConcentration();
 		Point2D ref = new Point2D.Double(coord.getX(time.getCenter()), coord.getY(conc.getCenter()));
@@ -234,6 +359,9 @@ public class Canvas {
 	 * Renders <code>trans</code> with respect to its type.
 	 */
 	public void drawTransition(Transition trans) {
+		if (!isVisible(trans.getBounds(coord))) {
+			return;
+		}
 		Point2D l, r;
 		if (trans.getLeft() != null) {
 			l = new Point2D.Double(coord.getX(trans.getLeft().getTime().getCenter()), coord.getY(trans.getLeft().getConcentration().getCenter()));
@@ -279,31 +407,66 @@ public class Canvas {
 	public void drawDerivative(Property derivative, Point2D center) {
 		canvas.setStroke(DERIVATIVE_STROKE);
 		canvas.setPaint(DERIVATIVE_COLOR);
-		Map<Bound, Double> angles = new HashMap<Bound, Double>();
+		double upperAngle = 0, lowerAngle = 0; //used only when derivative has both bounds
 		
 		for (Bound b : Bound.values()) {
 			if (derivative.hasBound(b)) {
-				double k = derivative.getBound(b);
-				double dx = (coord.getTime(coord.getX(center.getX())+DERIVATIVE_RADIUS)-center.getX())/(Math.sqrt(k*k+1));
-				double dy = (dx != 0) ? k*dx : DERIVATIVE_RADIUS;
-				double x = coord.getX(center.getX()+dx);
-				double y = coord.getY(center.getY()+dy);
-				canvas.draw(new Line2D.Double(x, y, coord.getX(center.getX()-dx), coord.getY(center.getY()-dy)));
+				Line2D line = getDerivativeLine(derivative.getBound(b), center, coord);
+				canvas.draw(line);
 				if (derivative.hasBounds()) {
-					angles.put(b, Math.toDegrees(Math.atan((y-coord.getY(center.getY()))/(x-coord.getX(center.getX())))));
+					double angle = Math.toDegrees(Math.atan((line.getY1()-coord.getY(center.getY()))/(line.getX1()-coord.getX(center.getX()))));
+					if (b == Bound.UPPER) {
+						upperAngle = angle;
+					} else {
+						lowerAngle = angle;
+					}
 				}
 			}
 		}
 		
 		if (derivative.hasBounds()) {
 			Rectangle2D bounds = new Rectangle2D.Double(coord.getX(center.getX())-DERIVATIVE_CIRCLE_RADIUS, coord.getY(center.getY())-DERIVATIVE_CIRCLE_RADIUS, 2*DERIVATIVE_CIRCLE_RADIUS, 2*DERIVATIVE_CIRCLE_RADIUS); 
-			double dAngle = Math.abs(angles.get(Bound.UPPER)-angles.get(Bound.LOWER));
+			double dAngle = Math.abs(upperAngle-lowerAngle);
 			if (derivative.getBound(Bound.UPPER) < derivative.getBound(Bound.LOWER)) {
 				dAngle = 180 - dAngle;
 			}
-			canvas.draw(new Arc2D.Double(bounds, -angles.get(Bound.LOWER), dAngle, Arc2D.OPEN));
-			canvas.draw(new Arc2D.Double(bounds, -angles.get(Bound.LOWER)+180, dAngle, Arc2D.OPEN));
+			canvas.draw(new Arc2D.Double(bounds, -lowerAngle, dAngle, Arc2D.OPEN));
+			canvas.draw(new Arc2D.Double(bounds, -lowerAngle+180, dAngle, Arc2D.OPEN));
+		}
+	}
+
+	/**
+	 * @param k Derivative.
+	 * @param center Point in which the derivative is drawn in model coordinates.
+	 * @return Line representing the derivative in on-screen coordinates.
+	 */
+	private static Line2D getDerivativeLine(double k, Point2D center, Transformation coord) {
+		double dx = (coord.getTime(coord.getX(center.getX())+DERIVATIVE_RADIUS)-center.getX())/(Math.sqrt(k*k+1));
+		double dy = (dx != 0) ? k*dx : DERIVATIVE_RADIUS;
+		return new Line2D.Double(coord.getX(center.getX()+dx), coord.getY(center.getY()+dy),
+				coord.getX(center.getX()-dx), coord.getY(center.getY()-dy));
+	}
+	
+	/**
+	 * Computes area covered by rendered <code>derivative</code> (see {@link #drawDerivative(Property, Point2D)}).
+	 * @param center Point in which the derivative is drawn in model coordinates.
+	 * @param coord Coordinate transformation between on-screen and model coordinates.
+	 * @return Bounding rectangle of rendered derivative in on-screen coordinates.
+	 */
+	public static Rectangle2D getDerivativeBounds(Property derivative, Point2D center, Transformation coord) {
+		double x = coord.getX(center.getX());
+		double y = coord.getY(center.getY());
+		Rectangle2D out = new Rectangle2D.Double(x, y, 0, 0);
+		for (Bound b : Bound.values()) {
+			if (derivative.hasBound(b)) {
+				out.add(getDerivativeLine(derivative.getBound(b), center, coord).getBounds2D());
+			}
+		}
+		if (derivative.hasBounds()) {
+			out.add(new Rectangle2D.Double(x-DERIVATIVE_CIRCLE_RADIUS, y-DERIVATIVE_CIRCLE_RADIUS,
+					2*DERIVATIVE_CIRCLE_RADIUS, 2*DERIVATIVE_CIRCLE_RADIUS));
 		}
+		return out;
 	}
 
 	/**
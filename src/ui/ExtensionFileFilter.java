@@ -10,20 +10,31 @@ import javax.swing.filechooser.FileFilter;
 /**
  * Filters files according to their extension (i.e. the last characters of its name after ".").
  * 
- * Descriptions are read from resource bundle <code>ui.labels</code> and are in form "<code>ext_</code> + extension".
+ * Unless given, descriptions are read from resource bundle <code>ui.labels</code> and are in form "<code>ext_</code> + extension".
  * 
  * @author Tomáš Vejpustek
  *
  */
 public class ExtensionFileFilter extends FileFilter {
 	private String extension;
+	private String description;
 	
 	/**
 	 * Creates filter with given extension. 
 	 * @param extension Filename extension (without dot).
 	 */
 	public ExtensionFileFilter(String extension) {
+		this(extension, null);
+	}
+	
+	/**
+	 * Creates filter with given extension and description.
+	 * @param extension Filename extension (without dot).
+	 * @param description Description of filtered files.
+	 */
+	public ExtensionFileFilter(String extension, String description) {
 		this.extension = extension;
+		this.description = description;
 	}
 
 	@Override
@@ -39,6 +50,9 @@ public class ExtensionFileFilter extends FileFilter {
 
 	@Override
 	public String getDescription() {
+		if (description != null) {
+			return description;
+		}
 		ResourceBundle labels = ResourceBundle.getBundle("ui.labels");
 		return labels.getString("ext_" + extension);
 	}
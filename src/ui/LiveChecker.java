@@ -0,0 +1,92 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ui;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.SwingUtilities;
+
+import ltl.IncrementalEvaluator;
+import ltl.Model;
+import ltl.Monitor;
+import series.TimeSeries;
+
+/**
+ * Checks whether the displayed time series satisfies the model while it is being edited and shows the result in
+ * a {@link StatusBar}.
+ *
+ * Models are evaluated in a background thread by an {@link IncrementalEvaluator}, i.e. only the part of model
+ * following the edited primitive is evaluated again. Only the newest model waits for evaluation (older ones are
+ * discarded) and results of models which have been replaced in the meantime are not displayed.
+ *
+ * Methods are to be called from the event dispatch thread.
+ *
+ * @author Tomáš Vejpustek
+ */
+public class LiveChecker {
+	private final StatusBar statusBar;
+	private final ExecutorService executor;
+	private final AtomicLong generation = new AtomicLong(); //number of the last requested check
+	private IncrementalEvaluator evaluator = null; //used only by the background thread
+
+	/**
+	 * @param statusBar Displays results of checks.
+	 */
+	public LiveChecker(StatusBar statusBar) {
+		this.statusBar = statusBar;
+		executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "LiveChecker");
+						thread.setDaemon(true);
+						return thread;
+					}
+				}, new ThreadPoolExecutor.DiscardOldestPolicy());
+	}
+
+	/**
+	 * Starts check of <code>model</code> on <code>series</code>. Result of any previous check is not displayed
+	 * unless it is already.
+	 * @param model Checked model. It is copied, i.e. it may be changed afterwards.
+	 * @param series Completely loaded time series, which is not changed afterwards.
+	 */
+	public void check(Model model, final TimeSeries series) {
+		final Monitor monitor = new Monitor(model);
+		final long current = generation.incrementAndGet();
+		statusBar.setCheckRunning();
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				if (generation.get() != current) { //newer check has been requested
+					return;
+				}
+				if (evaluator == null || evaluator.getTimeSeries() != series) {
+					evaluator = new IncrementalEvaluator(series);
+				}
+				final boolean satisfied = evaluator.evaluate(monitor).isSatisfied();
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						if (generation.get() == current) {
+							statusBar.setCheckResult(satisfied);
+						}
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Discards result of any running check and displays no result.
+	 */
+	public void cancel() {
+		generation.incrementAndGet();
+		statusBar.clearCheck();
+	}
+}
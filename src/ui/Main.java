@@ -10,17 +10,18 @@ import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.imageio.ImageIO;
 import javax.swing.ButtonGroup;
@@ -34,15 +35,18 @@ import javax.swing.JPanel;
 import javax.swing.JTextArea;
 import javax.swing.JToggleButton;
 import javax.swing.JToolBar;
+import javax.swing.SwingWorker;
 import javax.swing.border.EmptyBorder;
+import javax.swing.filechooser.FileFilter;
 
-import series.AbstractTSLoader;
-import series.CsvTSLoader;
+import ltl.Dialect;
+import ltl.PlainDialect;
+import series.MappedTSLoader;
 import series.TimeSeries;
-import series.TimeSeriesLoader;
+import series.TimeSeriesCache;
 import ui.ActionManager.ActionType;
 import xml.Formula;
-import exceptions.TSLoaderException;
+import xml.TimeSeriesSource;
 import exceptions.XMLException;
 
 /**
@@ -68,8 +72,10 @@ public class Main extends JFrame {
 	
 	private File timeSeriesFolder = new File(System.getProperty("user.home"));
 	private File exportFolder = new File(System.getProperty("user.home"));
+	private Dialect exportDialect = new PlainDialect();
 	
 	private Formula formula = new Formula();
+	private TimeSeriesWorker seriesWorker = null; //time series being loaded
 
 	/**
 	 * Launches the application.
@@ -100,6 +106,7 @@ public class Main extends JFrame {
 		setContentPane(contentPane);
 		
 		formulaeFC.setFileFilter(new ExtensionFileFilter("xml"));
+		formula.setJournaling(true);
 		
 		statusBar = new StatusBar(actions, showTimeSeries);
 		contentPane.add(statusBar, BorderLayout.SOUTH);
@@ -147,6 +154,7 @@ public class Main extends JFrame {
 			@Override
 			public void actionPerformed(ActionEvent e) {
 				if (checkSaved()) {
+					formula.close();
 					System.exit(0);
 				}
 			}
@@ -158,33 +166,34 @@ public class Main extends JFrame {
 				fc.setFileFilter(new ExtensionFileFilter("csv"));
 				int retVal = fc.showOpenDialog(Main.this);
 				if (retVal == JFileChooser.APPROVE_OPTION) {
-					BufferedReader input;
-					TimeSeries series;
+					final File source = fc.getSelectedFile();
+					final MappedTSLoader loader;
 					try {
-						input = new BufferedReader(new InputStreamReader(new FileInputStream(fc.getSelectedFile())));
+						loader = new MappedTSLoader(source);
 					} catch (FileNotFoundException fnfe) {
-						JOptionPane.showMessageDialog(Main.this, MessageFormat.format(messagesRB.getString("err_fnf_inf"), fc.getSelectedFile().toString()), labelsRB.getString("err_input"), JOptionPane.ERROR_MESSAGE);
+						JOptionPane.showMessageDialog(Main.this, MessageFormat.format(messagesRB.getString("err_fnf_inf"), source.toString()), labelsRB.getString("err_input"), JOptionPane.ERROR_MESSAGE);
 						return;
 					}
-					
-					try {
-						TimeSeriesLoader loader = new CsvTSLoader(input);
-						series = new TimeSeries(loader);
-						workspace.setTimeSeries(series);
-						formula.setTimeSeriesSource(fc.getSelectedFile(), loader);
-						actions.getAction(ActionType.SWITCH_TS_VISIBILITY).setEnabled(true);
-						showTimeSeries.setSelected(true);
-					} catch (TSLoaderException tsle) {
-						JOptionPane.showMessageDialog(Main.this, tsle.getLocalizedMessage(), labelsRB.getString("err_input"), JOptionPane.ERROR_MESSAGE);
-						return;
-					} finally {
-						try {
-							input.close();
-						} catch (IOException ioe) {
-							JOptionPane.showMessageDialog(Main.this, MessageFormat.format(messagesRB.getString("err_io_close"), fc.getSelectedFile()) + "\n" + ioe.getLocalizedMessage(), labelsRB.getString("err_input"), JOptionPane.ERROR_MESSAGE);
-							return;
+					loadTimeSeries(new TimeSeriesWorker(workspace, statusBar) {
+						@Override
+						protected TimeSeries load() throws Exception {
+							TimeSeries out = loader.load(this);
+							TimeSeriesCache.store(source, loader.export(), out);
+							return out;
 						}
-					}
+						
+						@Override
+						protected void loaded(TimeSeries series) {
+							formula.setTimeSeriesSource(source, loader);
+							actions.getAction(ActionType.SWITCH_TS_VISIBILITY).setEnabled(true);
+							showTimeSeries.setSelected(true);
+						}
+						
+						@Override
+						protected void failed(Throwable cause) {
+							JOptionPane.showMessageDialog(Main.this, cause.getLocalizedMessage(), labelsRB.getString("err_input"), JOptionPane.ERROR_MESSAGE);
+						}
+					});
 				}
 				timeSeriesFolder = fc.getCurrentDirectory();
 			}
@@ -192,6 +201,7 @@ public class Main extends JFrame {
 		actions.setAction(ActionType.TS_CLEAR, new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
+				cancelTimeSeriesLoading();
 				workspace.setTimeSeries(null);
 				formula.removeTimeSeriesSource();
 				actions.getAction(ActionType.SWITCH_TS_VISIBILITY).setEnabled(false);
@@ -201,16 +211,16 @@ public class Main extends JFrame {
 		actions.setAction(ActionType.FORM_SAVE_AS, new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				saveFormulaAs();
+				if (chooseFormulaFile()) {
+					saveFormulaInBackground();
+				}
 			}
 		});
 		actions.setAction(ActionType.FORM_SAVE, new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				if (formula.getFormulaFile() == null) {
-					saveFormulaAs();
-				} else {
-					saveFormula();
+				if (formula.getFormulaFile() != null || chooseFormulaFile()) {
+					saveFormulaInBackground();
 				}
 			}
 		});
@@ -222,10 +232,14 @@ public class Main extends JFrame {
 					if (retVal == JFileChooser.APPROVE_OPTION) {
 						try {
 							workspace.unselect();
+							formula.close(); //changes have been saved or discarded
 							formula.setFormulaFile(formulaeFC.getSelectedFile());
 							formula.load();
 							workspace.refresh();
 							setNameTitle(formula.getFormulaFile().toString());
+							if (formula.isRecovered()) {
+								JOptionPane.showMessageDialog(Main.this, messagesRB.getString("journal_recovered"), labelsRB.getString("msg_recovered"), JOptionPane.INFORMATION_MESSAGE);
+							}
 						} catch (FileNotFoundException fnfe) {
 							JOptionPane.showMessageDialog(Main.this, MessageFormat.format(messagesRB.getString("err_fnf_out"), formulaeFC.getSelectedFile().toString()), labelsRB.getString("err_input"), JOptionPane.ERROR_MESSAGE);
 							return;
@@ -233,16 +247,25 @@ public class Main extends JFrame {
 							JOptionPane.showMessageDialog(Main.this, xmle.getLocalizedMessage(), labelsRB.getString("err_input"), JOptionPane.ERROR_MESSAGE);
 							return;
 						}
-						try {
-							TimeSeriesLoader loader = AbstractTSLoader.getLoader(formula.getTimeSeriesSource());
-							TimeSeries series = new TimeSeries(loader);
-							workspace.setTimeSeries(series);
-							actions.getAction(ActionType.SWITCH_TS_VISIBILITY).setEnabled(true);
-							showTimeSeries.setSelected(true);
-						} catch (FileNotFoundException fnfe) {
-							JOptionPane.showMessageDialog(Main.this, MessageFormat.format(messagesRB.getString("ts_not_loaded"), fnfe.getLocalizedMessage()), labelsRB.getString("err_input"), JOptionPane.WARNING_MESSAGE);
-						} catch (TSLoaderException tsle) {
-							JOptionPane.showMessageDialog(Main.this, MessageFormat.format(messagesRB.getString("ts_not_loaded"), tsle.getLocalizedMessage()), labelsRB.getString("err_input"), JOptionPane.WARNING_MESSAGE);
+						final TimeSeriesSource source = formula.getTimeSeriesSource();
+						if (source != null) {
+							loadTimeSeries(new TimeSeriesWorker(workspace, statusBar) {
+								@Override
+								protected TimeSeries load() throws Exception {
+									return TimeSeriesCache.load(source, this);
+								}
+								
+								@Override
+								protected void loaded(TimeSeries series) {
+									actions.getAction(ActionType.SWITCH_TS_VISIBILITY).setEnabled(true);
+									showTimeSeries.setSelected(true);
+								}
+								
+								@Override
+								protected void failed(Throwable cause) {
+									JOptionPane.showMessageDialog(Main.this, MessageFormat.format(messagesRB.getString("ts_not_loaded"), cause.getLocalizedMessage()), labelsRB.getString("err_input"), JOptionPane.WARNING_MESSAGE);
+								}
+							});
 						}
 						workspace.repaint();
 					}
@@ -254,11 +277,12 @@ public class Main extends JFrame {
 			public void actionPerformed(ActionEvent e) {
 				if (checkSaved()) {
 					workspace.clearModel();
+					formula.close(); //changes have been saved or discarded
 					formula.setFormulaFile(null);
 					formula.clearModel();
 					setDefaultTitle();
 					initUndoRedo();
-					workspace.repaint();
+					workspace.refresh();
 				}	
 			}
 		});
@@ -332,13 +356,23 @@ public class Main extends JFrame {
 		actions.setAction(ActionType.EXPORT_FORMULA, new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				String formula = workspace.translateFormula();
-				if (formula.isEmpty()) {
+				if (workspace.isFormulaEmpty()) {
 					JOptionPane.showMessageDialog(Main.this, messagesRB.getString("ltl_formula_empty"), labelsRB.getString("err_output"), JOptionPane.ERROR_MESSAGE);
 				} else {
 					JFileChooser fc = new JFileChooser(exportFolder);
-					fc.setFileFilter(new ExtensionFileFilter("ltl"));
+					Map<FileFilter, Dialect> dialects = new HashMap<FileFilter, Dialect>();
+					for (Dialect dialect : Dialect.getDialects()) {
+						FileFilter filter = new ExtensionFileFilter(dialect.getExtension(), dialect.getDescription());
+						dialects.put(filter, dialect);
+						fc.addChoosableFileFilter(filter);
+						if (dialect.getName().equals(exportDialect.getName())) {
+							fc.setFileFilter(filter);
+						}
+					}
 					int retVal = fc.showSaveDialog(Main.this);
+					if (dialects.containsKey(fc.getFileFilter())) {
+						exportDialect = dialects.get(fc.getFileFilter());
+					}
 					if (retVal == JFileChooser.APPROVE_OPTION && checkFileWrite(fc.getSelectedFile())) {
 						BufferedWriter out;
 						try {
@@ -348,9 +382,11 @@ public class Main extends JFrame {
 							return;
 						}
 						try {
-							out.write(formula);
+							workspace.translateFormula(exportDialect, out);
 						} catch (IOException ioe) {
 							JOptionPane.showMessageDialog(Main.this, MessageFormat.format(messagesRB.getString("err_io_close"), fc.getSelectedFile()), labelsRB.getString("err_output"), JOptionPane.ERROR_MESSAGE);
+						} catch (IllegalArgumentException iae) {
+							JOptionPane.showMessageDialog(Main.this, MessageFormat.format(messagesRB.getString("err_value_export"), iae.getMessage()), labelsRB.getString("err_output"), JOptionPane.ERROR_MESSAGE);
 						} finally {
 							try {
 								out.close();
@@ -392,7 +428,7 @@ public class Main extends JFrame {
 					actions.getAction(ActionType.UNDO).setEnabled(false);
 				}
 				actions.getAction(ActionType.REDO).setEnabled(true);
-				workspace.repaint();
+				workspace.refresh();
 			}
 		});
 		actions.setAction(ActionType.REDO, new ActionListener() {
@@ -403,7 +439,7 @@ public class Main extends JFrame {
 					actions.getAction(ActionType.REDO).setEnabled(false);
 				}
 				actions.getAction(ActionType.UNDO).setEnabled(true);
-				workspace.repaint();
+				workspace.refresh();
 			}
 		});
 		initUndoRedo();
@@ -412,6 +448,7 @@ public class Main extends JFrame {
 		addWindowListener(new WindowAdapter() {
 			public void windowClosing(WindowEvent e) {
 				if (checkSaved()) {
+					formula.close();
 					System.exit(0);
 				}
 			}
@@ -431,28 +468,72 @@ public class Main extends JFrame {
 			formula.save();
 			return true;
 		} catch (FileNotFoundException fnfe) {
-			JOptionPane.showMessageDialog(this, MessageFormat.format(messagesRB.getString("err_fnf_out"), formula.getFormulaFile().toString()), labelsRB.getString("err_output"), JOptionPane.ERROR_MESSAGE);
-			formula.setFormulaFile(null);
-			setDefaultTitle();
+			saveFailed(fnfe, formula.getFormulaFile());
 			return false;
 		} catch (XMLException xmle) {
-			JOptionPane.showMessageDialog(this, xmle.getLocalizedMessage(), labelsRB.getString("err_output"), JOptionPane.ERROR_MESSAGE);
-			formula.setFormulaFile(null);
-			setDefaultTitle();
+			saveFailed(xmle, formula.getFormulaFile());
 			return false;
 		}
 	}
 	
+	/**
+	 * Saves current formula to file specified by the user interface in background. Errors are reported when
+	 * the formula has been written. The file is kept even when the save fails, since other saves may be pending.
+	 */
+	private void saveFormulaInBackground() {
+		workspace.unselect();
+		final File file = formula.getFormulaFile();
+		final Future<?> save = formula.saveInBackground();
+		new SwingWorker<Void, Void>() {
+			@Override
+			protected Void doInBackground() throws Exception {
+				Formula.waitForSave(save);
+				return null;
+			}
+			
+			@Override
+			protected void done() {
+				try {
+					get();
+				} catch (InterruptedException ie) {
+					return;
+				} catch (ExecutionException ee) {
+					saveFailed(ee.getCause(), file);
+				}
+			}
+		}.execute();
+	}
+	
+	/**
+	 * Reports an error of saving the formula.
+	 * @param file File the formula was being saved into.
+	 */
+	private void saveFailed(Throwable cause, File file) {
+		if (cause instanceof FileNotFoundException) {
+			JOptionPane.showMessageDialog(this, MessageFormat.format(messagesRB.getString("err_fnf_out"), file.toString()), labelsRB.getString("err_output"), JOptionPane.ERROR_MESSAGE);
+		} else {
+			JOptionPane.showMessageDialog(this, cause.getLocalizedMessage(), labelsRB.getString("err_output"), JOptionPane.ERROR_MESSAGE);
+		}
+	}
+	
 	/**
 	 * Chooses name for current formula and saves it.
 	 * @return <code>true</code> when formula was saved, <code>false</code> when no name was chosen.
 	 */
 	private boolean saveFormulaAs() {
+		return chooseFormulaFile() && saveFormula();
+	}
+	
+	/**
+	 * Chooses name for current formula.
+	 * @return <code>true</code> when a name was chosen, <code>false</code> otherwise.
+	 */
+	private boolean chooseFormulaFile() {
 		int retVal = formulaeFC.showSaveDialog(Main.this);
 		if (retVal == JFileChooser.APPROVE_OPTION && checkFileWrite(formulaeFC.getSelectedFile())) {
 			formula.setFormulaFile(formulaeFC.getSelectedFile());
 			setNameTitle(formula.getFormulaFile().toString());
-			return saveFormula();
+			return true;
 		}
 		return false;
 	}
@@ -490,6 +571,25 @@ public class Main extends JFrame {
 		actions.getAction(ActionType.DELETE_PRIMITIVE).setEnabled(value);
 	}
 	
+	/**
+	 * Starts loading of a time series in background (cancels loading of previous one).
+	 */
+	private void loadTimeSeries(TimeSeriesWorker worker) {
+		cancelTimeSeriesLoading();
+		seriesWorker = worker;
+		worker.start();
+	}
+	
+	/**
+	 * Cancels loading of time series (if there is any).
+	 */
+	private void cancelTimeSeriesLoading() {
+		if (seriesWorker != null) {
+			seriesWorker.cancel(false);
+			seriesWorker = null;
+		}
+	}
+	
 	/**
 	 * Makes the title of window default (i.e. "Time Series LTL Annotator"). 
 	 */
@@ -0,0 +1,182 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ui;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import ltl.Event;
+import ltl.Model;
+import ltl.Transition;
+import ltl.Property.Bound;
+import coordinates.Transformation;
+
+/**
+ * Measures memory allocated (and time taken) by rendering a model with {@link Canvas}, by hit-testing its primitives
+ * ({@link Event#contains(Point2D, Transformation)}, {@link Transition#contains(Point2D, Transformation)})
+ * and by copying events. Run as <code>java -Djava.awt.headless=true ui.PaintBenchmark [events] [rounds]</code>
+ * on a HotSpot JVM (allocated bytes are read from <code>com.sun.management.ThreadMXBean</code>).
+ *
+ * Results (per paint, per hit-test of all primitives and per clone) with default parameters, before and after
+ * properties stored their bounds in primitive fields instead of maps:
+ * <table>
+ *  <tr><th></th><th>before</th><th>after</th></tr>
+ *  <tr><td>paint</td><td>about 355 kB</td><td>301 kB</td></tr>
+ *  <tr><td>hit-test of all primitives</td><td>9.6 kB</td><td>0 B</td></tr>
+ *  <tr><td>event clone</td><td>639 B</td><td>176 B</td></tr>
+ * </table>
+ * The rest of allocations by painting are made by Java2D.
+ *
+ * @author Tomáš Vejpustek
+ */
+public class PaintBenchmark {
+	private static final int WIDTH = 800;
+	private static final int HEIGHT = 600;
+	private static final int WARM_UP = 3; //passes which are not reported
+
+	private final Transformation coord = new Transformation(WIDTH, HEIGHT);
+	private final List<Event> events = new ArrayList<Event>();
+	private final List<Transition> transitions = new ArrayList<Transition>();
+	private final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+	private final com.sun.management.ThreadMXBean threads;
+
+	/**
+	 * Creates a model of random events with various properties.
+	 * @param count Number of events.
+	 */
+	private PaintBenchmark(int count) {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			throw new UnsupportedOperationException("Allocated memory cannot be measured on this JVM.");
+		}
+		threads = (com.sun.management.ThreadMXBean) bean;
+		coord.setIdentity();
+
+		Random random = new Random(7);
+		Model model = new Model();
+		for (int i = 0; i < count; i++) {
+			Event e = new Event(1 + random.nextDouble()*(WIDTH-10), 1 + random.nextDouble()*(HEIGHT-10));
+			if (random.nextBoolean()) {
+				e.getTime().setBound(Bound.UPPER, e.getTime().getCenter() + 5);
+			}
+			if (random.nextBoolean()) {
+				e.getDerivative().setBound(Bound.UPPER, 1);
+				e.getDerivative().setBound(Bound.LOWER, -1);
+			} else {
+				e.getDerivative().makePoint();
+			}
+			model.addEvent(e);
+		}
+		for (Iterator<Event> it = model.getEventsIterator(); it.hasNext();) {
+			events.add(it.next());
+		}
+		for (Iterator<Transition> it = model.getTransitionsIterator(); it.hasNext();) {
+			Transition t = it.next();
+			if (random.nextBoolean()) {
+				t.getDerivative().setBound(Bound.UPPER, 2);
+				t.getDerivative().setBound(Bound.LOWER, 0.5);
+			}
+			transitions.add(t);
+		}
+	}
+
+	/**
+	 * Renders all primitives as {@link WorkSpace} does.
+	 */
+	private void paint() {
+		Graphics2D g = image.createGraphics();
+		try {
+			Canvas canvas = new Canvas(g, coord, WIDTH, HEIGHT, true);
+			for (Transition t : transitions) {
+				canvas.drawTransition(t);
+			}
+			for (Event e : events) {
+				canvas.drawEvent(e);
+			}
+		} finally {
+			g.dispose();
+		}
+	}
+
+	/**
+	 * Tests all primitives on containing a point.
+	 * @return Number of primitives containing it.
+	 */
+	private int hitTest(Point2D p) {
+		int hits = 0;
+		for (Event e : events) {
+			if (e.contains(p, coord)) {
+				hits++;
+			}
+		}
+		for (Transition t : transitions) {
+			if (t.contains(p, coord)) {
+				hits++;
+			}
+		}
+		return hits;
+	}
+
+	private void cloneEvents() {
+		for (Event e : events) {
+			e.clone();
+		}
+	}
+
+	private long allocated() {
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Measures each operation, the first passes warm up the JVM.
+	 */
+	private void run(int rounds) {
+		Point2D p = new Point2D.Double(WIDTH/2, HEIGHT/2);
+		for (int pass = 0; pass < WARM_UP + 1; pass++) {
+			long bytes = allocated();
+			long time = System.nanoTime();
+			for (int r = 0; r < rounds; r++) {
+				paint();
+			}
+			long paintBytes = allocated() - bytes;
+			long paintTime = System.nanoTime() - time;
+
+			bytes = allocated();
+			time = System.nanoTime();
+			int hits = 0;
+			for (int r = 0; r < rounds; r++) {
+				hits += hitTest(p);
+			}
+			long hitBytes = allocated() - bytes;
+			long hitTime = System.nanoTime() - time;
+
+			bytes = allocated();
+			for (int r = 0; r < rounds; r++) {
+				cloneEvents();
+			}
+			long cloneBytes = allocated() - bytes;
+
+			if (pass == WARM_UP) {
+				System.out.printf("paint: %d B, %.2f ms%n", paintBytes/rounds, paintTime/1e6/rounds);
+				System.out.printf("hit-test: %d B, %.3f ms (%d hits)%n", hitBytes/rounds, hitTime/1e6/rounds, hits);
+				System.out.printf("event clone: %d B%n", cloneBytes/rounds/events.size());
+			}
+		}
+	}
+
+	/**
+	 * @param args Number of events (200 by default) and number of measured rounds (300 by default).
+	 */
+	public static void main(String[] args) {
+		int count = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+		int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 300;
+		new PaintBenchmark(count).run(rounds);
+	}
+}
@@ -2,8 +2,11 @@
 //Full copyright notice found in src/LICENSE.  
 package ui;
 
+import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
+import java.awt.Insets;
+import java.awt.event.ActionListener;
 import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentListener;
 import java.awt.geom.Point2D;
@@ -13,9 +16,11 @@ import java.util.ResourceBundle;
 import javax.swing.AbstractAction;
 import javax.swing.BoxLayout;
 import javax.swing.ButtonModel;
+import javax.swing.JButton;
 import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.border.BevelBorder;
 import javax.swing.border.Border;
 
@@ -29,7 +34,8 @@ import ui.ActionManager.ActionType;
  * Status bar displays information about current position of cursor in model coordinates and
  * selected graphic primitive.
  * 
- * Also contains switch of time series visibility.
+ * Also contains switch of time series visibility, displays progress of time series loading and whether
+ * the time series satisfies the model.
  * 
  * @author Tomáš Vejpustek
  */
@@ -41,6 +47,8 @@ public class StatusBar extends JPanel implements ComponentListener {
 	
 	private static final String EQUALS = "=";
 	private static final String LESSER = "<";
+	private static final Color SATISFIED_COLOR = new Color(0, 128, 0);
+	private static final Color VIOLATED_COLOR = Color.RED;
 	
 	private String time = "t";
 	private String conc = "[X]";
@@ -48,7 +56,12 @@ public class StatusBar extends JPanel implements ComponentListener {
 	
 	private JLabel coordinates;
 	private JLabel primitive;
+	private JLabel check;
+	private String satisfied, violated, running;
 	private JCheckBox switchTSVisibility;
+	private JProgressBar progress;
+	private JButton cancel;
+	private ActionListener cancelAction = null;
 	
 	private DecimalFormat values = new DecimalFormat("###.###");
 
@@ -77,12 +90,81 @@ public class StatusBar extends JPanel implements ComponentListener {
 		primitive.setBorder(LABEL_BORDER);
 		add(primitive);
 		
+		check = new JLabel();
+		check.setToolTipText(labelsRB.getString("stat_check"));
+		check.setFont(LABEL_FONT);
+		check.setBorder(LABEL_BORDER);
+		check.setMaximumSize(new Dimension(90, MAXIMUM_HEIGHT));
+		check.setVisible(false);
+		add(check);
+		satisfied = labelsRB.getString("check_satisfied");
+		violated = labelsRB.getString("check_violated");
+		running = labelsRB.getString("check_running");
+		
 		switchTSVisibility = new JCheckBox(actions.getAction(ActionType.SWITCH_TS_VISIBILITY).getValue(AbstractAction.NAME).toString());
 		switchTSVisibility.setModel(showTimeSeriesModel);
 		switchTSVisibility.setFont(LABEL_FONT);
 		switchTSVisibility.setBorder(LABEL_BORDER);
 		switchTSVisibility.setBorderPainted(true);
 		add(switchTSVisibility);
+		
+		progress = new JProgressBar(0, 100);
+		progress.setToolTipText(labelsRB.getString("stat_load"));
+		progress.setFont(LABEL_FONT);
+		progress.setStringPainted(true);
+		progress.setMaximumSize(new Dimension(120, MAXIMUM_HEIGHT));
+		progress.setVisible(false);
+		add(progress);
+		
+		cancel = new JButton(labelsRB.getString("stat_cancel"));
+		cancel.setFont(LABEL_FONT);
+		cancel.setMargin(new Insets(0, 2, 0, 2));
+		cancel.setMaximumSize(new Dimension(80, MAXIMUM_HEIGHT));
+		cancel.setVisible(false);
+		add(cancel);
+	}
+	
+	/**
+	 * Displays progress of loading of a time series (initially unknown) with a button cancelling it.
+	 * @param cancelAction Performed when loading is cancelled.
+	 */
+	public void startProgress(ActionListener cancelAction) {
+		if (this.cancelAction != null) {
+			cancel.removeActionListener(this.cancelAction);
+		}
+		this.cancelAction = cancelAction;
+		cancel.addActionListener(cancelAction);
+		progress.setValue(0);
+		progress.setIndeterminate(true);
+		progress.setVisible(true);
+		cancel.setVisible(true);
+		componentResized(null);
+		revalidate();
+	}
+	
+	/**
+	 * Sets displayed progress of loading.
+	 * @param percent Percentage of loaded input.
+	 */
+	public void setProgress(int percent) {
+		progress.setIndeterminate(false);
+		progress.setValue(percent);
+	}
+	
+	/**
+	 * Hides progress of loading. Ignored when progress of another loading has been started since.
+	 * @param cancelAction Action passed to {@link #startProgress(ActionListener)} by the loading.
+	 */
+	public void stopProgress(ActionListener cancelAction) {
+		if (this.cancelAction != cancelAction) {
+			return;
+		}
+		cancel.removeActionListener(cancelAction);
+		this.cancelAction = null;
+		progress.setVisible(false);
+		cancel.setVisible(false);
+		componentResized(null);
+		revalidate();
 	}
 
 	/**
@@ -163,6 +245,46 @@ public class StatusBar extends JPanel implements ComponentListener {
 		primitive.setText("");
 	}
 	
+	/**
+	 * Displays that time series is being checked against the model (result of the last check is kept).
+	 */
+	public void setCheckRunning() {
+		if (!check.isVisible()) {
+			check.setForeground(getForeground());
+			check.setText(running);
+			showCheck();
+		}
+	}
+	
+	/**
+	 * Displays whether time series satisfies the model.
+	 * @param result <code>true</code> when the model is satisfied, <code>false</code> otherwise.
+	 */
+	public void setCheckResult(boolean result) {
+		check.setForeground(result ? SATISFIED_COLOR : VIOLATED_COLOR);
+		check.setText(result ? satisfied : violated);
+		showCheck();
+	}
+	
+	/**
+	 * Displays no result of time series check.
+	 */
+	public void clearCheck() {
+		if (check.isVisible()) {
+			check.setVisible(false);
+			componentResized(null);
+			revalidate();
+		}
+	}
+	
+	private void showCheck() {
+		if (!check.isVisible()) {
+			check.setVisible(true);
+			componentResized(null);
+			revalidate();
+		}
+	}
+	
 	private String getReference(Event e) {
 		return "(" + values.format(e.getTime().getCenter()) + ", " + values.format(e.getConcentration().getCenter()) + ")";  
 	}
@@ -212,7 +334,14 @@ public class StatusBar extends JPanel implements ComponentListener {
 	@Override
 	public void componentResized(ComponentEvent e) {
 		Dimension dim = new Dimension();
-		dim.setSize(getSize().getWidth()-primitive.getX()-switchTSVisibility.getWidth(), MAXIMUM_HEIGHT);
+		double width = getSize().getWidth()-primitive.getX()-switchTSVisibility.getWidth();
+		if (check.isVisible()) {
+			width -= check.getMaximumSize().getWidth();
+		}
+		if (progress.isVisible()) {
+			width -= progress.getMaximumSize().getWidth() + cancel.getMaximumSize().getWidth();
+		}
+		dim.setSize(width, MAXIMUM_HEIGHT);
 		primitive.setMaximumSize(dim);
 	}
 	@Override
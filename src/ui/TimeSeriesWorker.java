@@ -0,0 +1,141 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package ui;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingWorker;
+
+import series.TimeSeries;
+import series.TimeSeriesLoadListener;
+
+/**
+ * Loads a time series in background. Progress is displayed in {@link StatusBar} (which may also cancel loading)
+ * and segments of the time series are displayed in {@link WorkSpace} as they are loaded.
+ * 
+ * Loading itself is specified by {@link #load()}, result is handled by {@link #loaded(TimeSeries)} or {@link #failed(Throwable)}
+ * -- these are called on the event dispatch thread.
+ * 
+ * @author Tomáš Vejpustek
+ *
+ */
+abstract class TimeSeriesWorker extends SwingWorker<TimeSeries, TimeSeries> implements TimeSeriesLoadListener {
+	private WorkSpace workspace;
+	private StatusBar statusBar;
+	private TimeSeries partial = null; //displayed part of time series
+	private final ActionListener cancelAction = new ActionListener() {
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			cancel(false);
+		}
+	};
+	
+	/**
+	 * Creates the worker. Use {@link #start()} to start loading.
+	 * @param workspace Displays loaded segments.
+	 * @param statusBar Displays progress.
+	 */
+	TimeSeriesWorker(WorkSpace workspace, StatusBar statusBar) {
+		this.workspace = workspace;
+		this.statusBar = statusBar;
+		addPropertyChangeListener(new PropertyChangeListener() {
+			@Override
+			public void propertyChange(PropertyChangeEvent evt) {
+				if ("progress".equals(evt.getPropertyName()) && !isDone()) {
+					TimeSeriesWorker.this.statusBar.setProgress((Integer) evt.getNewValue());
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Starts displaying progress and loading in background. Any previous worker should be cancelled first.
+	 */
+	void start() {
+		statusBar.startProgress(cancelAction);
+		execute();
+	}
+	
+	/**
+	 * Loads the time series, called in background. Should pass this worker as {@link TimeSeriesLoadListener}.
+	 * @return Loaded time series.
+	 * @throws Exception when the time series cannot be loaded.
+	 */
+	protected abstract TimeSeries load() throws Exception;
+	
+	/**
+	 * Called when the time series has been loaded and displayed.
+	 * @param series Loaded time series.
+	 */
+	protected abstract void loaded(TimeSeries series);
+	
+	/**
+	 * Called when loading has failed. Partially displayed time series has already been removed.
+	 * @param cause Cause of failure.
+	 */
+	protected abstract void failed(Throwable cause);
+
+	@Override
+	protected TimeSeries doInBackground() throws Exception {
+		return load();
+	}
+	
+	@Override
+	public void segmentLoaded(TimeSeries segment, long position, long length) {
+		publish(segment);
+		if (length > 0) {
+			setProgress((int) Math.min(100, (100*position)/length));
+		}
+	}
+
+	@Override
+	protected void process(List<TimeSeries> segments) {
+		if (isDone()) { //whole time series is displayed in done()
+			return;
+		}
+		if (partial == null) {
+			partial = new TimeSeries();
+		}
+		for (TimeSeries segment : segments) {
+			partial.append(segment);
+		}
+		if (!partial.isEmpty()) {
+			workspace.setTimeSeries(partial, false);
+		}
+	}
+
+	@Override
+	protected void done() {
+		statusBar.stopProgress(cancelAction);
+		if (isCancelled()) {
+			clearPartial();
+			return;
+		}
+		try {
+			TimeSeries series = get();
+			workspace.setTimeSeries(series);
+			loaded(series);
+		} catch (InterruptedException ie) {
+			clearPartial();
+			failed(ie);
+		} catch (ExecutionException ee) {
+			clearPartial();
+			failed(ee.getCause());
+		}
+	}
+	
+	/**
+	 * Removes partially displayed time series.
+	 */
+	private void clearPartial() {
+		if (partial != null && workspace.getTimeSeries() == partial) {
+			workspace.setTimeSeries(null);
+			partial = null;
+		}
+	}
+}
@@ -3,23 +3,28 @@
 package ui;
 
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.util.Iterator;
 
 import javax.swing.JPanel;
 
 import ltl.Event;
+import ltl.Dialect;
 import ltl.FormulaBuilder;
+import ltl.FormulaSimplifier;
 import ltl.Model;
 import ltl.ModelChange;
 import ltl.Transition;
-import ltl.TransitionCyclicProperty;
-import ltl.TransitionPositiveProperty;
 import mutable.MouseAction;
 import mutable.MutableMouseListener;
 import mutable.MutableMouseMotionListener;
@@ -33,6 +38,13 @@ import coordinates.Transformation;
 /**
  * Place in which the time series is displayed and annotated by the user.
  * 
+ * Time series and graphical primitives which are not selected are rendered into a cached image, which is redrawn
+ * only when they change. Otherwise (e.g. when a selector is dragged), only the active selector is drawn over it.
+ * While a primitive is edited, only the union of its old and new bounds (see {@link Selector#getBounds()}) is repainted.
+ * 
+ * Whether the completely loaded time series satisfies the model is checked in the background (see {@link LiveChecker})
+ * whenever the workspace is refreshed, including the edited form of a dragged primitive.
+ * 
  * @author Tomáš Vejpustek
  *
  */
@@ -43,6 +55,8 @@ public class WorkSpace extends JPanel implements ComponentListener, MouseMotionL
 	private StatusBar statusBar;
 	private Transformation coord;
 	private TimeSeries series = new TimeSeries(); //empty time series
+	private boolean seriesComplete = true;
+	private LiveChecker checker;
 	
 	private boolean timeSeriesVisible = true;
 	
@@ -52,6 +66,17 @@ public class WorkSpace extends JPanel implements ComponentListener, MouseMotionL
 	private MutableMouseListener mouseListener = new MutableMouseListener();
 	private MutableMouseMotionListener mouseMotionListener = new MutableMouseMotionListener();
 	private MouseActionManager actions = new MouseActionManager();
+	
+	//cached rendering of everything but active selector, with state it was drawn in
+	private BufferedImage background = null;
+	private Model backgroundModel = null;
+	private int backgroundModelVersion;
+	private int backgroundCoordVersion;
+	private TimeSeries backgroundSeries = null;
+	private int backgroundSeriesSize;
+	private boolean backgroundSeriesVisible;
+	private boolean backgroundSelectorsActive;
+	private Rectangle backgroundDirty = null; //part of background to be redrawn although the state matches
 
 	/**
 	 * Create the panel.
@@ -61,6 +86,7 @@ public class WorkSpace extends JPanel implements ComponentListener, MouseMotionL
 	public WorkSpace(Main parent, StatusBar statusBar) {
 		this.parent = parent;
 		this.statusBar = statusBar;
+		checker = new LiveChecker(statusBar);
 		addComponentListener(this);
 		addMouseListener(mouseListener);
 		addMouseListener(this);
@@ -131,12 +157,17 @@ public class WorkSpace extends JPanel implements ComponentListener, MouseMotionL
 			@Override
 			public void actionPerformed(MouseEvent e) {
 				if (active != null) {
+					Rectangle2D dirty = active.getBounds();
 					if (active.isDragging()) {
 						active.drag(e);
 					} else if (active.isMoving()) {
 						active.move(new Point2D.Double(e.getX(), e.getY()));
 					}
-					refresh();
+					dirty.add(active.getBounds());
+					if (active.isMoving()) { //moved primitive is shared by unselected ones
+						invalidateBackground(dirty);
+					}
+					refresh(dirty);
 				}
 			}
 		});
@@ -176,46 +207,133 @@ public class WorkSpace extends JPanel implements ComponentListener, MouseMotionL
 
 	@Override
 	public void paint(Graphics g) {
-		Canvas canvas = new Canvas(g, coord, getWidth(), getHeight(), selectorsActive);
-		
-		if (timeSeriesVisible) {
-			canvas.drawTimeSeries(series);
+		if (!validateBackground()) { //no space to draw in
+			return;
 		}
+		g.drawImage(background, 0, 0, null);
 		
-		Iterator<Transition> transitions = getModel().getTransitionsIterator();
-		while (transitions.hasNext()) {
-			Transition newTrans = transitions.next();
-			canvas.drawTransition(newTrans);
+		if (active != null) {
+			active.draw(new Canvas(g, coord, getWidth(), getHeight(), selectorsActive, false));
+		}
+	}
+	
+	/**
+	 * Redraws cached background (time series and primitives which are not selected) when it is out of date,
+	 * i.e. when size, transformation, time series (or its visibility) or model has changed.
+	 * Otherwise, only its invalidated part is redrawn (see {@link #invalidateBackground(Rectangle2D)}).
+	 * @return <code>false</code> when there is no background to draw (workspace has no size), <code>true</code> otherwise.
+	 */
+	private boolean validateBackground() {
+		int width = getWidth();
+		int height = getHeight();
+		if (width <= 0 || height <= 0 || coord == null) {
+			return false;
+		}
+		Model model = getModel();
+		if (background != null && background.getWidth() == width && background.getHeight() == height
+				&& backgroundModel == model && backgroundModelVersion == model.getVersion()
+				&& backgroundCoordVersion == coord.getVersion() && backgroundSeries == series
+				&& backgroundSeriesSize == series.getSize() && backgroundSeriesVisible == timeSeriesVisible
+				&& backgroundSelectorsActive == selectorsActive) {
+			if (backgroundDirty == null) {
+				return true;
+			}
+		} else {
+			backgroundDirty = null;
 		}
 		
-		Iterator<Event> events = getModel().getEventsIterator();
-		while (events.hasNext()) {
-			Event newEvent = events.next();
-			canvas.drawEvent(newEvent);
+		if (background == null || background.getWidth() != width || background.getHeight() != height) {
+			background = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		}
+		Graphics2D g = background.createGraphics();
+		if (backgroundDirty != null) {
+			g.clip(backgroundDirty);
+			backgroundDirty = null;
+		}
+		try {
+			Canvas canvas = new Canvas(g, coord, width, height, selectorsActive);
+			
+			if (timeSeriesVisible) {
+				canvas.drawTimeSeries(series);
+			}
+			
+			Iterator<Transition> transitions = model.getTransitionsIterator();
+			while (transitions.hasNext()) {
+				Transition newTrans = transitions.next();
+				canvas.drawTransition(newTrans);
+			}
+			
+			Iterator<Event> events = model.getEventsIterator();
+			while (events.hasNext()) {
+				Event newEvent = events.next();
+				canvas.drawEvent(newEvent);
+			}
+		} finally {
+			g.dispose();
 		}
 		
-		if (active != null) {
-			active.draw(canvas);
+		backgroundModel = model;
+		backgroundModelVersion = model.getVersion();
+		backgroundCoordVersion = coord.getVersion();
+		backgroundSeries = series;
+		backgroundSeriesSize = series.getSize();
+		backgroundSeriesVisible = timeSeriesVisible;
+		backgroundSelectorsActive = selectorsActive;
+		return true;
+	}
+	
+	/**
+	 * Marks a part of cached background to be redrawn, e.g. when a primitive drawn in it changes
+	 * without a change of model.
+	 * @param area Changed area in on-screen coordinates.
+	 */
+	private void invalidateBackground(Rectangle2D area) {
+		if (backgroundDirty == null) {
+			backgroundDirty = area.getBounds();
+		} else {
+			backgroundDirty.add(area.getBounds());
 		}
 	}
 	
 	/**
-	 * Changes displayed time series.
+	 * @return Displayed time series (empty when there is none).
+	 */
+	public TimeSeries getTimeSeries() {
+		return series;
+	}
+	
+	/**
+	 * Changes displayed time series to a completely loaded one.
+	 * @see #setTimeSeries(TimeSeries, boolean)
 	 */
 	public void setTimeSeries(TimeSeries series) {
-		unselect();
-		
-		if (series != null) {
-			coord.setLinearTransformation(series);
-			this.series = series;
+		setTimeSeries(series, true);
+	}
+	
+	/**
+	 * Changes displayed time series.
+	 * 
+	 * When a time series is being loaded, it may be passed repeatedly as new points are appended to it
+	 * -- then the transformation is only extended to them.
+	 * @param complete <code>false</code> when <code>series</code> is still being loaded (it is not checked
+	 * against the model then), <code>true</code> otherwise.
+	 */
+	public void setTimeSeries(TimeSeries series, boolean complete) {
+		seriesComplete = complete;
+		if (series != null && series == this.series) { //displayed time series has been extended
+			coord.extendLinearTransformation(series);
 		} else {
-			coord.setIdentity();
-			this.series = new TimeSeries();
+			unselect();
+			
+			if (series != null) {
+				coord.setLinearTransformation(series);
+				this.series = series;
+			} else {
+				coord.setIdentity();
+				this.series = new TimeSeries();
+			}
+			timeSeriesVisible = true;
 		}
-		TransitionPositiveProperty.setEnd(coord.getConcentrationBound()/2);
-		TransitionCyclicProperty.setTimeEnd(coord.getTimeBound());
-		TransitionCyclicProperty.setConcentrationEnd(coord.getConcentrationBound()/2);
-		timeSeriesVisible = true;
 		refresh();
 	}
 	
@@ -224,7 +342,23 @@ public class WorkSpace extends JPanel implements ComponentListener, MouseMotionL
 	 */
 	public String translateFormula() {
 		unselect();
-		return getModel().toLTL(new FormulaBuilder());
+		return new FormulaBuilder(true).toString(FormulaSimplifier.simplifyFormula(getModel()));
+	}
+	
+	/**
+	 * Writes LTL formula specified in this workspace into <code>out</code> as a file in given dialect.
+	 * @throws IOException when <code>out</code> cannot be written into.
+	 */
+	public void translateFormula(Dialect dialect, Appendable out) throws IOException {
+		unselect();
+		new FormulaBuilder(dialect, true).export(FormulaSimplifier.simplifyFormula(getModel()), out);
+	}
+	
+	/**
+	 * @return <code>true</code> when LTL formula specified in this workspace is empty, <code>false</code> otherwise.
+	 */
+	public boolean isFormulaEmpty() {
+		return getModel().isFormulaEmpty();
 	}
 	
 	/**
@@ -311,12 +445,48 @@ public class WorkSpace extends JPanel implements ComponentListener, MouseMotionL
 	 * Repaints the workspace and updates its status bar.
 	 */
 	public void refresh() {
+		refreshStatusBar();
+		checkModel();
+		repaint();
+	}
+	
+	/**
+	 * Repaints a part of the workspace and updates its status bar.
+	 * @param dirty Changed area in on-screen coordinates.
+	 */
+	private void refresh(Rectangle2D dirty) {
+		refreshStatusBar();
+		checkModel();
+		repaint(dirty.getBounds());
+	}
+	
+	/**
+	 * Checks the model (including edited form of selected primitive) against completely loaded time series.
+	 */
+	private void checkModel() {
+		if (!seriesComplete || series.isEmpty()) {
+			checker.cancel();
+			return;
+		}
+		Model model = getModel();
+		if (active != null && (active.isDragging() || active.isMoving())) {
+			model = active.preview(model);
+			if (model == null) { //created primitive is checked when it is added to the model
+				return;
+			}
+		}
+		checker.check(model, series);
+	}
+	
+	/**
+	 * Shows selected primitive in the status bar.
+	 */
+	private void refreshStatusBar() {
 		if (active != null) {
 			active.refreshStatusBar(statusBar);
 		} else {
 			statusBar.clearSelected();
 		}
-		repaint();
 	}
 	
 	/**
@@ -361,9 +531,6 @@ public class WorkSpace extends JPanel implements ComponentListener, MouseMotionL
 		} else {
 			coord.resize(getWidth(), getHeight());
 		}
-		TransitionPositiveProperty.setEnd(coord.getConcentrationBound()/2);
-		TransitionCyclicProperty.setTimeEnd(coord.getTimeBound());
-		TransitionCyclicProperty.setConcentrationEnd(coord.getConcentrationBound()/2);
 		repaint();
 	}
 	@Override
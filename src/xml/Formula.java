@@ -2,37 +2,33 @@
 //Full copyright notice found in src/LICENSE.
 package xml;
 
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMResult;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
-import javax.xml.validation.Validator;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import ltl.Model;
 import ltl.ModelChange;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
+import ltl.ModelJournal;
 
 import exceptions.XMLException;
 
@@ -54,10 +50,24 @@ import series.TimeSeriesLoader;
  */
 public class Formula {
 	private static final String NAMESPACE = "http://www.fi.muni.cz/~xvejpust/TimeSeriesLTLAnnotator";
+	/** Writes formulas in background, one at a time (i.e. in the order they were saved). */
+	private static final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "Formula writer");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
 	private Model model = new Model();
 	private File formulaFile = null;
 	private TimeSeriesSource tsSource = null;
 	private UndoStack undo = new UndoStack();
+	private boolean journaling = false;
+	private ModelJournal journal = null;
+	private boolean recovered = false; //whether model contains unsaved changes recovered from journal
+	private int saves = 0; //number of saves started
+	private volatile int failedSave = 0; //number of the last save which failed
 	
 	/**
 	 * Creates a new formula with empty model.
@@ -73,55 +83,143 @@ public class Formula {
 	}
 	
 	/**
-	 * Transforms formula into XML document and saves it to the file. 
+	 * Specifies whether changes of the model are recorded in a journal next to the formula file, so that they
+	 * can be recovered by {@link #load()} after a crash (see {@link ModelJournal}). Off by default.
+	 */
+	public void setJournaling(boolean value) {
+		journaling = value;
+		if (!value) {
+			stopJournal();
+		}
+	}
+	
+	/**
+	 * Saves the formula and waits until it is written.
 	 * @throws IllegalStateException when no output file is specified.
 	 * @throws FileNotFoundException when specified file was invalid.
 	 * @throws XMLException when error during XML processing occurred.
+	 * @see #saveInBackground()
 	 */
 	public void save() throws FileNotFoundException, XMLException {
+		waitForSave(saveInBackground());
+	}
+	
+	/**
+	 * Takes a snapshot of the formula and writes it in background. The formula is written into a temporary file,
+	 * which then replaces the formula file, so that the file is never left partially written.
+	 * Following changes of the formula do not affect the save.
+	 * @return Pending save, see {@link #waitForSave(Future)}.
+	 * @throws IllegalStateException when no output file is specified.
+	 */
+	public Future<?> saveInBackground() {
 		if (getFormulaFile() == null) {
 			throw new IllegalStateException("No output file specified.");
 		}
-		OutputStream os = new FileOutputStream(getFormulaFile());
-		DocumentBuilderFactory docFac = DocumentBuilderFactory.newInstance();
-		DocumentBuilder docBuild;
-		try {
-			docBuild = docFac.newDocumentBuilder();
-		} catch (ParserConfigurationException pce) {
-			throw new XMLException("general", "Parser could not be configured.");
-		}
-		
-		Document doc = docBuild.newDocument();
-		Element form = (Element)model.toXML(doc);
-		form.setAttribute("xmlns", NAMESPACE); //set name space
-		if (tsSource != null) {
-			form.appendChild(tsSource.toXML(doc));
-		}
-		doc.appendChild(form);
-		
-		TransformerFactory transFac = TransformerFactory.newInstance();
-		Transformer trans;
+		final Model snapshot = model.snapshot();
+		final TimeSeriesSource source = (tsSource == null) ? null : new TimeSeriesSource(tsSource);
+		final File file = getFormulaFile();
+		final ModelJournal journal = startJournal();
+		final long checkpoint = (journal == null) ? 0 : journal.checkpoint();
+		final int save = ++saves;
+		undo.mark();
+		recovered = false;
+		return writer.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				try {
+					long [] written = write(snapshot, source, file);
+					if (journal != null) {
+						journal.rebase(written[0], written[1], checkpoint);
+					}
+				} catch (Exception e) {
+					failedSave = save;
+					throw e;
+				}
+				return null;
+			}
+		});
+	}
+	
+	/**
+	 * Waits until a save started by {@link #saveInBackground()} is finished.
+	 * @throws FileNotFoundException when specified file was invalid.
+	 * @throws XMLException when error during XML processing occurred.
+	 */
+	public static void waitForSave(Future<?> save) throws FileNotFoundException, XMLException {
 		try {
-			trans = transFac.newTransformer();
-		} catch (TransformerConfigurationException tce) {
-			throw new XMLException("general", "Transformer could not be configured.");
+			save.get();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new XMLException("output", "Saving has been interrupted.", ie);
+		} catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			if (cause instanceof FileNotFoundException) {
+				throw (FileNotFoundException) cause;
+			} else if (cause instanceof XMLException) {
+				throw (XMLException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new XMLException("output", "Formula could not be saved.", cause);
 		}
-		trans.setOutputProperty(OutputKeys.INDENT, "yes");
+	}
+	
+	/**
+	 * Writes formula as XML document into a temporary file, which then replaces <code>target</code>.
+	 * @return Length and checksum of the written file.
+	 */
+	private static long [] write(Model model, TimeSeriesSource source, File target) throws FileNotFoundException, XMLException {
+		File temp = new File(target.getPath() + ".tmp");
+		FileOutputStream fos = new FileOutputStream(temp);
+		CheckedOutputStream os = new CheckedOutputStream(new BufferedOutputStream(fos), new CRC32());
 		try {
-			trans.transform(new DOMSource(doc), new StreamResult(os));
-		} catch (TransformerException te) {
-			throw new XMLException("output", "XML Transformer could not write to the file.", te);
+			XMLStreamWriter out = FormulaCodec.getInstance().createWriter(os);
+			out.writeStartDocument("UTF-8", "1.0");
+			out.writeStartElement("formula");
+			out.writeDefaultNamespace(NAMESPACE);
+			model.writeXMLContents(out);
+			if (source != null) {
+				source.toXML(out, "series");
+			}
+			out.writeEndElement();
+			out.writeEndDocument();
+			out.close();
+			os.flush();
+			fos.getFD().sync();
+		} catch (XMLStreamException xse) {
+			close(os);
+			temp.delete();
+			throw new XMLException("output", "XML could not be written to the file.", xse);
+		} catch (IOException ioe) {
+			close(os);
+			temp.delete();
+			throw new XMLException("output", "XML could not be written to the file.", ioe);
 		}
 		try {
 			os.close();
 		} catch (IOException ioe) {
+			temp.delete();
 			throw new XMLException("output", "File could not be closed.", ioe);
 		}
-		undo.mark();
+		try {
+			try {
+				Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException amnse) {
+				Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException ioe) {
+			temp.delete();
+			throw new XMLException("output", "File could not be replaced.", ioe);
+		}
+		return new long [] {target.length(), os.getChecksum().getValue()};
 	}
 	
 	/**
-	 * Reads and validates the file and transforms it into formula.
+	 * Reads the file into formula. The document is validated while being read (i.e. it is not held in memory).
+	 * When journaling (see {@link #setJournaling(boolean)}), changes recorded since the file was saved are
+	 * recovered (see {@link #isRecovered()}).
 	 * @throws when no input file is specified
 	 * @throws FileNotFoundException when input file is invalid.
 	 */
@@ -130,77 +228,124 @@ public class Formula {
 			throw new IllegalStateException("No input file specified.");
 		}
 		InputStream is = new FileInputStream(getFormulaFile());
-		SchemaFactory sf = SchemaFactory.newInstance("http://www.w3.org/2001/XMLSchema");
-		Schema schema;
+		FormulaHandler handler;
 		try {
-			schema = sf.newSchema(getClass().getResource("formula.xsd"));
-		} catch (SAXException saxe) { //schema cannot be loaded
-			saxe.printStackTrace();
-			throw new XMLException("schema", "Document schema could not be read.");
+			handler = FormulaCodec.getInstance().read(is, formulaFile);
+		} finally {
+			close(is);
 		}
-		Validator valid = schema.newValidator();
+		Model newModel = handler.getModel();
 		
-		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-		dbf.setNamespaceAware(true);
-		DocumentBuilder builder;
-		try {
-			builder = dbf.newDocumentBuilder();
-		} catch (ParserConfigurationException pce) {
-			throw new XMLException("general", "Parser could not be configured.");
+		//so far without errors -- time to replace
+		stopJournal(); //unsaved changes have been discarded
+		model = newModel;
+		if (handler.getTimeSeriesSource() != null) {
+			tsSource = handler.getTimeSeriesSource();
 		}
-		Document doc;
-		try {
-			doc = builder.parse(is);
-		} catch (SAXException saxe) { //not an XML
-			throw new XMLException("parse", "Document parse error occurred.", saxe);
-		} catch (IOException ioe) {
-			throw new XMLException("input", "An IO error has occurred during document parsing.", ioe);
+		recovered = false;
+		if (journaling) {
+			journal = new ModelJournal(getJournalFile());
+			try {
+				recovered = (journal.open(getFormulaFile().length(), checksum(getFormulaFile()), model) > 0);
+				model.setJournal(journal);
+			} catch (IOException ioe) {
+				ioe.printStackTrace();
+				journal = null;
+			}
 		}
-		DOMResult result = new DOMResult();
-		try {
-			valid.validate(new DOMSource(doc), result);
-		} catch (SAXException saxe) {
-			throw new XMLException("validation", "Document validation error occurred.", saxe);
-		} catch (IOException ioe) {
-			throw new XMLException("input", "An IO error has occurred during document validation.", ioe);
+	}
+	
+	/**
+	 * @return <code>true</code> when the last {@link #load()} recovered unsaved changes from journal,
+	 * <code>false</code> otherwise.
+	 */
+	public boolean isRecovered() {
+		return recovered;
+	}
+	
+	/**
+	 * Waits for saves in progress and stops recording changes, i.e. deletes the journal. Used when the formula
+	 * has been saved or its changes discarded (e.g. before exit).
+	 */
+	public void close() {
+		awaitSaves();
+		stopJournal();
+	}
+	
+	/**
+	 * @return File containing journal of the formula.
+	 */
+	private File getJournalFile() {
+		return new File(getFormulaFile().getPath() + ".journal");
+	}
+	
+	/**
+	 * Starts recording changes into journal (when journaling and not recording yet).
+	 * @return Journal of the formula, <code>null</code> when changes are not recorded.
+	 */
+	private ModelJournal startJournal() {
+		if (journaling && (journal == null)) {
+			journal = new ModelJournal(getJournalFile());
+			try {
+				journal.create();
+				model.setJournal(journal);
+			} catch (IOException ioe) {
+				ioe.printStackTrace();
+				journal = null;
+			}
 		}
-		Document input = (Document)result.getNode();
-		input.normalize();
-		
-		parseXML(input.getDocumentElement());
-		
+		return journal;
+	}
+	
+	/**
+	 * Stops recording changes and deletes the journal.
+	 */
+	private void stopJournal() {
+		if (journal != null) {
+			model.setJournal(null);
+			journal.delete();
+			journal = null;
+		}
+	}
+	
+	/**
+	 * Waits until all saves in progress are finished.
+	 */
+	private static void awaitSaves() {
 		try {
-			is.close();
-		} catch (IOException ioe) {
-			throw new XMLException("input", "Could not close the input file.", ioe);
+			writer.submit(new Runnable() {
+				@Override
+				public void run() {}
+			}).get();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException ee) {
+			throw new IllegalStateException("Empty task cannot fail.", ee);
 		}
 	}
-		
+	
 	/**
-	 * Parses XML document into formula.
-	 * @param root root Element of the document.
-	 * @throws XMLException
+	 * @return Checksum of contents of <code>file</code>, the same as computed when it is saved.
 	 */
-	private void parseXML(Element root) throws XMLException {
-		TimeSeriesSource newTsSource = new TimeSeriesSource();
-		boolean hasTsSource = false;
-		newTsSource.setFormulaFile(formulaFile);
-		
-		NodeList nodes = root.getChildNodes();
-		for (int index = 0; index < nodes.getLength(); index++) {
-			Node n = nodes.item(index);
-			if (n.getNodeName().equals("series")) { //template
-				newTsSource.loadFromXML(n);
-				hasTsSource = true;
-			}
+	private static long checksum(File file) throws IOException {
+		CheckedInputStream in = new CheckedInputStream(new FileInputStream(file), new CRC32());
+		try {
+			byte [] buffer = new byte [8192];
+			while (in.read(buffer) >= 0) {}
+		} finally {
+			in.close();
 		}
-		Model newModel = new Model();
-		newModel.loadFromXML(root);
-		
-		//so far without errors -- time to replace
-		model = newModel;
-		if (hasTsSource) {
-			tsSource = newTsSource;
+		return in.getChecksum().getValue();
+	}
+	
+	/**
+	 * Closes a stream after an error (when the error is more important than failure to close).
+	 */
+	private static void close(Closeable stream) {
+		try {
+			stream.close();
+		} catch (IOException ioe) {
+			ioe.printStackTrace();
 		}
 	}
 	
@@ -245,10 +390,13 @@ public class Formula {
 	}
 	
 	/**
-	 * @return <code>false</code> if the formula has changed since the last save, <code>true</code> otherwise.
+	 * Waits for saves in progress (see {@link #saveInBackground()}) to find out whether they succeeded.
+	 * @return <code>false</code> if the formula has changed since the last save or the last save failed,
+	 * <code>true</code> otherwise.
 	 */
 	public boolean isSaved() {
-		return !undo.hasChanged();
+		awaitSaves();
+		return !undo.hasChanged() && !recovered && (failedSave != saves);
 	}
 	
 	/**
@@ -287,6 +435,9 @@ public class Formula {
 	 * Specifies file containing the formula.
 	 */
 	public void setFormulaFile(File formulaFile) {
+		if ((this.formulaFile == null) ? (formulaFile != null) : !this.formulaFile.equals(formulaFile)) {
+			stopJournal(); //journal belongs to the previous file
+		}
 		this.formulaFile = formulaFile;
 		if (tsSource != null) {
 			tsSource.setFormulaFile(formulaFile);
@@ -0,0 +1,148 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package xml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.ValidatorHandler;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import exceptions.XMLException;
+
+/**
+ * Reads and writes formula documents (see {@link Formula#load()} and {@link Formula#save()}).
+ *
+ * Shared by all formulas: the schema is compiled only once and parsers are reused. Parsers are not thread-safe,
+ * so each one is borrowed from a pool for a single document and returned afterwards. Thus, any number of threads
+ * may read and write formulas at once.
+ *
+ * @author Tomáš Vejpustek
+ */
+final class FormulaCodec {
+	private static final FormulaCodec instance = new FormulaCodec();
+
+	private Schema schema = null; //compiled on first use
+	private final SAXParserFactory parserFactory;
+	private final DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
+	private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance(); //guarded by itself
+	private final Queue<SAXParser> parsers = new ConcurrentLinkedQueue<SAXParser>(); //idle parsers
+	private final Queue<DocumentBuilder> builders = new ConcurrentLinkedQueue<DocumentBuilder>(); //idle builders
+
+	private FormulaCodec() {
+		parserFactory = SAXParserFactory.newInstance();
+		parserFactory.setNamespaceAware(true);
+	}
+
+	/**
+	 * @return Codec shared by all formulas.
+	 */
+	static FormulaCodec getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @return Schema of formula documents.
+	 * @throws XMLException when the schema could not be read.
+	 */
+	private synchronized Schema getSchema() throws XMLException {
+		if (schema == null) {
+			SchemaFactory sf = SchemaFactory.newInstance("http://www.w3.org/2001/XMLSchema");
+			try {
+				schema = sf.newSchema(getClass().getResource("formula.xsd"));
+			} catch (SAXException saxe) { //schema cannot be loaded
+				saxe.printStackTrace();
+				throw new XMLException("schema", "Document schema could not be read.");
+			}
+		}
+		return schema;
+	}
+
+	/**
+	 * Parses, validates and reads formula document in a single pass.
+	 * @param is Stream containing the document (not closed).
+	 * @param formulaFile File containing the document.
+	 * @return Handler containing the loaded formula.
+	 * @throws XMLException when the document is not a valid formula.
+	 */
+	FormulaHandler read(InputStream is, File formulaFile) throws XMLException {
+		ValidatorHandler validator = getSchema().newValidatorHandler();
+		SAXParser parser;
+		XMLReader reader;
+		DocumentBuilder builder;
+		try {
+			parser = parsers.poll();
+			if (parser == null) {
+				parser = parserFactory.newSAXParser();
+			}
+			reader = parser.getXMLReader();
+			builder = builders.poll();
+			if (builder == null) {
+				builder = builderFactory.newDocumentBuilder();
+			}
+		} catch (ParserConfigurationException pce) {
+			throw new XMLException("general", "Parser could not be configured.");
+		} catch (SAXException saxe) {
+			throw new XMLException("general", "Parser could not be configured.");
+		}
+
+		try {
+			FormulaHandler handler = new FormulaHandler(builder.newDocument(), formulaFile);
+			validator.setErrorHandler(handler);
+			validator.setContentHandler(handler);
+			reader.setContentHandler(validator);
+			try {
+				reader.parse(new InputSource(is));
+			} catch (SAXException saxe) {
+				Throwable cause = saxe;
+				while ((cause instanceof SAXException) && (((SAXException)cause).getException() != null)) {
+					cause = ((SAXException)cause).getException();
+				}
+				if (cause instanceof XMLException) { //error of loading the formula
+					throw (XMLException)cause;
+				} else if (handler.isInvalid()) {
+					throw new XMLException("validation", "Document validation error occurred.", saxe);
+				} else { //not an XML
+					throw new XMLException("parse", "Document parse error occurred.", saxe);
+				}
+			} catch (IOException ioe) {
+				throw new XMLException("input", "An IO error has occurred during document parsing.", ioe);
+			}
+			return handler;
+		} finally {
+			parser.reset();
+			parsers.offer(parser);
+			builder.reset();
+			builders.offer(builder);
+		}
+	}
+
+	/**
+	 * @param os Stream the document is written into.
+	 * @return Writer of indented formula document.
+	 */
+	XMLStreamWriter createWriter(OutputStream os) throws XMLStreamException {
+		XMLStreamWriter out;
+		synchronized (outputFactory) {
+			out = outputFactory.createXMLStreamWriter(os, "UTF-8");
+		}
+		return new IndentingXMLStreamWriter(out);
+	}
+}
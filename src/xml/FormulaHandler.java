@@ -0,0 +1,152 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package xml;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import ltl.Model;
+import ltl.ModelLoader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import exceptions.XMLException;
+
+/**
+ * Reads formula from SAX events (of a document already being validated) directly into a {@link Model}
+ * and a {@link TimeSeriesSource}.
+ *
+ * Each child of the root element (i.e. an event, a transition or a series) is collected into a small detached
+ * element, passed to {@link ModelLoader} (or {@link TimeSeriesSource#loadFromXML(org.w3c.dom.Node)}) and dropped.
+ * Thus, the document is never held in memory as a whole.
+ *
+ * Errors of loading are thrown as {@link SAXException}s wrapping {@link XMLException}s. Also used as error handler
+ * of validation which remembers whether the document has been found invalid.
+ *
+ * @author Tomáš Vejpustek
+ */
+class FormulaHandler extends DefaultHandler {
+	private final Document document; //creates detached elements
+	private final ModelLoader loader = new ModelLoader();
+	private final TimeSeriesSource series = new TimeSeriesSource();
+	private boolean hasSeries = false;
+	private boolean invalid = false;
+
+	private int depth = 0; //depth of the current element (root has 1)
+	private Deque<Element> elements = new ArrayDeque<Element>(); //open elements of the current child of root
+	private StringBuilder text = new StringBuilder(); //text of the current element not yet added to it
+
+	/**
+	 * @param document Document used to create elements.
+	 * @param formulaFile File containing the formula (see {@link TimeSeriesSource#setFormulaFile(File)}).
+	 */
+	FormulaHandler(Document document, File formulaFile) {
+		this.document = document;
+		series.setFormulaFile(formulaFile);
+	}
+
+	/**
+	 * @return Loaded model.
+	 */
+	Model getModel() {
+		Model result = new Model();
+		loader.load(result);
+		return result;
+	}
+
+	/**
+	 * @return Loaded time series source, <code>null</code> when there was none.
+	 */
+	TimeSeriesSource getTimeSeriesSource() {
+		return hasSeries ? series : null;
+	}
+
+	/**
+	 * @return <code>true</code> when the document has been found invalid, <code>false</code> otherwise.
+	 */
+	boolean isInvalid() {
+		return invalid;
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+		depth++;
+		if (depth < 2) {
+			return;
+		}
+		addText();
+		Element element = document.createElement(getName(localName, qName));
+		for (int index = 0; index < attributes.getLength(); index++) {
+			element.setAttribute(getName(attributes.getLocalName(index), attributes.getQName(index)), attributes.getValue(index));
+		}
+		if (!elements.isEmpty()) {
+			elements.peek().appendChild(element);
+		}
+		elements.push(element);
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) throws SAXException {
+		depth--;
+		if (depth < 1) {
+			return;
+		}
+		addText();
+		Element element = elements.pop();
+		if (depth > 1) {
+			return;
+		}
+		try {
+			String name = element.getNodeName();
+			if (name.equals("event")) {
+				loader.addEvent(element);
+			} else if (name.equals("transition")) {
+				loader.addTransition(element);
+			} else if (name.equals("series")) {
+				series.loadFromXML(element);
+				hasSeries = true;
+			}
+		} catch (XMLException xmle) {
+			throw new SAXException(xmle.getMessage(), xmle);
+		}
+	}
+
+	@Override
+	public void characters(char[] ch, int start, int length) throws SAXException {
+		if (!elements.isEmpty()) {
+			text.append(ch, start, length);
+		}
+	}
+
+	/**
+	 * Adds collected text into the current element.
+	 */
+	private void addText() {
+		if (text.length() > 0) {
+			elements.peek().appendChild(document.createTextNode(text.toString()));
+			text.setLength(0);
+		}
+	}
+
+	private static String getName(String localName, String qName) {
+		return (localName == null || localName.isEmpty()) ? qName : localName;
+	}
+
+	@Override
+	public void error(SAXParseException e) throws SAXException {
+		invalid = true;
+		throw e;
+	}
+
+	@Override
+	public void fatalError(SAXParseException e) throws SAXException {
+		invalid = true;
+		throw e;
+	}
+}
@@ -0,0 +1,235 @@
+//Copyright (C) 2011 Tomáš Vejpustek
+//Full copyright notice found in src/LICENSE.
+package xml;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * {@link XMLStreamWriter} which puts each element on a new line indented by four spaces according to its depth.
+ * Elements containing only text are written on a single line.
+ *
+ * @author Tomáš Vejpustek
+ */
+class IndentingXMLStreamWriter implements XMLStreamWriter {
+	private static final String INDENT = "    ";
+
+	private final XMLStreamWriter out;
+	private final Deque<Boolean> hasChildren = new ArrayDeque<Boolean>(); //whether open elements contain elements
+	private boolean started = false; //whether anything has been written
+
+	/**
+	 * @param out Writer into which output is passed.
+	 */
+	public IndentingXMLStreamWriter(XMLStreamWriter out) {
+		this.out = out;
+	}
+
+	/**
+	 * Writes new line and indentation before an element.
+	 */
+	private void indent() throws XMLStreamException {
+		if (!hasChildren.isEmpty()) {
+			hasChildren.pop();
+			hasChildren.push(true);
+		}
+		if (started) {
+			StringBuilder indent = new StringBuilder("\n");
+			for (int i = 0; i < hasChildren.size(); i++) {
+				indent.append(INDENT);
+			}
+			out.writeCharacters(indent.toString());
+		}
+		started = true;
+	}
+
+	private void startElement() throws XMLStreamException {
+		indent();
+		hasChildren.push(false);
+	}
+
+	@Override
+	public void writeStartElement(String localName) throws XMLStreamException {
+		startElement();
+		out.writeStartElement(localName);
+	}
+
+	@Override
+	public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+		startElement();
+		out.writeStartElement(namespaceURI, localName);
+	}
+
+	@Override
+	public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+		startElement();
+		out.writeStartElement(prefix, localName, namespaceURI);
+	}
+
+	@Override
+	public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+		indent();
+		out.writeEmptyElement(namespaceURI, localName);
+	}
+
+	@Override
+	public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+		indent();
+		out.writeEmptyElement(prefix, localName, namespaceURI);
+	}
+
+	@Override
+	public void writeEmptyElement(String localName) throws XMLStreamException {
+		indent();
+		out.writeEmptyElement(localName);
+	}
+
+	@Override
+	public void writeEndElement() throws XMLStreamException {
+		if (hasChildren.pop()) {
+			StringBuilder indent = new StringBuilder("\n");
+			for (int i = 0; i < hasChildren.size(); i++) {
+				indent.append(INDENT);
+			}
+			out.writeCharacters(indent.toString());
+		}
+		out.writeEndElement();
+	}
+
+	@Override
+	public void writeEndDocument() throws XMLStreamException {
+		out.writeEndDocument();
+		out.writeCharacters("\n");
+	}
+
+	@Override
+	public void close() throws XMLStreamException {
+		out.close();
+	}
+
+	@Override
+	public void flush() throws XMLStreamException {
+		out.flush();
+	}
+
+	@Override
+	public void writeAttribute(String localName, String value) throws XMLStreamException {
+		out.writeAttribute(localName, value);
+	}
+
+	@Override
+	public void writeAttribute(String prefix, String namespaceURI, String localName, String value) throws XMLStreamException {
+		out.writeAttribute(prefix, namespaceURI, localName, value);
+	}
+
+	@Override
+	public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+		out.writeAttribute(namespaceURI, localName, value);
+	}
+
+	@Override
+	public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+		out.writeNamespace(prefix, namespaceURI);
+	}
+
+	@Override
+	public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+		out.writeDefaultNamespace(namespaceURI);
+	}
+
+	@Override
+	public void writeComment(String data) throws XMLStreamException {
+		indent();
+		out.writeComment(data);
+	}
+
+	@Override
+	public void writeProcessingInstruction(String target) throws XMLStreamException {
+		indent();
+		out.writeProcessingInstruction(target);
+	}
+
+	@Override
+	public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+		indent();
+		out.writeProcessingInstruction(target, data);
+	}
+
+	@Override
+	public void writeCData(String data) throws XMLStreamException {
+		out.writeCData(data);
+	}
+
+	@Override
+	public void writeDTD(String dtd) throws XMLStreamException {
+		indent();
+		out.writeDTD(dtd);
+	}
+
+	@Override
+	public void writeEntityRef(String name) throws XMLStreamException {
+		out.writeEntityRef(name);
+	}
+
+	@Override
+	public void writeStartDocument() throws XMLStreamException {
+		out.writeStartDocument();
+		started = true;
+	}
+
+	@Override
+	public void writeStartDocument(String version) throws XMLStreamException {
+		out.writeStartDocument(version);
+		started = true;
+	}
+
+	@Override
+	public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+		out.writeStartDocument(encoding, version);
+		started = true;
+	}
+
+	@Override
+	public void writeCharacters(String text) throws XMLStreamException {
+		out.writeCharacters(text);
+	}
+
+	@Override
+	public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+		out.writeCharacters(text, start, len);
+	}
+
+	@Override
+	public String getPrefix(String uri) throws XMLStreamException {
+		return out.getPrefix(uri);
+	}
+
+	@Override
+	public void setPrefix(String prefix, String uri) throws XMLStreamException {
+		out.setPrefix(prefix, uri);
+	}
+
+	@Override
+	public void setDefaultNamespace(String uri) throws XMLStreamException {
+		out.setDefaultNamespace(uri);
+	}
+
+	@Override
+	public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+		out.setNamespaceContext(context);
+	}
+
+	@Override
+	public NamespaceContext getNamespaceContext() {
+		return out.getNamespaceContext();
+	}
+
+	@Override
+	public Object getProperty(String name) throws IllegalArgumentException {
+		return out.getProperty(name);
+	}
+}
@@ -5,12 +5,14 @@ package xml;
 import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.w3c.dom.DOMException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -39,6 +41,17 @@ public class TimeSeriesSource implements XMLRepresentable {
 	 */
 	public TimeSeriesSource() {}
 	
+	/**
+	 * Creates copy of <code>source</code>. Used to save the formula in background.
+	 */
+	TimeSeriesSource(TimeSeriesSource source) {
+		srcFile = source.srcFile;
+		formFile = source.formFile;
+		if (source.params != null) {
+			params = new HashMap<String, String>(source.params);
+		}
+	}
+	
 	/**
 	 * @return Source file of the time series.
 	 */
@@ -69,6 +82,13 @@ public class TimeSeriesSource implements XMLRepresentable {
 		return params.get(name);
 	}
 	
+	/**
+	 * @return All parameters of time series loader (including its name), cannot be modified.
+	 */
+	public Map<String, String> getParameters() {
+		return Collections.unmodifiableMap(params);
+	}
+	
 	/**
 	 * Sets loader parameters from existing {@link TimeSeriesLoader}.
 	 */
@@ -85,33 +105,29 @@ public class TimeSeriesSource implements XMLRepresentable {
 	}
 
 	@Override
-	public Node toXML(Document document) {
-		return toXML(document, "series");
-	}
-
-	@Override
-	public Node toXML(Document document, String name) {
-		Element out = document.createElement(name);
+	public void toXML(XMLStreamWriter out, String name) throws XMLStreamException {
 		URI outURI = srcFile.toURI();
 		if (formFile != null) {
 			outURI = getFormulaTargetURI().relativize(outURI);
 		}
+		out.writeStartElement(name);
 		
 		//series
-		Element src = document.createElement("source");
-		src.appendChild(document.createTextNode(outURI.toString()));
-		out.appendChild(src);
+		out.writeStartElement("source");
+		out.writeCharacters(outURI.toString());
+		out.writeEndElement();
 		
 		//loader
-		Element ldr = document.createElement("loader");
-		ldr.appendChild(document.createTextNode(getLoaderName()));
+		out.writeStartElement("loader");
 		for (Map.Entry<String, String> param : params.entrySet()) {
 			if (!param.getKey().equals("name")) {
-				ldr.setAttribute(param.getKey(), param.getValue());
+				out.writeAttribute(param.getKey(), param.getValue());
 			}
- 		}
-		out.appendChild(ldr);
-		return out;
+		}
+		out.writeCharacters(getLoaderName());
+		out.writeEndElement();
+		
+		out.writeEndElement();
 	}
 
 	@Override
@@ -5,10 +5,7 @@ package xml;
 import java.util.ArrayDeque;
 import java.util.Deque;
 
-import ltl.Model;
 import ltl.ModelChange;
-import selector.Selector;
-import coordinates.Transformation;
 
 /**
  * Stack of subsequent changes to the model used to implement undo. Also watches for changes from last mark (i.e. a save point).
@@ -21,54 +18,52 @@ import coordinates.Transformation;
  *  <li>redo stack is cleared, when a regular change is performed</li>
  * </ul>
  * 
+ * History is limited by number of changes and by number of graphic primitives they hold (see {@link ModelChange#getSize()}).
+ * When a limit is exceeded, the oldest changes are forgotten. A change performed right after another one is merged with it
+ * when possible (see {@link ModelChange#merge(ModelChange)}), unless the mark lies between them.
+ * 
+ * The mark is a position in history -- number of changes performed (and not undone) since the stack was created. 
+ * 
  * @author Tomáš Vejpustek
  *
  */
 public class UndoStack {
 	/**
-	 * Mark placed in the stack. When using <code>equals</code> on two instances, it returns <code>true</code>.
-	 * 
-	 * @author Tomáš Vejpustek
-	 *
+	 * Default maximum number of changes in history.
 	 */
-	private static class Mark implements ModelChange {
-		@Override
-		public void apply(Model target) {
-			throw new UnsupportedOperationException("This ModelChange is only a dummy.");
-		}
-
-		@Override
-		public Selector selector(Model target, Transformation coord) {
-			throw new UnsupportedOperationException("This ModelChange is only a dummy.");
-		}
-		
-		@Override
-		public void undo(Model target) {
-			throw new UnsupportedOperationException("This ModelChange is only a dummy.");
-		}
-		
-		@Override
-		public void redo(Model target) {
-			throw new UnsupportedOperationException("This ModelChange is only a dummy.");
-		}
-		
-		@Override
-		public boolean equals(Object obj) {
-			if (obj == null) {
-				return false;
-			}
-			return (obj instanceof Mark); 
-		}
-		
-	}
+	public static final int DEFAULT_ENTRIES = 1000;
+	/**
+	 * Default maximum number of graphic primitives held by changes in history.
+	 */
+	public static final int DEFAULT_SIZE = 4000;
+	private static final int NONE = -1; //mark which cannot be reached
+	
 	private Deque<ModelChange> undoStack = new ArrayDeque<ModelChange>();
 	private Deque<ModelChange> redoStack = new ArrayDeque<ModelChange>();
+	private final int maxEntries, maxSize;
+	private int size = 0; //number of primitives held by both stacks
+	private int position = 0; //number of changes performed and not undone
+	private int mark = 0;
 	
 	/**
-	 * Create empty undo stack with mark on the top.
+	 * Create empty undo stack with mark on the top and default limits.
 	 */
 	public UndoStack() {
-		undoStack.addFirst(new Mark());
+		this(DEFAULT_ENTRIES, DEFAULT_SIZE);
+	}
+	
+	/**
+	 * Create empty undo stack with mark on the top.
+	 * @param maxEntries Maximum number of changes in history.
+	 * @param maxSize Maximum number of graphic primitives held by changes in history.
+	 * @throws IllegalArgumentException when <code>maxEntries</code> is not positive.
+	 */
+	public UndoStack(int maxEntries, int maxSize) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("History has to hold at least one change.");
+		}
+		this.maxEntries = maxEntries;
+		this.maxSize = maxSize;
 	}
 	
 	/**
@@ -80,15 +75,8 @@ public class UndoStack {
 		if (head == null) {
 			return null;
 		}
-		if (head.equals(new Mark())) {
-			head = undoStack.pollFirst();
-			if (head == null) {
-				undoStack.addFirst(new Mark());
-				return null;
-			}
-			redoStack.addFirst(new Mark());
-		}
 		redoStack.addFirst(head);
+		position--;
 		return head;
 	}
 	
@@ -102,10 +90,7 @@ public class UndoStack {
 			return null;
 		}
 		undoStack.addFirst(head);
-		if (new Mark().equals(redoStack.peekFirst())) {
-			redoStack.removeFirst();
-			undoStack.addFirst(head);
-		}
+		position++;
 		return head;
 	}
 	
@@ -113,36 +98,47 @@ public class UndoStack {
 	 * @return <code>true</code> if an undo action is possible, <code>false</code> otherwise.
 	 */
 	public boolean canUndo() {
-		ModelChange head = undoStack.peekFirst();
-		if (head == null) {
-			return false;
-		}
-		if (head.equals(new Mark())) {
-			undoStack.pollFirst();
-			head = undoStack.peekFirst();
-			undoStack.addFirst(new Mark());
-			if (head == null) {
-				return false;
-			}
-		}
-		return true;
+		return !undoStack.isEmpty();
 	}
 	
 	/**
 	 * @return <code>true</code> if a redo action is possible, <code>false</code> otherwise.
 	 */
 	public boolean canRedo() {
-		ModelChange head = redoStack.peekFirst();
-		return (head != null);
+		return !redoStack.isEmpty();
 	}
 	
 	/**
-	 * Apply a {@link ModelChange} -- put it to the top of undo stack and clear redo stack.
+	 * Apply a {@link ModelChange} -- put it to the top of undo stack (or merge it with the top) and clear redo stack.
 	 * @param target change to be applied.
 	 */
 	public void apply(ModelChange target) {
-		undoStack.addFirst(target);
+		for (ModelChange change : redoStack) {
+			size -= change.getSize();
+		}
 		redoStack.clear();
+		if (mark > position) { //marked state has been undone and cannot be redone
+			mark = NONE;
+		}
+		
+		ModelChange head = undoStack.peekFirst();
+		if ((head != null) && (mark != position)) {
+			ModelChange merged = head.merge(target);
+			if (merged != null) {
+				undoStack.removeFirst();
+				size -= head.getSize();
+				undoStack.addFirst(merged);
+				size += merged.getSize();
+				return;
+			}
+		}
+		
+		undoStack.addFirst(target);
+		size += target.getSize();
+		position++;
+		while ((undoStack.size() > maxEntries) || ((size > maxSize) && (undoStack.size() > 1))) {
+			size -= undoStack.removeLast().getSize();
+		}
 	}
 	
 	/**
@@ -150,10 +146,7 @@ public class UndoStack {
 	 * @see #hasChanged()
 	 */
 	public void mark() {
-		//first has to remove all nulls from stacks
-		undoStack.remove(new Mark()); //all marks are equal
-		redoStack.remove(new Mark());
-		undoStack.addFirst(null);
+		mark = position;
 	}
 	
 	/**
@@ -161,10 +154,7 @@ public class UndoStack {
 	 * @see #mark()
 	 */
 	public boolean hasChanged() {
-		if (undoStack.isEmpty()) {
-			return true;
-		}
-		return !undoStack.peekFirst().equals(new Mark());
+		return position != mark;
 	}
 
 }
@@ -2,30 +2,25 @@
 //Full copyright notice found in src/LICENSE.  
 package xml;
 
-import org.w3c.dom.Document;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.w3c.dom.Node;
 
 import exceptions.XMLException;
 
 /**
- * Specifies objects representable in XML form for usage with DOM XML parser.
+ * Specifies objects representable in XML form written directly into a stream and loaded from DOM.
  * 
  * @author Tomáš Vejpustek
  *
  */
 public interface XMLRepresentable {
 	/**
-	 * @param document Parent document.
-	 * @return XML representation of object.
-	 */
-	public Node toXML(Document document);
-	
-	/**
-	 * @param document Parent document.
-	 * @param name name of created node.
-	 * @return XML representation of object.
+	 * Writes XML representation of object into <code>out</code>.
+	 * @param name name of written element.
 	 */
-	public Node toXML(Document document, String name);
+	public void toXML(XMLStreamWriter out, String name) throws XMLStreamException;
 	
 	/**
 	 * Loads object from its XML representation.